@@ -0,0 +1,186 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.functionmesh.compute;
+
+import static io.functionmesh.compute.models.PackageMetadataProperties.PROPERTY_FILE_NAME;
+import io.functionmesh.compute.functions.models.V1alpha1Function;
+import io.functionmesh.compute.models.MeshWorkerServiceCustomConfig;
+import io.functionmesh.compute.sinks.models.V1alpha1Sink;
+import io.functionmesh.compute.sources.models.V1alpha1Source;
+import io.functionmesh.compute.testdata.Generate;
+import io.functionmesh.compute.util.FunctionsUtil;
+import io.functionmesh.compute.util.SinksUtil;
+import io.functionmesh.compute.util.SourcesUtil;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.apache.pulsar.client.admin.Packages;
+import org.apache.pulsar.client.admin.PulsarAdmin;
+import org.apache.pulsar.common.functions.FunctionConfig;
+import org.apache.pulsar.common.io.SinkConfig;
+import org.apache.pulsar.common.io.SourceConfig;
+import org.apache.pulsar.functions.api.Context;
+import org.apache.pulsar.functions.api.Function;
+import org.apache.pulsar.functions.runtime.kubernetes.KubernetesRuntimeFactoryConfig;
+import org.apache.pulsar.functions.worker.WorkerConfig;
+import org.apache.pulsar.packages.management.core.common.PackageMetadata;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the conversions between the Pulsar configs and the CRD models done on every create, update and
+ * get of a function, sink or source, with the {@link Generate} fixtures of the tests.
+ *
+ * <p>The package service is stubbed: the metadata of every package has a file name and downloads write nothing,
+ * the function class is then loaded from the benchmark class path. Run with {@code -prof gc} to get the
+ * allocation rate next to the ops/sec.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CrdConversionBenchmark {
+
+    private static final String GROUP = "compute.functionmesh.io";
+    private static final String VERSION = "v1alpha1";
+    private static final String TENANT = "public";
+    private static final String NAMESPACE = "default";
+    private static final String NAME = "word-count";
+
+    private MeshWorkerService worker;
+    private FunctionConfig functionConfig;
+    private SinkConfig sinkConfig;
+    private SourceConfig sourceConfig;
+    private V1alpha1Function function;
+    private V1alpha1Sink sink;
+    private V1alpha1Source source;
+
+    @Setup
+    public void setup() {
+        worker = new StubMeshWorkerService();
+
+        functionConfig = Generate.createJavaFunctionWithPackageURLConfig(TENANT, NAMESPACE, NAME);
+        functionConfig.setClassName(WordCountFunction.class.getName());
+        sinkConfig = Generate.createSinkConfig(TENANT, NAMESPACE, NAME);
+        sourceConfig = Generate.createSourceConfig(TENANT, NAMESPACE, NAME);
+
+        function = functionToCrd();
+        sink = sinkToCrd();
+        source = sourceToCrd();
+    }
+
+    @Benchmark
+    public V1alpha1Function functionToCrd() {
+        return FunctionsUtil.createV1alpha1FunctionFromFunctionConfig("Function", GROUP, VERSION, NAME,
+                functionConfig.getJar(), functionConfig, Generate.TEST_CLUSTER_NAME, worker);
+    }
+
+    @Benchmark
+    public FunctionConfig crdToFunction() {
+        return FunctionsUtil.createFunctionConfigFromV1alpha1Function(TENANT, NAMESPACE, NAME, function);
+    }
+
+    @Benchmark
+    public V1alpha1Sink sinkToCrd() {
+        return SinksUtil.createV1alpha1SkinFromSinkConfig("Sink", GROUP, VERSION, NAME,
+                "sink://public/default/elastic-search@1.0", null, sinkConfig, null, Generate.TEST_CLUSTER_NAME,
+                worker);
+    }
+
+    @Benchmark
+    public SinkConfig crdToSink() {
+        return SinksUtil.createSinkConfigFromV1alpha1Sink(TENANT, NAMESPACE, NAME, sink);
+    }
+
+    @Benchmark
+    public V1alpha1Source sourceToCrd() {
+        return SourcesUtil.createV1alpha1SourceFromSourceConfig("Source", GROUP, VERSION, NAME,
+                "source://public/default/debezium-mongodb@1.0", null, sourceConfig, null,
+                Generate.TEST_CLUSTER_NAME, worker);
+    }
+
+    @Benchmark
+    public SourceConfig crdToSource() {
+        return SourcesUtil.createSourceConfigFromV1alpha1Source(TENANT, NAMESPACE, NAME, source);
+    }
+
+    /**
+     * A worker with the default configs and a stubbed package service, nothing is started.
+     */
+    static class StubMeshWorkerService extends MeshWorkerService {
+
+        private final WorkerConfig workerConfig = new WorkerConfig();
+        private final KubernetesRuntimeFactoryConfig factoryConfig = new KubernetesRuntimeFactoryConfig();
+        private final MeshWorkerServiceCustomConfig customConfig = new MeshWorkerServiceCustomConfig();
+        private final PulsarAdmin brokerAdmin;
+
+        StubMeshWorkerService() {
+            workerConfig.setDownloadDirectory(System.getProperty("java.io.tmpdir"));
+            factoryConfig.setJobNamespace(NAMESPACE);
+            PackageMetadata metadata = PackageMetadata.builder()
+                    .properties(Collections.singletonMap(PROPERTY_FILE_NAME, "word-count.jar")).build();
+            Packages packages = (Packages) Proxy.newProxyInstance(Packages.class.getClassLoader(),
+                    new Class<?>[]{Packages.class},
+                    (proxy, method, args) -> method.getName().equals("getMetadata") ? metadata : null);
+            brokerAdmin = (PulsarAdmin) Proxy.newProxyInstance(PulsarAdmin.class.getClassLoader(),
+                    new Class<?>[]{PulsarAdmin.class},
+                    (proxy, method, args) -> method.getName().equals("packages") ? packages : null);
+        }
+
+        @Override
+        public WorkerConfig getWorkerConfig() {
+            return workerConfig;
+        }
+
+        @Override
+        public KubernetesRuntimeFactoryConfig getFactoryConfig() {
+            return factoryConfig;
+        }
+
+        @Override
+        public MeshWorkerServiceCustomConfig getMeshWorkerServiceCustomConfig() {
+            return customConfig;
+        }
+
+        @Override
+        public PulsarAdmin getBrokerAdmin() {
+            return brokerAdmin;
+        }
+    }
+
+    /**
+     * The function of the fixtures, its type arguments are extracted on every conversion.
+     */
+    public static class WordCountFunction implements Function<String, String> {
+        @Override
+        public String process(String input, Context context) {
+            return input;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.functionmesh.compute;
+
+import com.google.gson.Gson;
+import io.functionmesh.compute.functions.models.V1alpha1FunctionList;
+import io.functionmesh.compute.util.CodecUtil;
+import io.kubernetes.client.openapi.ApiClient;
+import io.kubernetes.client.openapi.JSON;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.IOUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the decoding and encoding of a function list, as done by a list of functions, with the generated
+ * type adapters registered by {@link CodecUtil#registerCrdTypeAdapters(ApiClient)} against the reflective
+ * adapters of the kubernetes client. Run with {@code -prof gc} to compare the allocation rate.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CrdModelCodecBenchmark {
+
+    @Param({"1", "100"})
+    private int functions;
+
+    private Gson reflective;
+    private Gson generated;
+    private String json;
+    private V1alpha1FunctionList list;
+
+    @Setup
+    public void setup() throws IOException {
+        reflective = new JSON().getGson();
+        ApiClient apiClient = new ApiClient();
+        CodecUtil.registerCrdTypeAdapters(apiClient);
+        generated = apiClient.getJSON().getGson();
+
+        String function;
+        try (InputStream in = CrdModelCodecBenchmark.class.getResourceAsStream("/function.json")) {
+            function = IOUtils.toString(in, StandardCharsets.UTF_8);
+        }
+        json = "{\"apiVersion\":\"compute.functionmesh.io/v1alpha1\",\"kind\":\"FunctionList\","
+                + "\"metadata\":{\"resourceVersion\":\"48211\"},\"items\":["
+                + String.join(",", Collections.nCopies(functions, function)) + "]}";
+        list = reflective.fromJson(json, V1alpha1FunctionList.class);
+        if (!reflective.toJson(list).equals(generated.toJson(generated.fromJson(json, V1alpha1FunctionList.class)))) {
+            throw new IllegalStateException("The generated type adapters do not match the reflective ones");
+        }
+    }
+
+    @Benchmark
+    public V1alpha1FunctionList decodeReflective() {
+        return reflective.fromJson(json, V1alpha1FunctionList.class);
+    }
+
+    @Benchmark
+    public V1alpha1FunctionList decodeGenerated() {
+        return generated.fromJson(json, V1alpha1FunctionList.class);
+    }
+
+    @Benchmark
+    public String encodeReflective() {
+        return reflective.toJson(list);
+    }
+
+    @Benchmark
+    public String encodeGenerated() {
+        return generated.toJson(list);
+    }
+}
@@ -0,0 +1,141 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.functionmesh.compute;
+
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.http.HttpServletRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link MeshWorkerServiceHandler#rewriteTarget(HttpServletRequest)} against the previous
+ * split-and-normalize implementation. Run with {@code -prof gc} to compare the allocation rate.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProxyRewriteTargetBenchmark {
+
+    private static final String KUBERNETES_HOST = "10.96.0.1";
+
+    private MeshWorkerServiceHandler handler;
+    private MeshWorkerServiceHandler legacyHandler;
+    private HttpServletRequest functionMeshRequest;
+    private HttpServletRequest otherRequest;
+
+    @Setup
+    public void setup() {
+        handler = new MeshWorkerServiceHandler() {
+            @Override
+            protected String getEnvironment(String key) {
+                return KUBERNETES_HOST;
+            }
+        };
+        legacyHandler = new LegacyMeshWorkerServiceHandler();
+        functionMeshRequest = request(
+                "/apis/compute.functionmesh.io/v1alpha1/namespaces/default/functionmeshes/mesh-sample",
+                "watch=false&resourceVersion=1024");
+        otherRequest = request("/admin/v3/functions/public/default/function-sample", null);
+    }
+
+    @Benchmark
+    public String rewriteFunctionMeshRequest() {
+        return handler.rewriteTarget(functionMeshRequest);
+    }
+
+    @Benchmark
+    public String rewriteFunctionMeshRequestLegacy() {
+        return legacyHandler.rewriteTarget(functionMeshRequest);
+    }
+
+    @Benchmark
+    public String rewriteOtherRequest() {
+        return handler.rewriteTarget(otherRequest);
+    }
+
+    @Benchmark
+    public String rewriteOtherRequestLegacy() {
+        return legacyHandler.rewriteTarget(otherRequest);
+    }
+
+    private static HttpServletRequest request(String requestUri, String query) {
+        return (HttpServletRequest) Proxy.newProxyInstance(ProxyRewriteTargetBenchmark.class.getClassLoader(),
+                new Class<?>[]{HttpServletRequest.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getRequestURI":
+                            return requestUri;
+                        case "getQueryString":
+                            return query;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    /**
+     * The rewrite as it was before the route matcher and the upstream url were cached.
+     */
+    private static class LegacyMeshWorkerServiceHandler extends MeshWorkerServiceHandler {
+
+        @Override
+        protected String getEnvironment(String key) {
+            return KUBERNETES_HOST;
+        }
+
+        @Override
+        protected String rewriteTarget(HttpServletRequest request) {
+            StringBuilder url = new StringBuilder();
+            boolean isFunctionMeshRestRequest = false;
+            String requestUri = request.getRequestURI();
+            if (requestUri.startsWith("/apis/compute.functionmesh.io/v1alpha1/namespaces")) {
+                String[] requestUriPath = requestUri.split("/");
+                if (requestUriPath.length >= 7 && requestUriPath[6].equals("functionmeshes")) {
+                    isFunctionMeshRestRequest = true;
+                }
+            }
+            if (isFunctionMeshRestRequest) {
+                url.append("https://").append(getEnvironment("KUBERNETES_SERVICE_HOST")).append(":").append(443)
+                        .append(requestUri);
+                String query = request.getQueryString();
+                if (query != null) {
+                    url.append("?").append(query);
+                }
+                URI rewrittenUrl = URI.create(url.toString()).normalize();
+                if (!validateDestination(rewrittenUrl.getHost(), rewrittenUrl.getPort())) {
+                    return null;
+                }
+                return rewrittenUrl.toString();
+            }
+            return null;
+        }
+    }
+}
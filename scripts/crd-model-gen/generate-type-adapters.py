@@ -0,0 +1,227 @@
+#!/usr/bin/env python3
+#
+# Licensed to the Apache Software Foundation (ASF) under one
+# or more contributor license agreements.  See the NOTICE file
+# distributed with this work for additional information
+# regarding copyright ownership.  The ASF licenses this file
+# to you under the Apache License, Version 2.0 (the
+# "License"); you may not use this file except in compliance
+# with the License.  You may obtain a copy of the License at
+#
+#   http://www.apache.org/licenses/LICENSE-2.0
+#
+# Unless required by applicable law or agreed to in writing,
+# software distributed under the License is distributed on an
+# "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+# KIND, either express or implied.  See the License for the
+# specific language governing permissions and limitations
+# under the License.
+#
+
+# Generate streaming gson TypeAdapters for the CRD models produced by crd-model-gen, so the models are
+# (de)serialized without reflection. For each models directory a <Package>TypeAdapterFactory is written next
+# to the models, e.g. functions/models/FunctionsTypeAdapterFactory.java.
+#
+# usage: generate-type-adapters.py <models directory>...
+
+import os
+import re
+import sys
+
+JAVA_LANG = {"String", "Boolean", "Integer", "Long", "Double", "Float", "Short", "Byte", "Object"}
+DIRECT_WRITE = {"String", "Boolean", "Integer", "Long", "Double", "Float", "Short", "Byte"}
+
+PACKAGE_RE = re.compile(r"^package ([\w.]+);", re.M)
+IMPORT_RE = re.compile(r"^import ([\w.]+)\.(\w+);", re.M)
+CLASS_RE = re.compile(r"^public class (\w+)([^{]*)\{", re.M)
+ENUM_RE = re.compile(r"public enum (\w+)")
+CONSTANT_RE = re.compile(r'public static final String (SERIALIZED_NAME_\w+) = "([^"]*)";')
+FIELD_RE = re.compile(r"@SerializedName\((\w+)\)\s*private ([\w.<>, ]+?) (\w+)(?: = [^;]+)?;")
+GETTER_RE = re.compile(r"public ([\w.<>, ]+?) (\w+)\(\) \{\s*return (\w+);\s*\}")
+SETTER_RE = re.compile(r"public void (\w+)\(([\w.<>, ]+?) (\w+)\) \{\s*this\.(\w+) = \3;\s*\}")
+IDENTIFIER_RE = re.compile(r"[\w.]+")
+
+
+def parse_model(path):
+    with open(path) as f:
+        source = f.read()
+    model = CLASS_RE.search(source)
+    if model is None:
+        return None
+    name, declaration = model.group(1), model.group(2)
+    if "extends" in declaration:
+        print("skip %s: it extends another class" % name, file=sys.stderr)
+        return None
+    own_package = PACKAGE_RE.search(source).group(1)
+    imports = {simple: package + "." + simple for package, simple in IMPORT_RE.findall(source)
+               if package != own_package}
+    enums = set(ENUM_RE.findall(source))
+    constants = dict(CONSTANT_RE.findall(source))
+    getters = {field: (getter, java_type) for java_type, getter, field in GETTER_RE.findall(source)}
+    setters = {field: setter for setter, _, _, field in SETTER_RE.findall(source)}
+
+    def resolve(java_type):
+        def qualify(match):
+            identifier = match.group(0)
+            if identifier in enums:
+                return name + "." + identifier
+            if identifier in JAVA_LANG or "." in identifier:
+                return identifier
+            return imports.get(identifier, identifier)
+        return IDENTIFIER_RE.sub(qualify, java_type.replace(" ", "")).replace(",", ", ")
+
+    fields = []
+    for constant, java_type, field in FIELD_RE.findall(source):
+        if constant not in constants or field not in getters or field not in setters:
+            print("skip %s: no serialized name, getter or setter for %s" % (name, field), file=sys.stderr)
+            return None
+        fields.append({
+            "json": constants[constant],
+            "type": resolve(java_type),
+            "getter": getters[field][0],
+            "setter": setters[field],
+        })
+    return {"name": name, "fields": fields, "package": own_package}
+
+
+def adapter_expression(java_type):
+    if "<" in java_type:
+        return "gson.getAdapter(new TypeToken<%s>() {})" % java_type
+    return "gson.getAdapter(%s.class)" % java_type
+
+
+def generate_adapter(model):
+    name = model["name"]
+    types = []
+    for field in model["fields"]:
+        if field["type"] not in types:
+            types.append(field["type"])
+    adapter_names = {java_type: "adapter%d" % i for i, java_type in enumerate(types)}
+
+    lines = []
+    emit = lines.append
+    emit("    static final class %sTypeAdapter extends TypeAdapter<%s> {" % (name, name))
+    emit("")
+    for java_type in types:
+        emit("        private final TypeAdapter<%s> %s;" % (java_type, adapter_names[java_type]))
+    if types:
+        emit("")
+    emit("        %sTypeAdapter(Gson gson) {" % name)
+    for java_type in types:
+        emit("            this.%s = %s;" % (adapter_names[java_type], adapter_expression(java_type)))
+    emit("        }")
+    emit("")
+    emit("        @Override")
+    emit("        public void write(JsonWriter out, %s value) throws IOException {" % name)
+    emit("            if (value == null) {")
+    emit("                out.nullValue();")
+    emit("                return;")
+    emit("            }")
+    emit("            out.beginObject();")
+    for i, field in enumerate(model["fields"]):
+        variable = "v%d" % i
+        emit("            %s %s = value.%s();" % (field["type"], variable, field["getter"]))
+        emit("            if (%s != null) {" % variable)
+        if field["type"] in DIRECT_WRITE:
+            emit("                out.name(\"%s\").value(%s);" % (field["json"], variable))
+        else:
+            emit("                out.name(\"%s\");" % field["json"])
+            emit("                %s.write(out, %s);" % (adapter_names[field["type"]], variable))
+        emit("            } else if (out.getSerializeNulls()) {")
+        emit("                out.name(\"%s\").nullValue();" % field["json"])
+        emit("            }")
+    emit("            out.endObject();")
+    emit("        }")
+    emit("")
+    emit("        @Override")
+    emit("        public %s read(JsonReader in) throws IOException {" % name)
+    emit("            if (in.peek() == JsonToken.NULL) {")
+    emit("                in.nextNull();")
+    emit("                return null;")
+    emit("            }")
+    emit("            %s value = new %s();" % (name, name))
+    emit("            in.beginObject();")
+    emit("            while (in.hasNext()) {")
+    emit("                switch (in.nextName()) {")
+    for field in model["fields"]:
+        emit("                    case \"%s\":" % field["json"])
+        emit("                        value.%s(%s.read(in));" % (field["setter"], adapter_names[field["type"]]))
+        emit("                        break;")
+    emit("                    default:")
+    emit("                        in.skipValue();")
+    emit("                }")
+    emit("            }")
+    emit("            in.endObject();")
+    emit("            return value;")
+    emit("        }")
+    emit("    }")
+    return "\n".join(lines)
+
+
+def generate_factory(directory):
+    models = []
+    for file_name in sorted(os.listdir(directory)):
+        if file_name.endswith(".java") and not file_name.endswith("TypeAdapterFactory.java"):
+            model = parse_model(os.path.join(directory, file_name))
+            if model is not None:
+                models.append(model)
+    if not models:
+        print("no models found in %s" % directory, file=sys.stderr)
+        return
+    package = models[0]["package"]
+    # io.functionmesh.compute.functions.models -> FunctionsTypeAdapterFactory
+    factory = package.split(".")[-2].capitalize() + "TypeAdapterFactory"
+
+    out = []
+    out.append("package %s;" % package)
+    out.append("")
+    out.append("import com.google.gson.Gson;")
+    out.append("import com.google.gson.TypeAdapter;")
+    out.append("import com.google.gson.TypeAdapterFactory;")
+    out.append("import com.google.gson.reflect.TypeToken;")
+    out.append("import com.google.gson.stream.JsonReader;")
+    out.append("import com.google.gson.stream.JsonToken;")
+    out.append("import com.google.gson.stream.JsonWriter;")
+    out.append("import java.io.IOException;")
+    out.append("import java.util.HashMap;")
+    out.append("import java.util.Map;")
+    out.append("import java.util.function.Function;")
+    out.append("")
+    out.append("/**")
+    out.append(" * Streaming type adapters of the models in this package, which (de)serialize them without reflection.")
+    out.append(" *")
+    out.append(" * <p>Generated by scripts/crd-model-gen/generate-type-adapters.py, do not edit.")
+    out.append(" */")
+    out.append("public class %s implements TypeAdapterFactory {" % factory)
+    out.append("")
+    out.append("    private static final Map<Class<?>, Function<Gson, TypeAdapter<?>>> ADAPTERS = new HashMap<>();")
+    out.append("")
+    out.append("    static {")
+    for model in models:
+        out.append("        ADAPTERS.put(%s.class, %sTypeAdapter::new);" % (model["name"], model["name"]))
+    out.append("    }")
+    out.append("")
+    out.append("    @Override")
+    out.append("    @SuppressWarnings(\"unchecked\")")
+    out.append("    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {")
+    out.append("        Function<Gson, TypeAdapter<?>> adapter = ADAPTERS.get(type.getRawType());")
+    out.append("        return adapter != null ? (TypeAdapter<T>) adapter.apply(gson) : null;")
+    out.append("    }")
+    for model in models:
+        out.append("")
+        out.append(generate_adapter(model))
+    out.append("}")
+    out.append("")
+
+    path = os.path.join(directory, factory + ".java")
+    with open(path, "w") as f:
+        f.write("\n".join(out))
+    print("generated %s with %d type adapters" % (path, len(models)))
+
+
+if __name__ == "__main__":
+    if len(sys.argv) < 2:
+        print("usage: %s <models directory>..." % sys.argv[0], file=sys.stderr)
+        sys.exit(1)
+    for models_directory in sys.argv[1:]:
+        generate_factory(models_directory)
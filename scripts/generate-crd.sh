@@ -91,6 +91,12 @@ docker run \
 cp -r $GEN_DIR/src/main/java/io/functionmesh/compute/* $DEST_DIR/src/main/java/io/functionmesh/compute/
 popd
 
+# Generate the reflection free gson type adapters of the models
+python3 ${DEST_DIR}/scripts/crd-model-gen/generate-type-adapters.py \
+  ${DEST_DIR}/src/main/java/io/functionmesh/compute/functions/models \
+  ${DEST_DIR}/src/main/java/io/functionmesh/compute/sources/models \
+  ${DEST_DIR}/src/main/java/io/functionmesh/compute/sinks/models
+
 # cleanup
 docker rmi ${IMAGE_NAME}:${IMAGE_TAG}
 docker rmi ghcr.io/yue9944882/crd-model-gen-base:v1.0.0
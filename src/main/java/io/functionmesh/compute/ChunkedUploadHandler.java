@@ -0,0 +1,242 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.functionmesh.compute;
+
+import com.google.common.hash.Hashing;
+import io.functionmesh.compute.util.CodecUtil;
+import io.functionmesh.compute.util.PackageManagementServiceUtil;
+import io.functionmesh.compute.worker.ChunkedUploadManager;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.servlet.ServletConfig;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.pulsar.client.admin.PulsarAdmin;
+import org.apache.pulsar.client.admin.PulsarAdminBuilder;
+import org.apache.pulsar.client.api.AuthenticationFactory;
+import org.apache.pulsar.client.api.PulsarClientException;
+import org.apache.pulsar.common.util.RestException;
+import org.eclipse.jetty.http.HttpHeader;
+
+/**
+ * Routes of the resumable chunked package uploads served by {@link MeshWorkerServiceHandler}, see
+ * {@link ChunkedUploadManager} for the protocol.
+ *
+ * <pre>
+ * POST   /admin/v3/{functions|sinks|sources}/{tenant}/{namespace}/{name}/uploads?fileName=..&amp;size=..
+ * GET    /admin/v3/{functions|sinks|sources}/{tenant}/{namespace}/{name}/uploads/{sessionId}
+ * PUT    /admin/v3/{functions|sinks|sources}/{tenant}/{namespace}/{name}/uploads/{sessionId}?offset=..&amp;checksum=..
+ * POST   /admin/v3/{functions|sinks|sources}/{tenant}/{namespace}/{name}/uploads/{sessionId}/commit
+ * DELETE /admin/v3/{functions|sinks|sources}/{tenant}/{namespace}/{name}/uploads/{sessionId}
+ * </pre>
+ *
+ * <p>A session is only visible to the caller which opened it. The commit uploads the package to the package
+ * service with the credentials of the caller, so the broker authorizes it like any other package upload.
+ */
+@Slf4j
+public class ChunkedUploadHandler implements Closeable {
+
+    private static final String PATH_PREFIX = "/admin/v3/";
+
+    private static final String UPLOADS = "uploads";
+
+    private static final String COMMIT = "commit";
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private static final String DEFAULT_UPLOAD_DIRECTORY = "mesh-worker-uploads";
+
+    /**
+     * Create the pulsar admin a commit uploads the package with.
+     */
+    interface AdminFactory {
+        PulsarAdmin create(String authorization) throws PulsarClientException;
+    }
+
+    private final ChunkedUploadManager manager;
+
+    private final AdminFactory adminFactory;
+
+    ChunkedUploadHandler(ChunkedUploadManager manager, AdminFactory adminFactory) {
+        this.manager = manager;
+        this.adminFactory = adminFactory;
+    }
+
+    static ChunkedUploadHandler fromConfig(ServletConfig config) throws IOException {
+        String pulsarWebServiceUrl = config.getInitParameter("pulsarWebServiceUrl");
+        if (StringUtils.isEmpty(pulsarWebServiceUrl)) {
+            throw new IllegalArgumentException("pulsarWebServiceUrl is required by chunked uploads");
+        }
+        String tlsTrustCertsFilePath = config.getInitParameter("pulsarTlsTrustCertsFilePath");
+        String value = config.getInitParameter("chunkedUploadDirectory");
+        ChunkedUploadManager manager = new ChunkedUploadManager(value != null ? Paths.get(value)
+                : Paths.get(System.getProperty("java.io.tmpdir"), DEFAULT_UPLOAD_DIRECTORY),
+                Long.parseLong(getInitParameter(config, "chunkedUploadSessionTimeoutMs", "3600000")),
+                Integer.parseInt(getInitParameter(config, "maxChunkedUploadSessions", "0")));
+        return new ChunkedUploadHandler(manager, authorization -> {
+            PulsarAdminBuilder builder = PulsarAdmin.builder().serviceHttpUrl(pulsarWebServiceUrl);
+            if (tlsTrustCertsFilePath != null) {
+                builder.tlsTrustCertsFilePath(tlsTrustCertsFilePath);
+            }
+            if (authorization != null && authorization.startsWith(BEARER_PREFIX)) {
+                builder.authentication(AuthenticationFactory.token(
+                        authorization.substring(BEARER_PREFIX.length())));
+            }
+            return builder.build();
+        });
+    }
+
+    private static String getInitParameter(ServletConfig config, String name, String defaultValue) {
+        String value = config.getInitParameter(name);
+        return value != null ? value : defaultValue;
+    }
+
+    /**
+     * Serve a chunked upload request.
+     *
+     * @return false if the request is not a chunked upload request
+     */
+    public boolean serve(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String requestUri = request.getRequestURI();
+        if (requestUri == null || !requestUri.startsWith(PATH_PREFIX)) {
+            return false;
+        }
+        // {type}/{tenant}/{namespace}/{name}/uploads[/{sessionId}[/commit]]
+        String[] segments = StringUtils.split(requestUri.substring(PATH_PREFIX.length()), '/');
+        if (segments.length < 5 || segments.length > 7 || !UPLOADS.equals(segments[4])) {
+            return false;
+        }
+        String packageType = getPackageType(segments[0]);
+        if (packageType == null || (segments.length == 7 && !COMMIT.equals(segments[6]))) {
+            return false;
+        }
+        String tenant = segments[1];
+        String namespace = segments[2];
+        String componentName = segments[3];
+        String authorization = request.getHeader(HttpHeader.AUTHORIZATION.asString());
+        String owner = Hashing.sha256().hashString(StringUtils.defaultString(authorization),
+                StandardCharsets.UTF_8).toString();
+        String method = request.getMethod();
+        try {
+            if (segments.length == 5) {
+                if (!"POST".equals(method)) {
+                    throw new RestException(javax.ws.rs.core.Response.Status.METHOD_NOT_ALLOWED,
+                            "Method " + method + " is not allowed");
+                }
+                writeSession(response, manager.createSession(packageType, tenant, namespace, componentName, owner,
+                        request.getParameter("fileName"), parseLong(request, "size")));
+                return true;
+            }
+            ChunkedUploadManager.UploadSession session = manager.getSession(segments[5]);
+            if (!session.belongsTo(packageType, tenant, namespace, componentName, owner)) {
+                throw new RestException(javax.ws.rs.core.Response.Status.NOT_FOUND,
+                        String.format("Upload session %s does not exist", segments[5]));
+            }
+            if (segments.length == 7 && "POST".equals(method)) {
+                commit(response, session, authorization);
+            } else if (segments.length == 6 && "GET".equals(method)) {
+                writeSession(response, session);
+            } else if (segments.length == 6 && "PUT".equals(method)) {
+                writeSession(response, manager.appendChunk(session.getSessionId(), parseLong(request, "offset"),
+                        parseLong(request, "checksum"), request.getInputStream()));
+            } else if (segments.length == 6 && "DELETE".equals(method)) {
+                manager.abort(session.getSessionId());
+                response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+            } else {
+                throw new RestException(javax.ws.rs.core.Response.Status.METHOD_NOT_ALLOWED,
+                        "Method " + method + " is not allowed");
+            }
+        } catch (RestException e) {
+            response.sendError(e.getResponse().getStatus(), e.getMessage());
+        } catch (IOException e) {
+            // the client resumes from the received bytes of the session
+            log.warn("{}/{}/{} Failed to serve chunked upload request {} {}", tenant, namespace, componentName,
+                    method, requestUri, e);
+            response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, e.getMessage());
+        }
+        return true;
+    }
+
+    private void commit(HttpServletResponse response, ChunkedUploadManager.UploadSession session,
+                        String authorization) throws IOException {
+        String packageURL;
+        try (PulsarAdmin admin = adminFactory.create(authorization)) {
+            packageURL = manager.commit(session.getSessionId(), admin);
+        } catch (RestException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("{}/{}/{} Failed to commit upload session {}", session.getTenant(), session.getNamespace(),
+                    session.getComponentName(), session.getSessionId(), e);
+            throw new RestException(javax.ws.rs.core.Response.Status.INTERNAL_SERVER_ERROR, e.getMessage());
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("packageUrl", packageURL);
+        writeJson(response, body);
+    }
+
+    private static void writeSession(HttpServletResponse response, ChunkedUploadManager.UploadSession session)
+            throws IOException {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("sessionId", session.getSessionId());
+        body.put("fileName", session.getFileName());
+        body.put("totalSize", session.getTotalSize());
+        body.put("receivedBytes", session.getReceivedBytes());
+        writeJson(response, body);
+    }
+
+    private static void writeJson(HttpServletResponse response, Map<String, Object> body) throws IOException {
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType("application/json");
+        response.getOutputStream().write(CodecUtil.getJsonMapper().writeValueAsBytes(body));
+    }
+
+    private static long parseLong(HttpServletRequest request, String name) {
+        String value = request.getParameter(name);
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new RestException(javax.ws.rs.core.Response.Status.BAD_REQUEST,
+                    String.format("Invalid %s: %s", name, value));
+        }
+    }
+
+    private static String getPackageType(String componentType) {
+        switch (componentType) {
+            case "functions":
+                return PackageManagementServiceUtil.PACKAGE_TYPE_FUNCTION;
+            case "sinks":
+                return PackageManagementServiceUtil.PACKAGE_TYPE_SINK;
+            case "sources":
+                return PackageManagementServiceUtil.PACKAGE_TYPE_SOURCE;
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    public void close() {
+        manager.close();
+    }
+}
@@ -0,0 +1,314 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.functionmesh.compute;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import com.google.gson.reflect.TypeToken;
+import io.kubernetes.client.openapi.ApiClient;
+import io.kubernetes.client.openapi.apis.CustomObjectsApi;
+import io.kubernetes.client.util.Watch;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpMethod;
+import org.eclipse.jetty.http.HttpStatus;
+
+/**
+ * Read-through cache of FunctionMesh GET and list responses proxied by {@link MeshWorkerServiceHandler}.
+ *
+ * <p>Entries are invalidated per namespace by a watch on the FunctionMesh resources, and are only served while
+ * that watch is established. Requests for a specific {@code resourceVersion}, watches and paginated lists are
+ * always forwarded to the kube-apiserver, while {@code resourceVersion=0} and unset resource versions may be
+ * answered from memory. Cached responses carry an {@code ETag} so polling clients can get a 304.
+ */
+@Slf4j
+public class FunctionMeshResponseCache implements Closeable {
+
+    static final String RECORDER_ATTRIBUTE = FunctionMeshResponseCache.class.getName() + ".recorder";
+
+    private static final String API_GROUP = "compute.functionmesh.io";
+
+    private static final String API_VERSION = "v1alpha1";
+
+    private static final String PLURAL = "functionmeshes";
+
+    private static final int WATCH_TIMEOUT_SECONDS = 300;
+
+    private static final long WATCH_RETRY_INTERVAL_MS = 5000;
+
+    private static final Type WATCH_EVENT_TYPE = new TypeToken<Watch.Response<Map<String, Object>>>() {
+    }.getType();
+
+    private final Cache<Key, CachedResponse> responses;
+
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    private final int maxBodySize;
+
+    private volatile boolean watching;
+
+    private volatile boolean closed;
+
+    private ExecutorService watchExecutor;
+
+    public FunctionMeshResponseCache(int maxEntries, long ttlMs, int maxBodySize) {
+        this.responses = CacheBuilder.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttlMs, TimeUnit.MILLISECONDS)
+                .build();
+        this.maxBodySize = maxBodySize;
+    }
+
+    /**
+     * Start watching FunctionMesh resources in all namespaces, the cache serves nothing before the watch is up.
+     */
+    public void startWatch(ApiClient apiClient) {
+        watchExecutor = Executors.newSingleThreadExecutor(
+                new DefaultThreadFactory("function-mesh-proxy-cache-watcher", true));
+        watchExecutor.execute(() -> watchLoop(apiClient));
+    }
+
+    private void watchLoop(ApiClient apiClient) {
+        CustomObjectsApi customObjectsApi = new CustomObjectsApi(apiClient);
+        String resourceVersion = null;
+        while (!closed) {
+            try (Watch<Map<String, Object>> watch = Watch.createWatch(apiClient,
+                    customObjectsApi.listClusterCustomObjectCall(API_GROUP, API_VERSION, PLURAL, null, null, null,
+                            null, null, resourceVersion, WATCH_TIMEOUT_SECONDS, true, null),
+                    WATCH_EVENT_TYPE)) {
+                // events may have been missed while the watch was down
+                invalidateAll();
+                watching = true;
+                for (Watch.Response<Map<String, Object>> event : watch) {
+                    if ("ERROR".equals(event.type)) {
+                        // most likely 410 Gone, list again from the latest version
+                        log.warn("FunctionMesh watch failed: {}", event.status);
+                        resourceVersion = null;
+                        break;
+                    }
+                    Map<?, ?> metadata = event.object == null ? null : (Map<?, ?>) event.object.get("metadata");
+                    if (metadata == null) {
+                        continue;
+                    }
+                    resourceVersion = (String) metadata.get("resourceVersion");
+                    if (!"BOOKMARK".equals(event.type)) {
+                        invalidateNamespace((String) metadata.get("namespace"));
+                    }
+                }
+            } catch (Exception e) {
+                watching = false;
+                if (closed) {
+                    return;
+                }
+                log.warn("FunctionMesh watch disconnected, retry in {} ms", WATCH_RETRY_INTERVAL_MS, e);
+                try {
+                    Thread.sleep(WATCH_RETRY_INTERVAL_MS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Answer the request from the cache.
+     *
+     * @return true if the response has been written, false if the request must be proxied; in that case a
+     * cacheable response is recorded through {@link #record} and {@link #complete}
+     */
+    public boolean serve(HttpServletRequest request, String namespace, HttpServletResponse response)
+            throws IOException {
+        if (!watching || !isCacheable(request)) {
+            return false;
+        }
+        Key key = new Key(namespace, request.getRequestURI(), request.getQueryString(),
+                request.getHeader(HttpHeader.ACCEPT.asString()),
+                request.getHeader(HttpHeader.ACCEPT_ENCODING.asString()));
+        CachedResponse cached = responses.getIfPresent(key);
+        if (cached == null) {
+            request.setAttribute(RECORDER_ATTRIBUTE, new Recorder(key, generation(namespace).get()));
+            return false;
+        }
+        response.setHeader(HttpHeader.ETAG.asString(), cached.getEtag());
+        if (matches(request.getHeaders(HttpHeader.IF_NONE_MATCH.asString()), cached.getEtag())) {
+            response.setStatus(HttpStatus.NOT_MODIFIED_304);
+            return true;
+        }
+        response.setStatus(HttpStatus.OK_200);
+        if (cached.getContentType() != null) {
+            response.setContentType(cached.getContentType());
+        }
+        if (cached.getContentEncoding() != null) {
+            response.setHeader(HttpHeader.CONTENT_ENCODING.asString(), cached.getContentEncoding());
+        }
+        response.setContentLength(cached.getBody().length);
+        response.getOutputStream().write(cached.getBody());
+        return true;
+    }
+
+    /**
+     * Copy proxied response content of a cacheable request.
+     */
+    public void record(HttpServletRequest request, byte[] buffer, int offset, int length) {
+        Recorder recorder = (Recorder) request.getAttribute(RECORDER_ATTRIBUTE);
+        if (recorder == null || recorder.body == null) {
+            return;
+        }
+        if (recorder.body.size() + length > maxBodySize) {
+            recorder.body = null;
+            return;
+        }
+        recorder.body.write(buffer, offset, length);
+    }
+
+    /**
+     * Cache the recorded response unless the namespace has changed since the request was forwarded.
+     */
+    public void complete(HttpServletRequest request, Response serverResponse) {
+        Recorder recorder = (Recorder) request.getAttribute(RECORDER_ATTRIBUTE);
+        if (recorder == null || recorder.body == null || serverResponse.getStatus() != HttpStatus.OK_200) {
+            return;
+        }
+        byte[] body = recorder.body.toByteArray();
+        String etag = "\"" + Hashing.murmur3_128().hashBytes(body) + "\"";
+        CachedResponse cached = new CachedResponse(body, etag,
+                serverResponse.getHeaders().get(HttpHeader.CONTENT_TYPE),
+                serverResponse.getHeaders().get(HttpHeader.CONTENT_ENCODING));
+        String namespace = recorder.key.getNamespace();
+        responses.put(recorder.key, cached);
+        if (generation(namespace).get() != recorder.generation) {
+            // raced with an invalidation, the response may be stale
+            responses.invalidate(recorder.key);
+        }
+    }
+
+    public void invalidateNamespace(String namespace) {
+        if (namespace == null) {
+            return;
+        }
+        generation(namespace).incrementAndGet();
+        responses.asMap().keySet().removeIf(key -> namespace.equals(key.getNamespace()));
+    }
+
+    public void invalidateAll() {
+        generations.values().forEach(AtomicLong::incrementAndGet);
+        responses.invalidateAll();
+    }
+
+    void setWatching(boolean watching) {
+        this.watching = watching;
+    }
+
+    long size() {
+        return responses.size();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        watching = false;
+        if (watchExecutor != null) {
+            watchExecutor.shutdownNow();
+        }
+        responses.invalidateAll();
+    }
+
+    private AtomicLong generation(String namespace) {
+        return generations.computeIfAbsent(namespace, ns -> new AtomicLong());
+    }
+
+    static boolean isCacheable(HttpServletRequest request) {
+        if (!HttpMethod.GET.is(request.getMethod()) || request.getRequestURI().contains("/.")) {
+            return false;
+        }
+        String watch = request.getParameter("watch");
+        if (watch != null && !"false".equals(watch) && !"0".equals(watch)) {
+            return false;
+        }
+        String resourceVersion = request.getParameter("resourceVersion");
+        if (resourceVersion != null && !resourceVersion.isEmpty() && !"0".equals(resourceVersion)) {
+            return false;
+        }
+        return request.getParameter("resourceVersionMatch") == null && request.getParameter("continue") == null;
+    }
+
+    private static boolean matches(Enumeration<String> ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        while (ifNoneMatch.hasMoreElements()) {
+            for (String candidate : ifNoneMatch.nextElement().split(",")) {
+                candidate = candidate.trim();
+                if (candidate.startsWith("W/")) {
+                    candidate = candidate.substring(2);
+                }
+                if ("*".equals(candidate) || etag.equals(candidate)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Data
+    static class Key {
+        private final String namespace;
+        private final String requestUri;
+        private final String query;
+        private final String accept;
+        private final String acceptEncoding;
+    }
+
+    @Data
+    static class CachedResponse {
+        private final byte[] body;
+        private final String etag;
+        private final String contentType;
+        private final String contentEncoding;
+    }
+
+    private static class Recorder {
+        private final Key key;
+        private final long generation;
+        private ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        Recorder(Key key, long generation) {
+            this.key = key;
+            this.generation = generation;
+        }
+    }
+}
@@ -18,12 +18,7 @@
  */
 package io.functionmesh.compute;
 
-import io.netty.util.concurrent.DefaultThreadFactory;
-import java.io.IOException;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.bookkeeper.common.util.OrderedExecutor;
 import org.apache.pulsar.broker.PulsarServerException;
 import org.apache.pulsar.broker.ServiceConfiguration;
 import org.apache.pulsar.broker.authentication.AuthenticationService;
@@ -32,12 +27,8 @@ import org.apache.pulsar.broker.resources.PulsarResources;
 import org.apache.pulsar.common.configuration.PulsarConfigurationLoader;
 import org.apache.pulsar.functions.worker.ErrorNotifier;
 import org.apache.pulsar.functions.worker.WorkerConfig;
-import org.apache.pulsar.functions.worker.WorkerService;
 import org.apache.pulsar.functions.worker.rest.WorkerServer;
 import org.apache.pulsar.metadata.api.extended.MetadataStoreExtended;
-import org.apache.pulsar.zookeeper.GlobalZooKeeperCache;
-import org.apache.pulsar.zookeeper.ZooKeeperClientFactory;
-import org.apache.pulsar.zookeeper.ZookeeperBkClientFactoryImpl;
 
 /**
  * This class for test.
@@ -45,17 +36,10 @@ import org.apache.pulsar.zookeeper.ZookeeperBkClientFactoryImpl;
 @Slf4j
 public class MeshWorker {
 
-    private final OrderedExecutor orderedExecutor =
-            OrderedExecutor.newBuilder().numThreads(8).name("zk-cache-ordered").build();
-    private final ScheduledExecutorService cacheExecutor = Executors.newScheduledThreadPool(10,
-            new DefaultThreadFactory("zk-cache-callback"));
     private final WorkerConfig workerConfig;
-    private final WorkerService workerService;
+    private final MeshWorkerService workerService;
     private final ErrorNotifier errorNotifier;
-    private ZooKeeperClientFactory zkClientFactory = null;
-    private GlobalZooKeeperCache globalZkCache;
     private PulsarResources pulsarResources;
-    private MetadataStoreExtended configMetadataStore;
     private WorkerServer server;
 
 
@@ -67,8 +51,9 @@ public class MeshWorker {
 
     protected void start() throws Exception {
         workerService.initAsStandalone(workerConfig);
-        workerService.start(getAuthenticationService(), getAuthorizationService(), errorNotifier);
-        server = new WorkerServer(workerService, getAuthenticationService());
+        AuthenticationService authenticationService = getAuthenticationService();
+        workerService.start(authenticationService, getAuthorizationService(), errorNotifier);
+        server = new WorkerServer(workerService, authenticationService);
         server.start();
         log.info("/** Started worker server on port={} **/", this.workerConfig.getWorkerPort());
 
@@ -80,38 +65,16 @@ public class MeshWorker {
         }
     }
 
-    public ZooKeeperClientFactory getZooKeeperClientFactory() {
-        if (zkClientFactory == null) {
-            zkClientFactory = new ZookeeperBkClientFactoryImpl(orderedExecutor);
-        }
-        // Return default factory
-        return zkClientFactory;
-    }
-
     private AuthorizationService getAuthorizationService() throws PulsarServerException {
         if (this.workerConfig.isAuthorizationEnabled()) {
-            log.info("starting configuration cache service");
-
-            this.globalZkCache = new GlobalZooKeeperCache(getZooKeeperClientFactory(),
-                    (int) workerConfig.getZooKeeperSessionTimeoutMillis(),
-                    workerConfig.getZooKeeperOperationTimeoutSeconds(),
-                    workerConfig.getConfigurationStoreServers(),
-                    orderedExecutor, cacheExecutor,
-                    workerConfig.getZooKeeperOperationTimeoutSeconds());
-            try {
-                this.globalZkCache.start();
-            } catch (IOException e) {
-                throw new PulsarServerException(e);
+            // the configuration metadata store opened by the worker service, which also watches policy changes
+            MetadataStoreExtended configMetadataStore = workerService.getConfigurationMetadataStore();
+            if (configMetadataStore == null) {
+                throw new PulsarServerException("No configuration store servers configured for authorization");
             }
 
-            try {
-                configMetadataStore = PulsarResources.createMetadataStore(workerConfig.getConfigurationStoreServers(),
-                        (int) workerConfig.getZooKeeperSessionTimeoutMillis());
-            } catch (IOException e) {
-                throw new PulsarServerException(e);
-            }
-
-            pulsarResources = new PulsarResources(null, configMetadataStore);
+            pulsarResources = new PulsarResources(null, configMetadataStore,
+                    workerConfig.getZooKeeperOperationTimeoutSeconds());
             return new AuthorizationService(getServiceConfiguration(), this.pulsarResources);
         }
         return null;
@@ -132,12 +95,5 @@ public class MeshWorker {
             this.server.stop();
         }
         workerService.stop();
-        if (this.globalZkCache != null) {
-            try {
-                this.globalZkCache.close();
-            } catch (IOException e) {
-                log.warn("Failed to close global zk cache ", e);
-            }
-        }
     }
 }
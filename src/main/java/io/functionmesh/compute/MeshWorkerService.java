@@ -22,8 +22,16 @@ import io.functionmesh.compute.models.MeshWorkerServiceCustomConfig;
 import io.functionmesh.compute.rest.api.FunctionsImpl;
 import io.functionmesh.compute.rest.api.SinksImpl;
 import io.functionmesh.compute.rest.api.SourcesImpl;
+import io.functionmesh.compute.util.CodecUtil;
+import io.functionmesh.compute.util.KubernetesTlsContext;
 import io.functionmesh.compute.util.KubernetesUtils;
+import io.functionmesh.compute.worker.AuthorizationDecisionCache;
+import io.functionmesh.compute.worker.ConnectorConfigDefinitionCache;
+import io.functionmesh.compute.worker.ConnectorImagePrePuller;
 import io.functionmesh.compute.worker.MeshConnectorsManager;
+import io.functionmesh.compute.worker.PackageUploadLimiter;
+import io.functionmesh.compute.worker.PolicyCacheInvalidator;
+import io.functionmesh.compute.worker.TenantInfoCache;
 import io.kubernetes.client.openapi.ApiClient;
 import io.kubernetes.client.openapi.apis.AppsV1Api;
 import io.kubernetes.client.openapi.apis.CoreV1Api;
@@ -31,8 +39,12 @@ import io.kubernetes.client.openapi.apis.CustomObjectsApi;
 import io.kubernetes.client.util.ClientBuilder;
 import io.kubernetes.client.util.Config;
 import io.kubernetes.client.util.KubeConfig;
+import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
@@ -44,6 +56,7 @@ import org.apache.pulsar.broker.resources.PulsarResources;
 import org.apache.pulsar.client.admin.PulsarAdmin;
 import org.apache.pulsar.client.api.PulsarClient;
 import org.apache.pulsar.common.conf.InternalConfigurationData;
+import org.apache.pulsar.common.policies.data.TenantInfo;
 import org.apache.pulsar.common.util.SimpleTextOutputStream;
 import org.apache.pulsar.functions.runtime.RuntimeUtils;
 import org.apache.pulsar.functions.runtime.kubernetes.KubernetesRuntimeFactoryConfig;
@@ -57,6 +70,8 @@ import org.apache.pulsar.functions.worker.service.api.FunctionsV2;
 import org.apache.pulsar.functions.worker.service.api.Sinks;
 import org.apache.pulsar.functions.worker.service.api.Sources;
 import org.apache.pulsar.functions.worker.service.api.Workers;
+import org.apache.pulsar.metadata.api.MetadataStore;
+import org.apache.pulsar.metadata.api.extended.MetadataStoreExtended;
 
 /**
  * Function mesh proxy implement.
@@ -84,8 +99,15 @@ public class MeshWorkerService implements WorkerService {
     private MeshWorkerServiceCustomConfig meshWorkerServiceCustomConfig;
     private AuthenticationService authenticationService;
     private AuthorizationService authorizationService;
+    private AuthorizationDecisionCache authorizationDecisionCache;
+    private TenantInfoCache tenantInfoCache;
     private MeshConnectorsManager connectorsManager;
+    private ConnectorConfigDefinitionCache connectorConfigDefinitionCache;
+    private ConnectorImagePrePuller connectorImagePrePuller;
+    private PackageUploadLimiter packageUploadLimiter;
     private ServiceConfiguration brokerConfig;
+    // opened by a standalone worker with authorization, shared with its authorization service
+    private MetadataStoreExtended configurationMetadataStore;
 
     public MeshWorkerService() {
 
@@ -128,6 +150,22 @@ public class MeshWorkerService implements WorkerService {
     @Override
     public void initAsStandalone(WorkerConfig workerConfig) throws Exception {
         this.init(workerConfig);
+        if (!workerConfig.isAuthorizationEnabled()) {
+            // no authorization data is cached
+            return;
+        }
+        if (StringUtils.isNotEmpty(workerConfig.getConfigurationStoreServers())) {
+            this.configurationMetadataStore = newConfigurationMetadataStore(workerConfig);
+            this.watchPolicyChanges(this.configurationMetadataStore);
+        } else {
+            log.warn("No configuration store servers, cached authorization data is not invalidated on policy "
+                    + "changes and expires after its TTL");
+        }
+    }
+
+    MetadataStoreExtended newConfigurationMetadataStore(WorkerConfig workerConfig) throws IOException {
+        return PulsarResources.createMetadataStore(workerConfig.getConfigurationStoreServers(),
+                (int) workerConfig.getZooKeeperSessionTimeoutMillis());
     }
 
     @Override
@@ -136,6 +174,9 @@ public class MeshWorkerService implements WorkerService {
                              InternalConfigurationData internalConf) throws Exception {
         this.brokerConfig = brokerConfig;
         this.init(workerConfig);
+        if (pulsarResources != null) {
+            this.watchPolicyChanges(pulsarResources.getTenantResources().getStore());
+        }
     }
 
     public void initInBroker(ServiceConfiguration brokerConfig,
@@ -144,6 +185,9 @@ public class MeshWorkerService implements WorkerService {
                              InternalConfigurationData internalConfigurationData) throws Exception {
         this.brokerConfig = brokerConfig;
         this.init(workerConfig);
+        if (pulsarResources != null) {
+            this.watchPolicyChanges(pulsarResources.getTenantResources().getStore());
+        }
     }
 
     public void init(WorkerConfig workerConfig) throws Exception {
@@ -157,6 +201,8 @@ public class MeshWorkerService implements WorkerService {
                 workerConfig.getFunctionRuntimeFactoryConfigs(), KubernetesRuntimeFactoryConfig.class);
         this.meshWorkerServiceCustomConfig = RuntimeUtils.getRuntimeFunctionConfig(
                 workerConfig.getFunctionsWorkerServiceCustomConfigs(), MeshWorkerServiceCustomConfig.class);
+        this.packageUploadLimiter = PackageUploadLimiter.fromConfig(this.meshWorkerServiceCustomConfig);
+        this.authorizationDecisionCache = AuthorizationDecisionCache.fromConfig(this.meshWorkerServiceCustomConfig);
     }
 
     public void validateExternalServices() throws Exception {
@@ -168,23 +214,69 @@ public class MeshWorkerService implements WorkerService {
         }
     }
 
+    /**
+     * Keep the tenant and authorization caches consistent with the tenant and namespace policies stored in
+     * the configuration metadata store.
+     */
+    public void watchPolicyChanges(MetadataStore configurationMetadataStore) {
+        configurationMetadataStore.registerListener(
+                new PolicyCacheInvalidator(this::getTenantInfoCache, this::getAuthorizationDecisionCache));
+        log.info("Watching tenant and namespace policy changes for cache invalidation");
+    }
+
+    private void watchConnectorsCatalog() {
+        MeshWorkerServiceCustomConfig customConfig = this.meshWorkerServiceCustomConfig;
+        if (customConfig != null && StringUtils.isNotEmpty(customConfig.getConnectorsCatalogConfigMap())) {
+            String namespace = StringUtils.isNotEmpty(customConfig.getConnectorsCatalogConfigMapNamespace())
+                    ? customConfig.getConnectorsCatalogConfigMapNamespace() : getJobNamespace();
+            try {
+                ApiClient watchClient = newKubernetesClient();
+                // the watch is a long poll
+                watchClient.setHttpClient(watchClient.getHttpClient().newBuilder()
+                        .readTimeout(0, TimeUnit.SECONDS).build());
+                this.connectorsManager.startWatching(watchClient, namespace,
+                        customConfig.getConnectorsCatalogConfigMap(), customConfig.getConnectorsCatalogConfigMapKey());
+            } catch (IOException e) {
+                log.error("Failed to watch the connector catalog config map, use the local catalog", e);
+            }
+        } else if (customConfig == null || customConfig.isConnectorsCatalogWatchEnabled()) {
+            try {
+                this.connectorsManager.startWatching();
+            } catch (IOException e) {
+                log.warn("Failed to watch the connector catalog, it is only reloaded on request", e);
+            }
+        }
+    }
+
     private void initKubernetesClient() throws IOException {
+        apiClient = newKubernetesClient();
+        coreV1Api = new CoreV1Api(apiClient);
+        appsV1Api = new AppsV1Api(apiClient);
+        customObjectsApi = new CustomObjectsApi(apiClient);
+        CodecUtil.registerCrdTypeAdapters(apiClient);
+        CodecUtil.warmUp(apiClient);
+    }
+
+    private ApiClient newKubernetesClient() throws IOException {
         try {
             if (StringUtils.isNotEmpty(System.getenv(KUBE_CONFIG_ENV))) {
                 String kubeConfigPath = System.getenv(KUBE_CONFIG_ENV);
                 log.info("Initialization kubernetes client from config file: {}", kubeConfigPath);
                 // loading the out-of-cluster config, a kubeconfig from file-system
-                apiClient =
-                        ClientBuilder.kubeconfig(KubeConfig.loadKubeConfig(new FileReader(kubeConfigPath))).build();
+                return ClientBuilder.kubeconfig(KubeConfig.loadKubeConfig(new FileReader(kubeConfigPath))).build();
+            } else if (new File(KubernetesTlsContext.KUBERNETES_CA_CRT_PATH).exists()) {
+                log.info("Initialization in-cluster kubernetes client");
+                // share the hot reloaded cluster trust and the tls sessions with the function mesh proxy
+                return KubernetesTlsContext.getInstance().configure(ClientBuilder.cluster().build());
             } else {
-                apiClient = Config.defaultClient();
+                return Config.defaultClient();
             }
-            coreV1Api = new CoreV1Api(apiClient);
-            appsV1Api = new AppsV1Api(apiClient);
-            customObjectsApi = new CustomObjectsApi(apiClient);
         } catch (java.io.IOException e) {
             log.error("Initialization kubernetes client failed", e);
             throw e;
+        } catch (GeneralSecurityException e) {
+            log.error("Initialization kubernetes client failed", e);
+            throw new IOException(e);
         }
     }
 
@@ -194,7 +286,20 @@ public class MeshWorkerService implements WorkerService {
         this.authenticationService = authenticationService;
         this.authorizationService = authorizationService;
         this.brokerAdmin = clientCreator.newPulsarAdmin(workerConfig.getPulsarWebServiceUrl(), workerConfig);
+        this.tenantInfoCache = new TenantInfoCache(this.brokerAdmin,
+                this.meshWorkerServiceCustomConfig != null
+                        ? this.meshWorkerServiceCustomConfig.getTenantInfoCacheTtlMs() : 0);
         this.connectorsManager = new MeshConnectorsManager();
+        this.connectorConfigDefinitionCache =
+                ConnectorConfigDefinitionCache.fromConfig(workerConfig, this.meshWorkerServiceCustomConfig);
+        this.connectorsManager.addCatalogListener(this.connectorConfigDefinitionCache::refresh);
+        if (this.meshWorkerServiceCustomConfig != null
+                && this.meshWorkerServiceCustomConfig.isConnectorImagePrePullEnabled()) {
+            this.connectorImagePrePuller =
+                    new ConnectorImagePrePuller(appsV1Api, getJobNamespace(), this.meshWorkerServiceCustomConfig);
+            this.connectorsManager.addCatalogListener(this.connectorImagePrePuller::refresh);
+        }
+        this.watchConnectorsCatalog();
         this.validateExternalServices();
         this.isInitialized = true;
         log.info("/** Started mesh worker service **/");
@@ -204,6 +309,22 @@ public class MeshWorkerService implements WorkerService {
         if (null != getBrokerAdmin()) {
             getBrokerAdmin().close();
         }
+        if (null != connectorsManager) {
+            connectorsManager.close();
+        }
+        if (null != connectorConfigDefinitionCache) {
+            connectorConfigDefinitionCache.close();
+        }
+        if (null != connectorImagePrePuller) {
+            connectorImagePrePuller.close();
+        }
+        if (null != configurationMetadataStore) {
+            try {
+                configurationMetadataStore.close();
+            } catch (Exception e) {
+                log.warn("Failed to close configuration metadata store", e);
+            }
+        }
     }
 
     public boolean isInitialized() {
@@ -220,6 +341,10 @@ public class MeshWorkerService implements WorkerService {
         // to do https://github.com/streamnative/function-mesh/issues/56
     }
 
+    public CompletableFuture<TenantInfo> getTenantInfoAsync(String tenant) {
+        return tenantInfoCache.getTenantInfoAsync(tenant);
+    }
+
     public String getJobNamespace() {
         return KubernetesUtils.getNamespace(getMeshWorkerServiceCustomConfig(), this.getFactoryConfig());
     }
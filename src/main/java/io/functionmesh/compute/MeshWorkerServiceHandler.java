@@ -18,23 +18,35 @@
  */
 package io.functionmesh.compute;
 
-import io.functionmesh.compute.util.SecurityUtil;
+import io.functionmesh.compute.util.KubernetesTlsContext;
+import io.kubernetes.client.openapi.ApiClient;
+import io.kubernetes.client.util.ClientBuilder;
+import io.netty.util.concurrent.DefaultThreadFactory;
 import java.io.File;
+import java.io.IOException;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
-import java.security.cert.X509Certificate;
+import java.security.GeneralSecurityException;
 import java.util.concurrent.Executor;
-import javax.net.ssl.SSLContext;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.FileUtils;
 import org.eclipse.jetty.client.HttpClient;
 import org.eclipse.jetty.client.ProtocolHandlers;
 import org.eclipse.jetty.client.RedirectProtocolHandler;
 import org.eclipse.jetty.client.api.Request;
+import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http2.client.HTTP2Client;
+import org.eclipse.jetty.http2.client.http.HttpClientTransportOverHTTP2;
 import org.eclipse.jetty.proxy.ProxyServlet;
+import org.eclipse.jetty.util.Callback;
 import org.eclipse.jetty.util.HttpCookieStore;
 import org.eclipse.jetty.util.ssl.SslContextFactory;
 import org.eclipse.jetty.util.thread.QueuedThreadPool;
@@ -53,10 +65,37 @@ public class MeshWorkerServiceHandler extends ProxyServlet {
 
     private static final String KUBERNETES_SERVICE_PORT = "443";
 
-    private static final String KUBERNETES_CA_CRT_PATH = "/var/run/secrets/kubernetes.io/serviceaccount/ca.crt";
-
     private static final String KUBERNETES_TOKEN_PATH = "/var/run/secrets/kubernetes.io/serviceaccount/token";
 
+    private static final long TOKEN_REFRESH_INTERVAL_SECONDS = 60;
+
+    private static final String DEFAULT_HTTP1_MAX_CONNECTIONS = "256";
+
+    // streams are multiplexed, a few connections are enough for http/2
+    private static final String DEFAULT_HTTP2_MAX_CONNECTIONS = "4";
+
+    private static final long TRUST_RETRY_INTERVAL_MS = 10000;
+
+    private volatile String authorizationHeader;
+
+    private volatile String upstreamBaseUrl;
+
+    private ScheduledExecutorService tokenRefresher;
+
+    private FunctionMeshResponseCache responseCache;
+
+    private ChunkedUploadHandler chunkedUploadHandler;
+
+    // whether the last client created by newHttpClient trusts the cluster CA
+    private boolean lastHttpClientTrusted;
+
+    // requests are rejected until a client trusting the cluster CA is created
+    private volatile boolean trustLoaded;
+
+    private volatile HttpClient trustedClient;
+
+    private long nextTrustRetryMs;
+
     @Override
     protected HttpClient createHttpClient() throws ServletException {
         ServletConfig config = getServletConfig();
@@ -87,7 +126,7 @@ public class MeshWorkerServiceHandler extends ProxyServlet {
 
         value = config.getInitParameter("maxConnections");
         if (value == null) {
-            value = "256";
+            value = isHttp2Enabled() ? DEFAULT_HTTP2_MAX_CONNECTIONS : DEFAULT_HTTP1_MAX_CONNECTIONS;
         }
         httpClient.setMaxConnectionsPerDestination(Integer.parseInt(value));
 
@@ -127,57 +166,148 @@ public class MeshWorkerServiceHandler extends ProxyServlet {
 
     @Override
     protected HttpClient newHttpClient() {
-
         try {
-            X509Certificate[] trustCertificates = SecurityUtil
-                    .loadCertificatesFromPemFile(KUBERNETES_CA_CRT_PATH);
+            // trust is reloaded when the cluster CA is rotated
+            SslContextFactory contextFactory = KubernetesTlsContext.getInstance().newSslContextFactory();
+            HttpClient httpClient = newHttpClient(contextFactory, isHttp2Enabled());
+            lastHttpClientTrusted = true;
+            return httpClient;
+        } catch (Exception e) {
+            log.error("Init http client failed for proxy, function mesh requests are rejected until the "
+                    + "kubernetes CA is loaded", e);
+        }
+
+        // never used to proxy a request, see loadTrustedClient
+        lastHttpClientTrusted = false;
+        return new HttpClient();
+    }
 
-            SSLContext sslCtx = SecurityUtil.createSslContext(
-                    false,
-                    trustCertificates
-            );
+    @Override
+    protected HttpClient getHttpClient() {
+        HttpClient client = trustedClient;
+        return client != null ? client : super.getHttpClient();
+    }
 
+    /**
+     * Create a client trusting the cluster CA if the proxy started without one, at most once every
+     * {@link #TRUST_RETRY_INTERVAL_MS}.
+     */
+    synchronized boolean loadTrustedClient() {
+        if (trustLoaded) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        if (now < nextTrustRetryMs) {
+            return false;
+        }
+        nextTrustRetryMs = now + TRUST_RETRY_INTERVAL_MS;
+        HttpClient client;
+        try {
+            client = createHttpClient();
+        } catch (Exception e) {
+            log.warn("Failed to create the http client for proxy", e);
+            return false;
+        }
+        if (!lastHttpClientTrusted) {
+            stopQuietly(client);
+            return false;
+        }
+        trustedClient = client;
+        trustLoaded = true;
+        log.info("Loaded the kubernetes CA, function mesh requests are proxied again");
+        return true;
+    }
 
-            SslContextFactory contextFactory = new SslContextFactory.Client(true);
-            contextFactory.setSslContext(sslCtx);
+    private static void stopQuietly(HttpClient client) {
+        try {
+            client.stop();
+        } catch (Exception e) {
+            log.warn("Failed to stop the http client for proxy", e);
+        }
+    }
 
+    static HttpClient newHttpClient(SslContextFactory contextFactory, boolean http2) {
+        if (!http2) {
             return new HttpClient(contextFactory);
-        } catch (Exception e) {
-            log.error("Init http client failed for proxy", e);
         }
+        // h2 is negotiated with the kube-apiserver through ALPN
+        return new HttpClient(new HttpClientTransportOverHTTP2(new HTTP2Client()), contextFactory);
+    }
 
-        // return an unauthenticated client, every request will fail.
-        return new HttpClient();
+    /**
+     * Whether the proxy talks HTTP/2 to the kube-apiserver, set by the {@code http2} init parameter.
+     */
+    protected boolean isHttp2Enabled() {
+        ServletConfig config = getServletConfig();
+        return config != null && Boolean.parseBoolean(config.getInitParameter("http2"));
     }
 
     @Override
     protected String rewriteTarget(HttpServletRequest request) {
-        StringBuilder url = new StringBuilder();
-        boolean isFunctionMeshRestRequest = false;
         String requestUri = request.getRequestURI();
-        if (requestUri.startsWith(FUNCTION_MESH_PATH_PREFIX)) {
-            String[] requestUriPath = requestUri.split("/");
-            if (requestUriPath.length >= 7 && requestUriPath[6].equals(FUNCTION_MESH_KEY)) {
-                isFunctionMeshRestRequest = true;
-            }
+        if (!isFunctionMeshRestRequest(requestUri)) {
+            return null;
         }
-        if (isFunctionMeshRestRequest) {
-            String controllerHost = this.getEnvironment(KUBERNETES_SERVICE_HOST);
-            url.append("https://").append(controllerHost).append(":").append(KUBERNETES_SERVICE_PORT)
-                    .append(requestUri);
-            String query = request.getQueryString();
-            if (query != null) {
-                url.append("?").append(query);
+        if (requestUri.contains("/.")) {
+            // resolve dot segments, the resolved path must still be a function mesh path
+            requestUri = URI.create(requestUri).normalize().getRawPath();
+            if (!isFunctionMeshRestRequest(requestUri)) {
+                return null;
             }
+        }
+        String upstream = getUpstreamBaseUrl();
+        if (upstream == null) {
+            return null;
+        }
+        String query = request.getQueryString();
+        if (query == null) {
+            return upstream.concat(requestUri);
+        }
+        return new StringBuilder(upstream.length() + requestUri.length() + query.length() + 1)
+                .append(upstream).append(requestUri).append('?').append(query).toString();
+    }
+
+    /**
+     * The namespace of a path matched by {@link #isFunctionMeshRestRequest(String)}.
+     */
+    static String getNamespace(String requestUri) {
+        int start = FUNCTION_MESH_PATH_PREFIX.length() + 1;
+        return requestUri.substring(start, requestUri.indexOf('/', start));
+    }
 
-            URI rewrittenUrl = URI.create(url.toString()).normalize();
+    /**
+     * Match {@code /apis/compute.functionmesh.io/v1alpha1/namespaces/{namespace}/functionmeshes[/...]} without
+     * splitting the path.
+     */
+    static boolean isFunctionMeshRestRequest(String requestUri) {
+        if (requestUri == null || !requestUri.startsWith(FUNCTION_MESH_PATH_PREFIX)
+                || requestUri.length() <= FUNCTION_MESH_PATH_PREFIX.length()
+                || requestUri.charAt(FUNCTION_MESH_PATH_PREFIX.length()) != '/') {
+            return false;
+        }
+        int keyStart = requestUri.indexOf('/', FUNCTION_MESH_PATH_PREFIX.length() + 1) + 1;
+        if (keyStart == 0 || !requestUri.startsWith(FUNCTION_MESH_KEY, keyStart)) {
+            return false;
+        }
+        int keyEnd = keyStart + FUNCTION_MESH_KEY.length();
+        return keyEnd == requestUri.length() || requestUri.charAt(keyEnd) == '/';
+    }
 
-            if (!validateDestination(rewrittenUrl.getHost(), rewrittenUrl.getPort())) {
+    /**
+     * The scheme, host and port of the kube-apiserver, resolved on the first proxied request.
+     */
+    private String getUpstreamBaseUrl() {
+        String upstream = upstreamBaseUrl;
+        if (upstream == null) {
+            String controllerHost = this.getEnvironment(KUBERNETES_SERVICE_HOST);
+            URI upstreamUri = URI.create("https://" + controllerHost + ":" + KUBERNETES_SERVICE_PORT).normalize();
+            if (!validateDestination(upstreamUri.getHost(), upstreamUri.getPort())) {
                 return null;
             }
-            return rewrittenUrl.toString();
+            upstream = upstreamUri.toString();
+            upstreamBaseUrl = upstream;
         }
-        return null;
+        return upstream;
     }
 
     protected String getEnvironment(String key) {
@@ -185,14 +315,145 @@ public class MeshWorkerServiceHandler extends ProxyServlet {
     }
 
     @Override
-    protected void addProxyHeaders(HttpServletRequest clientRequest, Request proxyRequest) {
-        super.addProxyHeaders(clientRequest, proxyRequest);
+    public void init() throws ServletException {
+        super.init();
+        trustLoaded = lastHttpClientTrusted;
+        refreshAuthorizationHeader();
+        tokenRefresher = Executors.newSingleThreadScheduledExecutor(
+                new DefaultThreadFactory("function-mesh-proxy-token-refresher", true));
+        tokenRefresher.scheduleWithFixedDelay(this::refreshAuthorizationHeader,
+                TOKEN_REFRESH_INTERVAL_SECONDS, TOKEN_REFRESH_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        ServletConfig config = getServletConfig();
+        if (Boolean.parseBoolean(config.getInitParameter("responseCache"))) {
+            try {
+                ApiClient apiClient = KubernetesTlsContext.getInstance().configure(ClientBuilder.cluster().build());
+                // the watch is a long poll
+                apiClient.setHttpClient(apiClient.getHttpClient().newBuilder()
+                        .readTimeout(0, TimeUnit.SECONDS).build());
+                responseCache = newResponseCache(config);
+                responseCache.startWatch(apiClient);
+            } catch (IOException | GeneralSecurityException e) {
+                log.error("Failed to create the kubernetes client, FunctionMesh responses will not be cached", e);
+            }
+        }
+        if (Boolean.parseBoolean(config.getInitParameter("chunkedUpload"))) {
+            try {
+                chunkedUploadHandler = ChunkedUploadHandler.fromConfig(config);
+            } catch (IOException e) {
+                log.error("Failed to create the chunked upload directory, chunked uploads are not served", e);
+            }
+        }
+    }
+
+    static FunctionMeshResponseCache newResponseCache(ServletConfig config) {
+        String value = config.getInitParameter("responseCacheMaxEntries");
+        int maxEntries = value == null ? 1000 : Integer.parseInt(value);
+        value = config.getInitParameter("responseCacheTtlMs");
+        long ttlMs = value == null ? 60000 : Long.parseLong(value);
+        value = config.getInitParameter("responseCacheMaxBodySize");
+        int maxBodySize = value == null ? 4 * 1024 * 1024 : Integer.parseInt(value);
+        return new FunctionMeshResponseCache(maxEntries, ttlMs, maxBodySize);
+    }
+
+    void setResponseCache(FunctionMeshResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    void setChunkedUploadHandler(ChunkedUploadHandler chunkedUploadHandler) {
+        this.chunkedUploadHandler = chunkedUploadHandler;
+    }
+
+    @Override
+    protected void service(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        // uploads are served by the worker itself, they do not need the kubernetes CA
+        ChunkedUploadHandler uploads = chunkedUploadHandler;
+        if (uploads != null && uploads.serve(request, response)) {
+            return;
+        }
+        if (!trustLoaded && !loadTrustedClient()) {
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "The kubernetes CA is not loaded");
+            return;
+        }
+        FunctionMeshResponseCache cache = responseCache;
+        String requestUri = request.getRequestURI();
+        if (cache != null && isFunctionMeshRestRequest(requestUri)
+                && cache.serve(request, getNamespace(requestUri), response)) {
+            return;
+        }
+        super.service(request, response);
+    }
+
+    @Override
+    protected void onResponseContent(HttpServletRequest request, HttpServletResponse response,
+                                     Response proxyResponse, byte[] buffer, int offset, int length,
+                                     Callback callback) {
+        FunctionMeshResponseCache cache = responseCache;
+        if (cache != null) {
+            cache.record(request, buffer, offset, length);
+        }
+        super.onResponseContent(request, response, proxyResponse, buffer, offset, length, callback);
+    }
+
+    @Override
+    protected void onProxyResponseSuccess(HttpServletRequest clientRequest, HttpServletResponse proxyResponse,
+                                          Response serverResponse) {
+        FunctionMeshResponseCache cache = responseCache;
+        if (cache != null) {
+            cache.complete(clientRequest, serverResponse);
+        }
+        super.onProxyResponseSuccess(clientRequest, proxyResponse, serverResponse);
+    }
+
+    @Override
+    public void destroy() {
+        if (tokenRefresher != null) {
+            tokenRefresher.shutdownNow();
+        }
+        if (responseCache != null) {
+            responseCache.close();
+        }
+        if (chunkedUploadHandler != null) {
+            chunkedUploadHandler.close();
+        }
+        if (trustedClient != null) {
+            stopQuietly(trustedClient);
+        }
+        super.destroy();
+    }
+
+    /**
+     * Re-read the service account token. Projected tokens are rotated by the kubelet, so the token is read
+     * again periodically, like the kubernetes clients do, instead of on every proxied request.
+     */
+    protected void refreshAuthorizationHeader() {
         try {
-            File file = new File(KUBERNETES_TOKEN_PATH);
-            String cloudControllerAuthToken = FileUtils.readFileToString(file, StandardCharsets.UTF_8);
-            proxyRequest.header("Authorization", "Bearer " + cloudControllerAuthToken);
+            File file = new File(getTokenPath());
+            String cloudControllerAuthToken = FileUtils.readFileToString(file, StandardCharsets.UTF_8).trim();
+            String header = "Bearer " + cloudControllerAuthToken;
+            if (!header.equals(authorizationHeader)) {
+                authorizationHeader = header;
+                log.info("Loaded service account token from {}", file);
+            }
         } catch (java.io.IOException e) {
-            log.error("Init cloud controller ca cert failed", e);
+            log.error("Failed to read the service account token from {}", getTokenPath(), e);
+        }
+    }
+
+    protected String getTokenPath() {
+        return KUBERNETES_TOKEN_PATH;
+    }
+
+    String getAuthorizationHeader() {
+        return authorizationHeader;
+    }
+
+    @Override
+    protected void addProxyHeaders(HttpServletRequest clientRequest, Request proxyRequest) {
+        super.addProxyHeaders(clientRequest, proxyRequest);
+        String header = authorizationHeader;
+        if (header != null) {
+            proxyRequest.header(HttpHeader.AUTHORIZATION, header);
         }
     }
 }
@@ -33,25 +33,154 @@ import io.functionmesh.compute.sources.models.V1alpha1SourceSpecPodImagePullSecr
 import io.functionmesh.compute.sources.models.V1alpha1SourceSpecPodInitContainers;
 import io.functionmesh.compute.sources.models.V1alpha1SourceSpecPodVolumeMounts;
 import io.functionmesh.compute.sources.models.V1alpha1SourceSpecPodVolumes;
+import io.functionmesh.compute.util.CodecUtil;
 import io.kubernetes.client.openapi.models.V1LocalObjectReference;
 import io.kubernetes.client.openapi.models.V1Volume;
 import io.kubernetes.client.openapi.models.V1VolumeMount;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 import lombok.experimental.Accessors;
 import org.apache.pulsar.common.configuration.FieldContext;
 import org.apache.pulsar.common.functions.Resources;
-import org.apache.pulsar.common.util.ObjectMapperFactory;
 
 @Data
 @Accessors(chain = true)
 public class MeshWorkerServiceCustomConfig {
+
+    private static final TypeReference<List<V1alpha1SinkSpecPodVolumes>> SINK_VOLUMES =
+            new TypeReference<List<V1alpha1SinkSpecPodVolumes>>() {};
+
+    private static final TypeReference<List<V1alpha1SourceSpecPodVolumes>> SOURCE_VOLUMES =
+            new TypeReference<List<V1alpha1SourceSpecPodVolumes>>() {};
+
+    private static final TypeReference<List<V1alpha1FunctionSpecPodVolumes>> FUNCTION_VOLUMES =
+            new TypeReference<List<V1alpha1FunctionSpecPodVolumes>>() {};
+
+    private static final TypeReference<List<V1alpha1SinkSpecPodVolumeMounts>> SINK_VOLUME_MOUNTS =
+            new TypeReference<List<V1alpha1SinkSpecPodVolumeMounts>>() {};
+
+    private static final TypeReference<List<V1alpha1SourceSpecPodVolumeMounts>> SOURCE_VOLUME_MOUNTS =
+            new TypeReference<List<V1alpha1SourceSpecPodVolumeMounts>>() {};
+
+    private static final TypeReference<List<V1alpha1FunctionSpecPodVolumeMounts>> FUNCTION_VOLUME_MOUNTS =
+            new TypeReference<List<V1alpha1FunctionSpecPodVolumeMounts>>() {};
+
+    private static final TypeReference<List<V1alpha1FunctionSpecPodImagePullSecrets>> FUNCTION_IMAGE_PULL_SECRETS =
+            new TypeReference<List<V1alpha1FunctionSpecPodImagePullSecrets>>() {};
+
+    private static final TypeReference<List<V1alpha1SinkSpecPodImagePullSecrets>> SINK_IMAGE_PULL_SECRETS =
+            new TypeReference<List<V1alpha1SinkSpecPodImagePullSecrets>>() {};
+
+    private static final TypeReference<List<V1alpha1SourceSpecPodImagePullSecrets>> SOURCE_IMAGE_PULL_SECRETS =
+            new TypeReference<List<V1alpha1SourceSpecPodImagePullSecrets>>() {};
+
+    private static final TypeReference<List<V1alpha1FunctionSpecPodInitContainers>> FUNCTION_INIT_CONTAINERS =
+            new TypeReference<List<V1alpha1FunctionSpecPodInitContainers>>() {};
+
+    private static final TypeReference<List<V1alpha1SourceSpecPodInitContainers>> SOURCE_INIT_CONTAINERS =
+            new TypeReference<List<V1alpha1SourceSpecPodInitContainers>>() {};
+
+    private static final TypeReference<List<V1alpha1SinkSpecPodInitContainers>> SINK_INIT_CONTAINERS =
+            new TypeReference<List<V1alpha1SinkSpecPodInitContainers>>() {};
+
     @FieldContext(
             doc = "Enable user to upload custom function/source/sink jar/nar"
     )
     protected boolean uploadEnabled = false;
 
+    @FieldContext(
+            doc = "The max number of package uploads processed concurrently, 0 means no limit"
+    )
+    protected int maxConcurrentUploads = 0;
+
+    @FieldContext(
+            doc = "The max number of package uploads waiting for a free upload slot, further uploads are rejected "
+                    + "immediately. 0 means no limit"
+    )
+    protected int maxPendingUploads = 0;
+
+    @FieldContext(
+            doc = "The max number of bytes held by package uploads in progress, 0 means no limit"
+    )
+    protected long maxUploadBytesInFlight = 0;
+
+    @FieldContext(
+            doc = "The max time in milliseconds a package upload waits for a free upload slot"
+    )
+    protected long uploadWaitTimeoutMs = 10000;
+
+    @FieldContext(
+            doc = "The max number of authorization decisions cached, 0 disables the cache"
+    )
+    protected long authorizationCacheMaxSize = 10000;
+
+    @FieldContext(
+            doc = "The time in milliseconds a granted authorization decision is cached, 0 disables caching grants"
+    )
+    protected long authorizationCacheAllowTtlMs = 30000;
+
+    @FieldContext(
+            doc = "The time in milliseconds a denied authorization decision is cached, 0 disables caching denials"
+    )
+    protected long authorizationCacheDenyTtlMs = 5000;
+
+    @FieldContext(
+            doc = "The time in milliseconds the metadata of a tenant is cached, 0 disables the cache"
+    )
+    protected long tenantInfoCacheTtlMs = 30000;
+
+    @FieldContext(
+            doc = "Reload the connector catalog conf/connectors.yaml when the file changes"
+    )
+    protected boolean connectorsCatalogWatchEnabled = true;
+
+    @FieldContext(
+            doc = "The config map holding the connector catalog shared by all worker replicas, the local "
+                    + "conf/connectors.yaml is used if it is empty"
+    )
+    protected String connectorsCatalogConfigMap;
+
+    @FieldContext(
+            doc = "The namespace of connectorsCatalogConfigMap, the namespace of the function mesh jobs by default"
+    )
+    protected String connectorsCatalogConfigMapNamespace;
+
+    @FieldContext(
+            doc = "The key of the catalog in connectorsCatalogConfigMap"
+    )
+    protected String connectorsCatalogConfigMapKey = "connectors.yaml";
+
+    @FieldContext(
+            doc = "The directory to keep the config fields derived from the connector config classes in. By default "
+                    + "it is a `mesh-worker-connector-config-definitions` directory under `java.io.tmpdir`"
+    )
+    protected String connectorConfigDefinitionDirectory;
+
+    @FieldContext(
+            doc = "Maintain a DaemonSet pulling the images of the built-in connectors on every node, so the first "
+                    + "connector instance on a node does not wait for the image pull"
+    )
+    protected boolean connectorImagePrePullEnabled = false;
+
+    @FieldContext(
+            doc = "The name of the connector image pre-pull DaemonSet in the namespace of the function mesh jobs"
+    )
+    protected String connectorImagePrePullDaemonSetName = "function-mesh-connector-image-pre-pull";
+
+    @FieldContext(
+            doc = "The image of the container keeping the connector image pre-pull pods running"
+    )
+    protected String connectorImagePrePullPauseImage = "k8s.gcr.io/pause:3.5";
+
     @FieldContext(
             doc = "Enable the function api endpoint"
     )
@@ -199,109 +328,87 @@ public class MeshWorkerServiceCustomConfig {
     )
     protected boolean enableTrustedMode = false;
 
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final transient Map<TypeReference<?>, TypedList> typedLists = new ConcurrentHashMap<>();
+
     public List<V1alpha1SinkSpecPodVolumes> asV1alpha1SinkSpecPodVolumesList() throws JsonProcessingException {
-        ObjectMapper objectMapper = ObjectMapperFactory.getThreadLocal();
-        TypeReference<List<V1alpha1SinkSpecPodVolumes>> typeRef =
-                new TypeReference<List<V1alpha1SinkSpecPodVolumes>>() {};
-        String j = objectMapper.writeValueAsString(volumes);
-        return objectMapper.readValue(j, typeRef);
+        return asTypedList(volumes, SINK_VOLUMES);
     }
 
     public List<V1alpha1SourceSpecPodVolumes> asV1alpha1SourceSpecPodVolumesList() throws JsonProcessingException {
-        ObjectMapper objectMapper = ObjectMapperFactory.getThreadLocal();
-        TypeReference<List<V1alpha1SourceSpecPodVolumes>> typeRef =
-                new TypeReference<List<V1alpha1SourceSpecPodVolumes>>() {};
-        String j = objectMapper.writeValueAsString(volumes);
-        return objectMapper.readValue(j, typeRef);
+        return asTypedList(volumes, SOURCE_VOLUMES);
     }
 
     public List<V1alpha1FunctionSpecPodVolumes> asV1alpha1FunctionSpecPodVolumesList() throws JsonProcessingException {
-        ObjectMapper objectMapper = ObjectMapperFactory.getThreadLocal();
-        TypeReference<List<V1alpha1FunctionSpecPodVolumes>> typeRef =
-                new TypeReference<List<V1alpha1FunctionSpecPodVolumes>>() {};
-        String j = objectMapper.writeValueAsString(volumes);
-        return objectMapper.readValue(j, typeRef);
+        return asTypedList(volumes, FUNCTION_VOLUMES);
     }
 
     public List<V1alpha1SinkSpecPodVolumeMounts> asV1alpha1SinkSpecPodVolumeMountsList()
             throws JsonProcessingException {
-        ObjectMapper objectMapper = ObjectMapperFactory.getThreadLocal();
-        TypeReference<List<V1alpha1SinkSpecPodVolumeMounts>> typeRef =
-                new TypeReference<List<V1alpha1SinkSpecPodVolumeMounts>>() {};
-        String j = objectMapper.writeValueAsString(volumeMounts);
-        return objectMapper.readValue(j, typeRef);
+        return asTypedList(volumeMounts, SINK_VOLUME_MOUNTS);
     }
 
     public List<V1alpha1SourceSpecPodVolumeMounts> asV1alpha1SourceSpecPodVolumeMountsList()
             throws JsonProcessingException {
-        ObjectMapper objectMapper = ObjectMapperFactory.getThreadLocal();
-        TypeReference<List<V1alpha1SourceSpecPodVolumeMounts>> typeRef =
-                new TypeReference<List<V1alpha1SourceSpecPodVolumeMounts>>() {};
-        String j = objectMapper.writeValueAsString(volumeMounts);
-        return objectMapper.readValue(j, typeRef);
+        return asTypedList(volumeMounts, SOURCE_VOLUME_MOUNTS);
     }
 
     public List<V1alpha1FunctionSpecPodVolumeMounts> asV1alpha1FunctionSpecPodVolumeMounts()
             throws JsonProcessingException {
-        ObjectMapper objectMapper = ObjectMapperFactory.getThreadLocal();
-        TypeReference<List<V1alpha1FunctionSpecPodVolumeMounts>> typeRef =
-                new TypeReference<List<V1alpha1FunctionSpecPodVolumeMounts>>() {};
-        String j = objectMapper.writeValueAsString(volumeMounts);
-        return objectMapper.readValue(j, typeRef);
+        return asTypedList(volumeMounts, FUNCTION_VOLUME_MOUNTS);
     }
 
     public List<V1alpha1FunctionSpecPodImagePullSecrets> asV1alpha1FunctionSpecPodImagePullSecrets()
             throws JsonProcessingException {
-        ObjectMapper objectMapper = ObjectMapperFactory.getThreadLocal();
-        TypeReference<List<V1alpha1FunctionSpecPodImagePullSecrets>> typeRef =
-                new TypeReference<List<V1alpha1FunctionSpecPodImagePullSecrets>>() {};
-        String j = objectMapper.writeValueAsString(imagePullSecrets);
-        return objectMapper.readValue(j, typeRef);
+        return asTypedList(imagePullSecrets, FUNCTION_IMAGE_PULL_SECRETS);
     }
 
     public List<V1alpha1SinkSpecPodImagePullSecrets> asV1alpha1SinkSpecPodImagePullSecrets()
             throws JsonProcessingException {
-        ObjectMapper objectMapper = ObjectMapperFactory.getThreadLocal();
-        TypeReference<List<V1alpha1SinkSpecPodImagePullSecrets>> typeRef =
-                new TypeReference<List<V1alpha1SinkSpecPodImagePullSecrets>>() {};
-        String j = objectMapper.writeValueAsString(imagePullSecrets);
-        return objectMapper.readValue(j, typeRef);
+        return asTypedList(imagePullSecrets, SINK_IMAGE_PULL_SECRETS);
     }
 
     public List<V1alpha1SourceSpecPodImagePullSecrets> asV1alpha1SourceSpecPodImagePullSecrets()
             throws JsonProcessingException {
-        ObjectMapper objectMapper = ObjectMapperFactory.getThreadLocal();
-        TypeReference<List<V1alpha1SourceSpecPodImagePullSecrets>> typeRef =
-                new TypeReference<List<V1alpha1SourceSpecPodImagePullSecrets>>() {};
-        String j = objectMapper.writeValueAsString(imagePullSecrets);
-        return objectMapper.readValue(j, typeRef);
+        return asTypedList(imagePullSecrets, SOURCE_IMAGE_PULL_SECRETS);
     }
 
     public List<V1alpha1FunctionSpecPodInitContainers> asV1alpha1FunctionSpecPodInitContainers()
             throws JsonProcessingException {
-        ObjectMapper objectMapper = ObjectMapperFactory.getThreadLocal();
-        TypeReference<List<V1alpha1FunctionSpecPodInitContainers>> typeRef =
-                new TypeReference<List<V1alpha1FunctionSpecPodInitContainers>>() {};
-        String j = objectMapper.writeValueAsString(functionInitContainers);
-        return objectMapper.readValue(j, typeRef);
+        return asTypedList(functionInitContainers, FUNCTION_INIT_CONTAINERS);
     }
 
     public List<V1alpha1SourceSpecPodInitContainers> asV1alpha1SourceSpecPodInitContainers()
             throws JsonProcessingException {
-        ObjectMapper objectMapper = ObjectMapperFactory.getThreadLocal();
-        TypeReference<List<V1alpha1SourceSpecPodInitContainers>> typeRef =
-                new TypeReference<List<V1alpha1SourceSpecPodInitContainers>>() {};
-        String j = objectMapper.writeValueAsString(sourceInitContainers);
-        return objectMapper.readValue(j, typeRef);
+        return asTypedList(sourceInitContainers, SOURCE_INIT_CONTAINERS);
     }
 
     public List<V1alpha1SinkSpecPodInitContainers> asV1alpha1SinkSpecPodInitContainers()
             throws JsonProcessingException {
-        ObjectMapper objectMapper = ObjectMapperFactory.getThreadLocal();
-        TypeReference<List<V1alpha1SinkSpecPodInitContainers>> typeRef =
-                new TypeReference<List<V1alpha1SinkSpecPodInitContainers>>() {};
-        String j = objectMapper.writeValueAsString(functionInitContainers);
-        return objectMapper.readValue(j, typeRef);
+        return asTypedList(functionInitContainers, SINK_INIT_CONTAINERS);
+    }
+
+    /**
+     * The pod policies converted to the types of the function mesh CRDs. The conversion is done once per
+     * config value, each call gets its own list of the shared, not to be modified, converted items.
+     */
+    private <T> List<T> asTypedList(Object source, TypeReference<List<T>> typeRef) throws JsonProcessingException {
+        if (source == null) {
+            return null;
+        }
+        TypedList view = typedLists.get(typeRef);
+        if (view == null || view.source != source) {
+            ObjectMapper objectMapper = CodecUtil.getJsonMapper();
+            String j = objectMapper.writeValueAsString(source);
+            view = new TypedList(source, objectMapper.readValue(j, typeRef));
+            typedLists.put(typeRef, view);
+        }
+        @SuppressWarnings("unchecked")
+        List<T> items = (List<T>) view.items;
+        return items == null ? null : new ArrayList<>(items);
     }
 
     public Resources getDefaultResources() {
@@ -310,4 +417,10 @@ public class MeshWorkerServiceCustomConfig {
         }
         return defaultResources;
     }
+
+    @AllArgsConstructor
+    private static class TypedList {
+        private final Object source;
+        private final List<?> items;
+    }
 }
@@ -24,6 +24,7 @@ import com.google.common.annotations.VisibleForTesting;
 import io.functionmesh.compute.MeshWorkerService;
 import io.functionmesh.compute.functions.models.V1alpha1Function;
 import io.functionmesh.compute.functions.models.V1alpha1FunctionList;
+import io.functionmesh.compute.functions.models.V1alpha1FunctionSpec;
 import io.functionmesh.compute.functions.models.V1alpha1FunctionSpecJava;
 import io.functionmesh.compute.functions.models.V1alpha1FunctionSpecPod;
 import io.functionmesh.compute.functions.models.V1alpha1FunctionSpecPodInitContainers;
@@ -135,19 +136,15 @@ public class FunctionsImpl extends MeshComponentImpl<V1alpha1Function, V1alpha1F
 
         validateRegisterFunctionRequestParams(tenant, namespace, functionName, functionConfig,
                 uploadedInputStream != null);
-        this.validatePermission(tenant,
-                namespace,
-                clientRole,
-                clientAuthenticationDataHttps,
-                ComponentTypeUtils.toString(componentType));
-        this.validateTenantIsExist(tenant, namespace, functionName, clientRole);
+        this.validatePermissionAndTenant(tenant, namespace, functionName, clientRole, clientAuthenticationDataHttps);
         String packageURL = functionPkgUrl;
         if (uploadedInputStream != null && worker().getMeshWorkerServiceCustomConfig().isUploadEnabled()) {
             try {
-                String tempDirectory = System.getProperty("java.io.tmpdir");
-                packageURL = PackageManagementServiceUtil.uploadPackageToPackageService(
-                        worker().getBrokerAdmin(), PackageManagementServiceUtil.PACKAGE_TYPE_FUNCTION, tenant,
-                        namespace, functionName, uploadedInputStream, fileDetail, tempDirectory);
+                packageURL = uploadPackage(PackageManagementServiceUtil.PACKAGE_TYPE_FUNCTION, tenant, namespace,
+                        functionName, uploadedInputStream, fileDetail);
+            } catch (RestException e) {
+                log.warn("register {}/{}/{} function rejected: {}", tenant, namespace, functionName, e.getMessage());
+                throw e;
             } catch (Exception e) {
                 log.error("register {}/{}/{} function failed, error message: {}", tenant, namespace, functionName, e);
                 throw new RestException(Response.Status.INTERNAL_SERVER_ERROR, e.getMessage());
@@ -201,19 +198,15 @@ public class FunctionsImpl extends MeshComponentImpl<V1alpha1Function, V1alpha1F
 
         validateUpdateFunctionRequestParams(tenant, namespace, functionName, functionConfig,
                 uploadedInputStream != null);
-        this.validatePermission(tenant,
-                namespace,
-                clientRole,
-                clientAuthenticationDataHttps,
-                ComponentTypeUtils.toString(componentType));
-        this.validateTenantIsExist(tenant, namespace, functionName, clientRole);
+        this.validatePermissionAndTenant(tenant, namespace, functionName, clientRole, clientAuthenticationDataHttps);
         String packageURL = functionPkgUrl;
         if (uploadedInputStream != null && worker().getMeshWorkerServiceCustomConfig().isUploadEnabled()) {
             try {
-                String tempDirectory = System.getProperty("java.io.tmpdir");
-                packageURL = PackageManagementServiceUtil.uploadPackageToPackageService(
-                        worker().getBrokerAdmin(), PackageManagementServiceUtil.PACKAGE_TYPE_FUNCTION, tenant,
-                        namespace, functionName, uploadedInputStream, fileDetail, tempDirectory);
+                packageURL = uploadPackage(PackageManagementServiceUtil.PACKAGE_TYPE_FUNCTION, tenant, namespace,
+                        functionName, uploadedInputStream, fileDetail);
+            } catch (RestException e) {
+                log.warn("update {}/{}/{} function rejected: {}", tenant, namespace, functionName, e.getMessage());
+                throw e;
             } catch (Exception e) {
                 log.error("update {}/{}/{} function failed, error message: {}", tenant, namespace, functionName, e);
                 throw new RestException(Response.Status.INTERNAL_SERVER_ERROR, e.getMessage());
@@ -340,6 +333,22 @@ public class FunctionsImpl extends MeshComponentImpl<V1alpha1Function, V1alpha1F
         return functionInstanceStatsList;
     }
 
+    @Override
+    String getPackageLocation(V1alpha1Function obj) {
+        V1alpha1FunctionSpec spec = obj == null ? null : obj.getSpec();
+        if (spec == null) {
+            return null;
+        }
+        if (spec.getJava() != null) {
+            return spec.getJava().getJarLocation();
+        } else if (spec.getPython() != null) {
+            return spec.getPython().getPyLocation();
+        } else if (spec.getGolang() != null) {
+            return spec.getGolang().getGoLocation();
+        }
+        return null;
+    }
+
     @Override
     void validateResourceObject(V1alpha1Function obj) {
         if (obj == null) {
@@ -29,6 +29,8 @@ import io.functionmesh.compute.functions.models.V1alpha1FunctionList;
 import io.functionmesh.compute.util.CommonUtil;
 import io.functionmesh.compute.util.KubernetesUtils;
 import io.functionmesh.compute.util.PackageManagementServiceUtil;
+import io.functionmesh.compute.worker.AuthorizationDecisionCache;
+import io.functionmesh.compute.worker.PackageUploadLimiter;
 import io.grpc.ManagedChannel;
 import io.grpc.ManagedChannelBuilder;
 import io.kubernetes.client.openapi.models.V1Pod;
@@ -41,7 +43,9 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Supplier;
 import javax.ws.rs.core.StreamingOutput;
 import lombok.Getter;
@@ -56,12 +60,14 @@ import org.apache.pulsar.client.admin.PulsarAdminException;
 import org.apache.pulsar.common.functions.FunctionConfig;
 import org.apache.pulsar.common.functions.FunctionState;
 import org.apache.pulsar.common.functions.Resources;
+import org.apache.pulsar.common.functions.Utils;
 import org.apache.pulsar.common.io.ConnectorDefinition;
 import org.apache.pulsar.common.naming.NamespaceName;
 import org.apache.pulsar.common.policies.data.FunctionInstanceStatsDataImpl;
 import org.apache.pulsar.common.policies.data.FunctionInstanceStatsImpl;
 import org.apache.pulsar.common.policies.data.FunctionStatsImpl;
 import org.apache.pulsar.common.policies.data.TenantInfo;
+import org.apache.pulsar.common.util.FutureUtil;
 import org.apache.pulsar.common.util.RestException;
 import org.apache.pulsar.functions.proto.Function;
 import org.apache.pulsar.functions.proto.InstanceCommunication.MetricsData;
@@ -70,6 +76,8 @@ import org.apache.pulsar.functions.proto.InstanceControlGrpc.InstanceControlFutu
 import org.apache.pulsar.functions.utils.ComponentTypeUtils;
 import org.apache.pulsar.functions.worker.WorkerService;
 import org.apache.pulsar.functions.worker.service.api.Component;
+import org.apache.pulsar.packages.management.core.common.PackageName;
+import org.glassfish.jersey.media.multipart.FormDataContentDisposition;
 
 @Slf4j
 public abstract class MeshComponentImpl<T extends io.kubernetes.client.common.KubernetesObject,
@@ -209,6 +217,20 @@ public abstract class MeshComponentImpl<T extends io.kubernetes.client.common.Ku
         }
     }
 
+    String uploadPackage(final String packageType,
+                         final String tenant,
+                         final String namespace,
+                         final String componentName,
+                         final InputStream uploadedInputStream,
+                         final FormDataContentDisposition fileDetail) throws Exception {
+        long expectedBytes = fileDetail != null ? fileDetail.getSize() : -1;
+        try (PackageUploadLimiter.Permit permit = worker().getPackageUploadLimiter().acquire(expectedBytes)) {
+            return PackageManagementServiceUtil.uploadPackageToPackageService(
+                    worker().getBrokerAdmin(), packageType, tenant, namespace, componentName,
+                    permit.wrap(uploadedInputStream), fileDetail, System.getProperty("java.io.tmpdir"));
+        }
+    }
+
     @Override
     public MeshWorkerService worker() {
         try {
@@ -290,12 +312,7 @@ public abstract class MeshComponentImpl<T extends io.kubernetes.client.common.Ku
             throwUnavailableException();
         }
 
-        this.validatePermission(tenant,
-                namespace,
-                clientRole,
-                clientAuthenticationDataHttps,
-                ComponentTypeUtils.toString(componentType));
-        this.validateTenantIsExist(tenant, namespace, componentName, clientRole);
+        this.validatePermissionAndTenant(tenant, namespace, componentName, clientRole, clientAuthenticationDataHttps);
         this.validateGetInfoRequestParams(tenant, namespace, componentName, ComponentTypeUtils.toString(componentType));
 
         FunctionStatsImpl functionStats = new FunctionStatsImpl();
@@ -406,8 +423,25 @@ public abstract class MeshComponentImpl<T extends io.kubernetes.client.common.Ku
     public StreamingOutput downloadFunction(String path,
                                             String clientRole,
                                             AuthenticationDataHttps clientAuthenticationDataHttps) {
-        // To do
-        return null;
+        if (!isWorkerServiceAvailable()) {
+            throwUnavailableException();
+        }
+        if (StringUtils.isEmpty(path) || !Utils.hasPackageTypePrefix(path)) {
+            throw new RestException(javax.ws.rs.core.Response.Status.BAD_REQUEST,
+                    "Only packages from the package management service can be downloaded");
+        }
+        PackageName packageName;
+        try {
+            packageName = PackageName.get(path);
+        } catch (IllegalArgumentException e) {
+            throw new RestException(javax.ws.rs.core.Response.Status.BAD_REQUEST, e.getMessage());
+        }
+        this.validatePermission(packageName.getTenant(),
+                packageName.getNamespace(),
+                clientRole,
+                clientAuthenticationDataHttps,
+                packageName.getName());
+        return downloadPackage(path);
     }
 
     @Override
@@ -416,8 +450,44 @@ public abstract class MeshComponentImpl<T extends io.kubernetes.client.common.Ku
                                             String componentName,
                                             String clientRole,
                                             AuthenticationDataHttps clientAuthenticationDataHttps) {
-        // To do
-        return null;
+        if (!isWorkerServiceAvailable()) {
+            throwUnavailableException();
+        }
+        this.validateGetInfoRequestParams(tenant, namespace, componentName, apiKind);
+        this.validatePermissionAndTenant(tenant, namespace, componentName, clientRole, clientAuthenticationDataHttps);
+        return downloadPackage(getComponentPackageURL(tenant, namespace, componentName));
+    }
+
+    /**
+     * The package url recorded in the spec of a component, the package its instances run.
+     */
+    private String getComponentPackageURL(String tenant, String namespace, String componentName) {
+        KubernetesApiResponse<T> response = getResourceApi().get(worker().getJobNamespace(),
+                CommonUtil.generateObjectName(worker(), tenant, namespace, componentName));
+        if (response.getHttpStatusCode() == 404) {
+            throw new RestException(javax.ws.rs.core.Response.Status.NOT_FOUND, String.format("%s %s does not exist",
+                    ComponentTypeUtils.toString(componentType), componentName));
+        }
+        String packageURL = getPackageLocation(extractResponse(response));
+        if (StringUtils.isEmpty(packageURL) || !Utils.hasPackageTypePrefix(packageURL)) {
+            throw new RestException(javax.ws.rs.core.Response.Status.BAD_REQUEST, String.format(
+                    "%s %s does not run a package of the package service, it cannot be downloaded",
+                    ComponentTypeUtils.toString(componentType), componentName));
+        }
+        return packageURL;
+    }
+
+    private StreamingOutput downloadPackage(String packageURL) {
+        try {
+            return PackageManagementServiceUtil.downloadPackageFromPackageService(
+                    worker().getBrokerAdmin(), packageURL, CommonUtil.getDownloadDirectory(worker()));
+        } catch (PulsarAdminException.NotFoundException e) {
+            throw new RestException(javax.ws.rs.core.Response.Status.NOT_FOUND,
+                    String.format("Package %s does not exist", packageURL));
+        } catch (Exception e) {
+            log.error("download package {} failed", packageURL, e);
+            throw new RestException(javax.ws.rs.core.Response.Status.INTERNAL_SERVER_ERROR, e.getMessage());
+        }
     }
 
     @Override
@@ -431,84 +501,107 @@ public abstract class MeshComponentImpl<T extends io.kubernetes.client.common.Ku
     }
 
     public boolean isSuperUser(String clientRole, AuthenticationDataSource authenticationDataSource) {
-        if (clientRole != null) {
-            try {
-                if ((worker().getWorkerConfig().getSuperUserRoles() != null
-                        && worker().getWorkerConfig().getSuperUserRoles().contains(clientRole))) {
-                    return true;
-                }
-                return worker().getAuthorizationService().isSuperUser(clientRole, authenticationDataSource)
-                        .get(worker().getWorkerConfig().getZooKeeperOperationTimeoutSeconds(), SECONDS);
-            } catch (InterruptedException e) {
-                log.warn("Time-out {} sec while checking the role {} is a super user role ",
-                        worker().getWorkerConfig().getZooKeeperOperationTimeoutSeconds(), clientRole);
-                throw new RestException(javax.ws.rs.core.Response.Status.INTERNAL_SERVER_ERROR, e.getMessage());
-            } catch (Exception e) {
-                log.warn("Admin-client with Role - failed to check the role {} is a super user role {} ", clientRole,
-                        e.getMessage(), e);
-                throw new RestException(javax.ws.rs.core.Response.Status.INTERNAL_SERVER_ERROR, e.getMessage());
-            }
+        return waitForResult(isSuperUserAsync(clientRole, authenticationDataSource));
+    }
+
+    public CompletableFuture<Boolean> isSuperUserAsync(String clientRole,
+                                                       AuthenticationDataSource authenticationDataSource) {
+        if (clientRole == null) {
+            return CompletableFuture.completedFuture(false);
         }
-        return false;
+        if (worker().getWorkerConfig().getSuperUserRoles() != null
+                && worker().getWorkerConfig().getSuperUserRoles().contains(clientRole)) {
+            return CompletableFuture.completedFuture(true);
+        }
+        return worker().getAuthorizationService().isSuperUser(clientRole, authenticationDataSource);
     }
 
     public boolean isAuthorizedRole(String tenant, String namespace, String clientRole,
-                                    AuthenticationDataSource authenticationData) throws PulsarAdminException {
-        if (worker().getWorkerConfig().isAuthorizationEnabled()) {
-            // skip authorization if client role is super-user
-            if (isSuperUser(clientRole, authenticationData)) {
-                return true;
-            }
+                                    AuthenticationDataSource authenticationData) {
+        return waitForResult(isAuthorizedRoleAsync(tenant, namespace, clientRole, authenticationData));
+    }
 
-            if (clientRole != null) {
-                try {
-                    TenantInfo tenantInfo = worker().getBrokerAdmin().tenants().getTenantInfo(tenant);
-                    if (tenantInfo != null && worker().getAuthorizationService()
-                            .isTenantAdmin(tenant, clientRole, tenantInfo, authenticationData).get()) {
-                        return true;
+    public CompletableFuture<Boolean> isAuthorizedRoleAsync(String tenant, String namespace, String clientRole,
+                                                            AuthenticationDataSource authenticationData) {
+        return isAuthorizedRoleAsync(tenant, namespace, clientRole, authenticationData, null);
+    }
+
+    private CompletableFuture<Boolean> isAuthorizedRoleAsync(String tenant, String namespace, String clientRole,
+                                                             AuthenticationDataSource authenticationData,
+                                                             CompletableFuture<TenantInfo> tenantInfoFuture) {
+        if (!worker().getWorkerConfig().isAuthorizationEnabled()) {
+            return CompletableFuture.completedFuture(true);
+        }
+        AuthorizationDecisionCache decisionCache = worker().getAuthorizationDecisionCache();
+        Boolean cachedDecision = decisionCache.get(clientRole, tenant, namespace, componentType);
+        if (cachedDecision != null) {
+            return CompletableFuture.completedFuture(cachedDecision);
+        }
+        long generation = decisionCache.getGeneration();
+        return checkAuthorizedRoleAsync(tenant, namespace, clientRole, authenticationData, tenantInfoFuture)
+                .thenApply(authorized -> {
+                    // a denial without authentication data says nothing about the role itself
+                    if (authorized || authenticationData != null) {
+                        decisionCache.put(clientRole, tenant, namespace, componentType, authorized, generation);
                     }
-                } catch (PulsarAdminException.NotFoundException | InterruptedException | ExecutionException e) {
+                    return authorized;
+                });
+    }
 
-                }
+    private CompletableFuture<Boolean> checkAuthorizedRoleAsync(String tenant, String namespace, String clientRole,
+                                                                AuthenticationDataSource authenticationData,
+                                                                CompletableFuture<TenantInfo> tenantInfoFuture) {
+        // skip authorization if client role is super-user
+        return isSuperUserAsync(clientRole, authenticationData).thenCompose(isSuperUser -> {
+            if (isSuperUser) {
+                return CompletableFuture.completedFuture(true);
             }
-
-            // check if role has permissions granted
-            if (clientRole != null && authenticationData != null) {
-                return allowFunctionOps(NamespaceName.get(tenant, namespace), clientRole, authenticationData);
-            } else {
-                return false;
+            if (clientRole == null) {
+                return CompletableFuture.completedFuture(false);
             }
-        }
-        return true;
+            CompletableFuture<TenantInfo> tenantInfo =
+                    tenantInfoFuture != null ? tenantInfoFuture : worker().getTenantInfoAsync(tenant);
+            return tenantInfo.handle((info, e) -> {
+                if (e != null && !(FutureUtil.unwrapCompletionException(e)
+                        instanceof PulsarAdminException.NotFoundException)) {
+                    throw new CompletionException(FutureUtil.unwrapCompletionException(e));
+                }
+                return info;
+            }).thenCompose(info -> info == null ? CompletableFuture.completedFuture(false)
+                    : worker().getAuthorizationService()
+                    .isTenantAdmin(tenant, clientRole, info, authenticationData)
+                    .exceptionally(e -> false)
+            ).thenCompose(isTenantAdmin -> {
+                if (isTenantAdmin) {
+                    return CompletableFuture.completedFuture(true);
+                }
+                // check if role has permissions granted
+                if (authenticationData != null) {
+                    return allowFunctionOpsAsync(NamespaceName.get(tenant, namespace), clientRole,
+                            authenticationData);
+                }
+                return CompletableFuture.completedFuture(false);
+            });
+        });
     }
 
     public boolean allowFunctionOps(NamespaceName namespaceName, String role,
                                     AuthenticationDataSource authenticationData) {
-        try {
-            switch (componentType) {
-                case SINK:
-                    return worker().getAuthorizationService().allowSinkOpsAsync(
-                                    namespaceName, role, authenticationData)
-                            .get(worker().getWorkerConfig().getZooKeeperOperationTimeoutSeconds(), SECONDS);
-                case SOURCE:
-                    return worker().getAuthorizationService().allowSourceOpsAsync(
-                                    namespaceName, role, authenticationData)
-                            .get(worker().getWorkerConfig().getZooKeeperOperationTimeoutSeconds(), SECONDS);
-                case FUNCTION:
-                default:
-                    return worker().getAuthorizationService().allowFunctionOpsAsync(
-                                    namespaceName, role, authenticationData)
-                            .get(worker().getWorkerConfig().getZooKeeperOperationTimeoutSeconds(), SECONDS);
-            }
-        } catch (InterruptedException e) {
-            log.warn("Time-out {} sec while checking function authorization on {} ",
-                    worker().getWorkerConfig().getZooKeeperOperationTimeoutSeconds(), namespaceName);
-            throw new RestException(javax.ws.rs.core.Response.Status.INTERNAL_SERVER_ERROR, e.getMessage());
-        } catch (Exception e) {
-            log.warn("Admin-client with Role - {} failed to get function permissions for namespace - {}. {}", role,
-                    namespaceName,
-                    e.getMessage(), e);
-            throw new RestException(javax.ws.rs.core.Response.Status.INTERNAL_SERVER_ERROR, e.getMessage());
+        return waitForResult(allowFunctionOpsAsync(namespaceName, role, authenticationData));
+    }
+
+    public CompletableFuture<Boolean> allowFunctionOpsAsync(NamespaceName namespaceName, String role,
+                                                            AuthenticationDataSource authenticationData) {
+        switch (componentType) {
+            case SINK:
+                return worker().getAuthorizationService().allowSinkOpsAsync(namespaceName, role, authenticationData);
+            case SOURCE:
+                return worker().getAuthorizationService().allowSourceOpsAsync(namespaceName, role,
+                        authenticationData);
+            case FUNCTION:
+            default:
+                return worker().getAuthorizationService().allowFunctionOpsAsync(namespaceName, role,
+                        authenticationData);
         }
     }
 
@@ -517,17 +610,48 @@ public abstract class MeshComponentImpl<T extends io.kubernetes.client.common.Ku
                             String clientRole,
                             AuthenticationDataSource clientAuthenticationDataHttps,
                             String componentName) {
-        try {
-            if (!isAuthorizedRole(tenant, namespace, clientRole, clientAuthenticationDataHttps)) {
-                log.warn("{}/{}/{} Client [{}] is not authorized to get {}", tenant, namespace,
-                        componentName, clientRole, ComponentTypeUtils.toString(componentType));
-                throw new RestException(javax.ws.rs.core.Response.Status.UNAUTHORIZED,
-                        "client is not authorize to perform operation");
-            }
-        } catch (PulsarAdminException e) {
-            log.error("{}/{}/{} Failed to authorize", tenant, namespace, componentName, e);
-            throw new RestException(javax.ws.rs.core.Response.Status.INTERNAL_SERVER_ERROR, e.getMessage());
-        }
+        waitForResult(validatePermissionAsync(tenant, namespace, clientRole, clientAuthenticationDataHttps,
+                componentName, null));
+    }
+
+    /**
+     * Check the client permission and the tenant existence concurrently, sharing one tenant lookup.
+     */
+    void validatePermissionAndTenant(String tenant,
+                                     String namespace,
+                                     String componentName,
+                                     String clientRole,
+                                     AuthenticationDataSource clientAuthenticationDataHttps) {
+        CompletableFuture<TenantInfo> tenantInfo = worker().getTenantInfoAsync(tenant);
+        CompletableFuture<Void> permission = validatePermissionAsync(tenant, namespace, clientRole,
+                clientAuthenticationDataHttps, componentName, tenantInfo);
+        // a permission failure is reported ahead of a missing tenant
+        waitForResult(permission.thenCombine(
+                validateTenantIsExistAsync(tenantInfo, tenant, namespace, componentName, clientRole),
+                (ignore, ignore2) -> null));
+    }
+
+    private CompletableFuture<Void> validatePermissionAsync(String tenant,
+                                                            String namespace,
+                                                            String clientRole,
+                                                            AuthenticationDataSource clientAuthenticationDataHttps,
+                                                            String componentName,
+                                                            CompletableFuture<TenantInfo> tenantInfo) {
+        return isAuthorizedRoleAsync(tenant, namespace, clientRole, clientAuthenticationDataHttps, tenantInfo)
+                .handle((authorized, e) -> {
+                    if (e != null) {
+                        log.error("{}/{}/{} Failed to authorize", tenant, namespace, componentName, e);
+                        throw new RestException(javax.ws.rs.core.Response.Status.INTERNAL_SERVER_ERROR,
+                                FutureUtil.unwrapCompletionException(e).getMessage());
+                    }
+                    if (!authorized) {
+                        log.warn("{}/{}/{} Client [{}] is not authorized to get {}", tenant, namespace,
+                                componentName, clientRole, ComponentTypeUtils.toString(componentType));
+                        throw new RestException(javax.ws.rs.core.Response.Status.UNAUTHORIZED,
+                                "client is not authorize to perform operation");
+                    }
+                    return null;
+                });
     }
 
     void validateGetInfoRequestParams(
@@ -543,22 +667,55 @@ public abstract class MeshComponentImpl<T extends io.kubernetes.client.common.Ku
         }
     }
 
-    void validateTenantIsExist(String tenant, String namespace, String name, String clientRole) {
+    private CompletableFuture<Void> validateTenantIsExistAsync(CompletableFuture<TenantInfo> tenantInfo,
+                                                               String tenant,
+                                                               String namespace,
+                                                               String name,
+                                                               String clientRole) {
+        return tenantInfo.handle((info, e) -> {
+            if (e == null) {
+                return null;
+            }
+            Throwable cause = FutureUtil.unwrapCompletionException(e);
+            if (cause instanceof PulsarAdminException.NotAuthorizedException) {
+                log.error("{}/{}/{} Client [{}] is not authorized to operate {} on tenant", tenant, namespace,
+                        name, clientRole, ComponentTypeUtils.toString(componentType));
+                throw new RestException(javax.ws.rs.core.Response.Status.UNAUTHORIZED,
+                        "client is not authorize to perform operation");
+            } else if (cause instanceof PulsarAdminException.NotFoundException) {
+                log.error("{}/{}/{} Tenant {} does not exist", tenant, namespace, name, tenant);
+                throw new RestException(javax.ws.rs.core.Response.Status.BAD_REQUEST, "Tenant does not exist");
+            }
+            log.error("{}/{}/{} Issues getting tenant data", tenant, namespace, name, cause);
+            throw new RestException(javax.ws.rs.core.Response.Status.INTERNAL_SERVER_ERROR, cause.getMessage());
+        });
+    }
+
+    /**
+     * Wait for an authorization or validation, bounded by the metadata operation timeout. The request thread
+     * blocks once for all the checks composed into the future.
+     */
+    private <R> R waitForResult(CompletableFuture<R> future) {
+        long timeoutSeconds = worker().getWorkerConfig().getZooKeeperOperationTimeoutSeconds();
         try {
-            // Check tenant exists
-            worker().getBrokerAdmin().tenants().getTenantInfo(tenant);
-
-        } catch (PulsarAdminException.NotAuthorizedException e) {
-            log.error("{}/{}/{} Client [{}] is not authorized to operate {} on tenant", tenant, namespace,
-                    name, clientRole, ComponentTypeUtils.toString(componentType));
-            throw new RestException(javax.ws.rs.core.Response.Status.UNAUTHORIZED,
-                    "client is not authorize to perform operation");
-        } catch (PulsarAdminException.NotFoundException e) {
-            log.error("{}/{}/{} Tenant {} does not exist", tenant, namespace, name, tenant);
-            throw new RestException(javax.ws.rs.core.Response.Status.BAD_REQUEST, "Tenant does not exist");
-        } catch (PulsarAdminException e) {
-            log.error("{}/{}/{} Issues getting tenant data", tenant, namespace, name, e);
+            if (timeoutSeconds > 0) {
+                return future.get(timeoutSeconds, SECONDS);
+            } else {
+                return future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             throw new RestException(javax.ws.rs.core.Response.Status.INTERNAL_SERVER_ERROR, e.getMessage());
+        } catch (TimeoutException e) {
+            log.warn("Time-out {} sec while validating the request", timeoutSeconds);
+            throw new RestException(javax.ws.rs.core.Response.Status.INTERNAL_SERVER_ERROR,
+                    "Time-out while validating the request");
+        } catch (ExecutionException e) {
+            Throwable cause = FutureUtil.unwrapCompletionException(e.getCause());
+            if (cause instanceof RestException) {
+                throw (RestException) cause;
+            }
+            throw new RestException(javax.ws.rs.core.Response.Status.INTERNAL_SERVER_ERROR, cause.getMessage());
         }
     }
 
@@ -590,6 +747,11 @@ public abstract class MeshComponentImpl<T extends io.kubernetes.client.common.Ku
 
     abstract void validateResourceObject(T obj) throws IllegalArgumentException;
 
+    /**
+     * The package url in the spec of a component, null if it does not run a package.
+     */
+    abstract String getPackageLocation(T obj);
+
     public Set<CompletableFuture<MetricsData>> fetchStatsFromGRPC(List<V1Pod> pods,
                                                                   String subdomain,
                                                                   String statefulSetName,
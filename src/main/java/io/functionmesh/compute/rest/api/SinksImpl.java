@@ -22,6 +22,7 @@ import static io.functionmesh.compute.util.KubernetesUtils.validateResourceOwner
 import static io.functionmesh.compute.util.KubernetesUtils.validateStatefulSet;
 import com.google.common.annotations.VisibleForTesting;
 import io.functionmesh.compute.MeshWorkerService;
+import io.functionmesh.compute.models.FunctionMeshConnectorDefinition;
 import io.functionmesh.compute.models.MeshWorkerServiceCustomConfig;
 import io.functionmesh.compute.sinks.models.V1alpha1Sink;
 import io.functionmesh.compute.sinks.models.V1alpha1SinkList;
@@ -137,19 +138,15 @@ public class SinksImpl extends MeshComponentImpl<V1alpha1Sink, V1alpha1SinkList>
             AuthenticationDataHttps clientAuthenticationDataHttps) {
         validateSinkEnabled();
         validateRegisterSinkRequestParams(tenant, namespace, sinkName, sinkConfig, uploadedInputStream != null);
-        this.validatePermission(tenant,
-                namespace,
-                clientRole,
-                clientAuthenticationDataHttps,
-                ComponentTypeUtils.toString(componentType));
-        this.validateTenantIsExist(tenant, namespace, sinkName, clientRole);
+        this.validatePermissionAndTenant(tenant, namespace, sinkName, clientRole, clientAuthenticationDataHttps);
         String packageURL = sinkPkgUrl;
         if (uploadedInputStream != null && worker().getMeshWorkerServiceCustomConfig().isUploadEnabled()) {
             try {
-                String tempDirectory = System.getProperty("java.io.tmpdir");
-                packageURL = PackageManagementServiceUtil.uploadPackageToPackageService(
-                        worker().getBrokerAdmin(), PackageManagementServiceUtil.PACKAGE_TYPE_SINK, tenant,
-                        namespace, sinkName, uploadedInputStream, fileDetail, tempDirectory);
+                packageURL = uploadPackage(PackageManagementServiceUtil.PACKAGE_TYPE_SINK, tenant, namespace,
+                        sinkName, uploadedInputStream, fileDetail);
+            } catch (RestException e) {
+                log.warn("register {}/{}/{} sink rejected: {}", tenant, namespace, sinkName, e.getMessage());
+                throw e;
             } catch (Exception e) {
                 log.error("register {}/{}/{} sink failed", tenant, namespace, sinkName, e);
                 throw new RestException(Response.Status.INTERNAL_SERVER_ERROR, e.getMessage());
@@ -205,19 +202,15 @@ public class SinksImpl extends MeshComponentImpl<V1alpha1Sink, V1alpha1SinkList>
             UpdateOptionsImpl updateOptions) {
         validateSinkEnabled();
         validateUpdateSinkRequestParams(tenant, namespace, sinkName, sinkConfig, uploadedInputStream != null);
-        this.validatePermission(tenant,
-                namespace,
-                clientRole,
-                clientAuthenticationDataHttps,
-                ComponentTypeUtils.toString(componentType));
-        this.validateTenantIsExist(tenant, namespace, sinkName, clientRole);
+        this.validatePermissionAndTenant(tenant, namespace, sinkName, clientRole, clientAuthenticationDataHttps);
         String packageURL = sinkPkgUrl;
         if (uploadedInputStream != null && worker().getMeshWorkerServiceCustomConfig().isUploadEnabled()) {
             try {
-                String tempDirectory = System.getProperty("java.io.tmpdir");
-                packageURL = PackageManagementServiceUtil.uploadPackageToPackageService(
-                        worker().getBrokerAdmin(), PackageManagementServiceUtil.PACKAGE_TYPE_FUNCTION, tenant,
-                        namespace, sinkName, uploadedInputStream, fileDetail, tempDirectory);
+                packageURL = uploadPackage(PackageManagementServiceUtil.PACKAGE_TYPE_SINK, tenant, namespace,
+                        sinkName, uploadedInputStream, fileDetail);
+            } catch (RestException e) {
+                log.warn("update {}/{}/{} sink rejected: {}", tenant, namespace, sinkName, e.getMessage());
+                throw e;
             } catch (Exception e) {
                 log.error("update {}/{}/{} sink failed", tenant, namespace, sinkName, e);
                 throw new RestException(Response.Status.INTERNAL_SERVER_ERROR, e.getMessage());
@@ -492,6 +485,14 @@ public class SinksImpl extends MeshComponentImpl<V1alpha1Sink, V1alpha1SinkList>
         return functionInstanceStatsList;
     }
 
+    @Override
+    String getPackageLocation(V1alpha1Sink obj) {
+        if (obj == null || obj.getSpec() == null || obj.getSpec().getJava() == null) {
+            return null;
+        }
+        return obj.getSpec().getJava().getJarLocation();
+    }
+
     @Override
     void validateResourceObject(V1alpha1Sink obj) throws IllegalArgumentException {
         if (obj == null) {
@@ -511,20 +512,20 @@ public class SinksImpl extends MeshComponentImpl<V1alpha1Sink, V1alpha1SinkList>
     @Override
     public List<ConnectorDefinition> getSinkList() {
         validateSinkEnabled();
-        List<ConnectorDefinition> connectorDefinitions = getListOfConnectors();
-        List<ConnectorDefinition> retval = new ArrayList<>();
-        for (ConnectorDefinition connectorDefinition : connectorDefinitions) {
-            if (!StringUtils.isEmpty(connectorDefinition.getSinkClass())) {
-                retval.add(connectorDefinition);
-            }
-        }
-        return retval;
+        return meshWorkerServiceSupplier.get().getConnectorsManager().getSinkDefinitions();
     }
 
     @Override
     public List<ConfigFieldDefinition> getSinkConfigDefinition(String name) {
         validateSinkEnabled();
-        return new ArrayList<>();
+        FunctionMeshConnectorDefinition definition =
+                meshWorkerServiceSupplier.get().getConnectorsManager().getConnectorDefinition(name);
+        if (definition == null || StringUtils.isEmpty(definition.getSinkClass())) {
+            throw new RestException(Response.Status.NOT_FOUND,
+                    String.format("builtin sink \"%s\" does not exist", name));
+        }
+        return meshWorkerServiceSupplier.get().getConnectorConfigDefinitionCache()
+                .getSinkConfigDefinition(definition);
     }
 
     private void upsertSink(final String tenant,
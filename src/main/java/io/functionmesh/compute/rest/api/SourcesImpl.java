@@ -22,6 +22,7 @@ import static io.functionmesh.compute.util.KubernetesUtils.validateResourceOwner
 import static io.functionmesh.compute.util.KubernetesUtils.validateStatefulSet;
 import com.google.common.annotations.VisibleForTesting;
 import io.functionmesh.compute.MeshWorkerService;
+import io.functionmesh.compute.models.FunctionMeshConnectorDefinition;
 import io.functionmesh.compute.models.MeshWorkerServiceCustomConfig;
 import io.functionmesh.compute.sources.models.V1alpha1Source;
 import io.functionmesh.compute.sources.models.V1alpha1SourceList;
@@ -147,19 +148,15 @@ public class SourcesImpl extends MeshComponentImpl<V1alpha1Source, V1alpha1Sourc
                                AuthenticationDataHttps clientAuthenticationDataHttps) {
         validateSourceEnabled();
         validateRegisterSourceRequestParams(tenant, namespace, sourceName, sourceConfig, uploadedInputStream != null);
-        this.validatePermission(tenant,
-                namespace,
-                clientRole,
-                clientAuthenticationDataHttps,
-                ComponentTypeUtils.toString(componentType));
-        this.validateTenantIsExist(tenant, namespace, sourceName, clientRole);
+        this.validatePermissionAndTenant(tenant, namespace, sourceName, clientRole, clientAuthenticationDataHttps);
         String packageURL = sourcePkgUrl;
         if (uploadedInputStream != null && worker().getMeshWorkerServiceCustomConfig().isUploadEnabled()) {
             try {
-                String tempDirectory = System.getProperty("java.io.tmpdir");
-                packageURL = PackageManagementServiceUtil.uploadPackageToPackageService(
-                        worker().getBrokerAdmin(), PackageManagementServiceUtil.PACKAGE_TYPE_SOURCE, tenant,
-                        namespace, sourceName, uploadedInputStream, fileDetail, tempDirectory);
+                packageURL = uploadPackage(PackageManagementServiceUtil.PACKAGE_TYPE_SOURCE, tenant, namespace,
+                        sourceName, uploadedInputStream, fileDetail);
+            } catch (RestException e) {
+                log.warn("register {}/{}/{} source rejected: {}", tenant, namespace, sourceName, e.getMessage());
+                throw e;
             } catch (Exception e) {
                 log.error("register {}/{}/{} source failed", tenant, namespace, sourceName, e);
                 throw new RestException(Response.Status.INTERNAL_SERVER_ERROR, e.getMessage());
@@ -209,19 +206,15 @@ public class SourcesImpl extends MeshComponentImpl<V1alpha1Source, V1alpha1Sourc
                              UpdateOptionsImpl updateOptions) {
         validateSourceEnabled();
         validateUpdateSourceRequestParams(tenant, namespace, sourceName, sourceConfig, uploadedInputStream != null);
-        this.validatePermission(tenant,
-                namespace,
-                clientRole,
-                clientAuthenticationDataHttps,
-                ComponentTypeUtils.toString(componentType));
-        this.validateTenantIsExist(tenant, namespace, sourceName, clientRole);
+        this.validatePermissionAndTenant(tenant, namespace, sourceName, clientRole, clientAuthenticationDataHttps);
         String packageURL = sourcePkgUrl;
         if (uploadedInputStream != null && worker().getMeshWorkerServiceCustomConfig().isUploadEnabled()) {
             try {
-                String tempDirectory = System.getProperty("java.io.tmpdir");
-                packageURL = PackageManagementServiceUtil.uploadPackageToPackageService(
-                        worker().getBrokerAdmin(), PackageManagementServiceUtil.PACKAGE_TYPE_SOURCE, tenant,
-                        namespace, sourceName, uploadedInputStream, fileDetail, tempDirectory);
+                packageURL = uploadPackage(PackageManagementServiceUtil.PACKAGE_TYPE_SOURCE, tenant, namespace,
+                        sourceName, uploadedInputStream, fileDetail);
+            } catch (RestException e) {
+                log.warn("update {}/{}/{} source rejected: {}", tenant, namespace, sourceName, e.getMessage());
+                throw e;
             } catch (Exception e) {
                 log.error("update {}/{}/{} source failed", tenant, namespace, sourceName, e);
                 throw new RestException(Response.Status.INTERNAL_SERVER_ERROR, e.getMessage());
@@ -422,19 +415,19 @@ public class SourcesImpl extends MeshComponentImpl<V1alpha1Source, V1alpha1Sourc
     @Override
     public List<ConnectorDefinition> getSourceList() {
         validateSourceEnabled();
-        List<ConnectorDefinition> connectorDefinitions = getListOfConnectors();
-        List<ConnectorDefinition> retval = new ArrayList<>();
-        for (ConnectorDefinition connectorDefinition : connectorDefinitions) {
-            if (!StringUtils.isEmpty(connectorDefinition.getSourceClass())) {
-                retval.add(connectorDefinition);
-            }
-        }
-        return retval;
+        return meshWorkerServiceSupplier.get().getConnectorsManager().getSourceDefinitions();
     }
 
     public List<ConfigFieldDefinition> getSourceConfigDefinition(String name) {
         validateSourceEnabled();
-        return new ArrayList<>();
+        FunctionMeshConnectorDefinition definition =
+                meshWorkerServiceSupplier.get().getConnectorsManager().getConnectorDefinition(name);
+        if (definition == null || StringUtils.isEmpty(definition.getSourceClass())) {
+            throw new RestException(Response.Status.NOT_FOUND,
+                    String.format("builtin source \"%s\" does not exist", name));
+        }
+        return meshWorkerServiceSupplier.get().getConnectorConfigDefinitionCache()
+                .getSourceConfigDefinition(definition);
     }
 
     private void upsertSource(final String tenant,
@@ -573,6 +566,14 @@ public class SourcesImpl extends MeshComponentImpl<V1alpha1Source, V1alpha1Sourc
         return functionInstanceStatsList;
     }
 
+    @Override
+    String getPackageLocation(V1alpha1Source obj) {
+        if (obj == null || obj.getSpec() == null || obj.getSpec().getJava() == null) {
+            return null;
+        }
+        return obj.getSpec().getJava().getJarLocation();
+    }
+
     @Override
     void validateResourceObject(V1alpha1Source obj) throws IllegalArgumentException {
         if (obj == null) {
@@ -0,0 +1,126 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.functionmesh.compute.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.google.gson.Gson;
+import io.functionmesh.compute.functions.models.FunctionsTypeAdapterFactory;
+import io.functionmesh.compute.functions.models.V1alpha1Function;
+import io.functionmesh.compute.functions.models.V1alpha1FunctionList;
+import io.functionmesh.compute.models.CustomRuntimeOptions;
+import io.functionmesh.compute.models.Oauth2Parameters;
+import io.functionmesh.compute.sinks.models.SinksTypeAdapterFactory;
+import io.functionmesh.compute.sinks.models.V1alpha1Sink;
+import io.functionmesh.compute.sinks.models.V1alpha1SinkList;
+import io.functionmesh.compute.sources.models.SourcesTypeAdapterFactory;
+import io.functionmesh.compute.sources.models.V1alpha1Source;
+import io.functionmesh.compute.sources.models.V1alpha1SourceList;
+import io.kubernetes.client.openapi.ApiClient;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pulsar.common.util.ObjectMapperFactory;
+
+/**
+ * The Gson and Jackson codecs shared by the worker. They are thread safe and keep the type adapters and
+ * (de)serializers they resolve, so the reflection is paid once, at startup, instead of on user requests.
+ */
+@Slf4j
+public class CodecUtil {
+
+    private static final Class<?>[] CRD_MODELS = {
+            V1alpha1Function.class, V1alpha1FunctionList.class,
+            V1alpha1Sink.class, V1alpha1SinkList.class,
+            V1alpha1Source.class, V1alpha1SourceList.class,
+    };
+
+    private static final Gson GSON = new Gson();
+
+    private static final ObjectMapper JSON_MAPPER = ObjectMapperFactory.create();
+
+    private static final ObjectMapper YAML_MAPPER = ObjectMapperFactory.createYaml();
+
+    // a default mapper, so that parameters which are not oauth2 parameters fail to parse and are kept as is
+    private static final ObjectMapper OAUTH2_PARAMETERS_MAPPER = new ObjectMapper();
+
+    private static final ObjectReader OAUTH2_PARAMETERS_READER =
+            OAUTH2_PARAMETERS_MAPPER.readerFor(Oauth2Parameters.class);
+
+    private static final ObjectWriter OAUTH2_PARAMETERS_WRITER =
+            OAUTH2_PARAMETERS_MAPPER.writerFor(Oauth2Parameters.class);
+
+    static {
+        GSON.getAdapter(CustomRuntimeOptions.class);
+    }
+
+    /**
+     * A shared json mapper configured like {@link ObjectMapperFactory#getThreadLocal()}.
+     */
+    public static ObjectMapper getJsonMapper() {
+        return JSON_MAPPER;
+    }
+
+    /**
+     * A shared yaml mapper configured like {@link ObjectMapperFactory#getThreadLocalYaml()}.
+     */
+    public static ObjectMapper getYamlMapper() {
+        return YAML_MAPPER;
+    }
+
+    public static CustomRuntimeOptions readCustomRuntimeOptions(String json) {
+        return GSON.fromJson(json, CustomRuntimeOptions.class);
+    }
+
+    public static String writeCustomRuntimeOptions(CustomRuntimeOptions customRuntimeOptions) {
+        return GSON.toJson(customRuntimeOptions, CustomRuntimeOptions.class);
+    }
+
+    public static Oauth2Parameters readOauth2Parameters(String json) throws JsonProcessingException {
+        return OAUTH2_PARAMETERS_READER.readValue(json);
+    }
+
+    public static byte[] writeOauth2Parameters(Oauth2Parameters oauth2Parameters) throws JsonProcessingException {
+        return OAUTH2_PARAMETERS_WRITER.writeValueAsBytes(oauth2Parameters);
+    }
+
+    /**
+     * Register the streaming type adapters generated for the function mesh CRD models on a kubernetes client, so
+     * the functions, sinks and sources are (de)serialized without reflection.
+     */
+    public static void registerCrdTypeAdapters(ApiClient apiClient) {
+        apiClient.getJSON().setGson(apiClient.getJSON().getGson().newBuilder()
+                .registerTypeAdapterFactory(new FunctionsTypeAdapterFactory())
+                .registerTypeAdapterFactory(new SinksTypeAdapterFactory())
+                .registerTypeAdapterFactory(new SourcesTypeAdapterFactory())
+                .create());
+    }
+
+    /**
+     * Resolve the type adapters of the function mesh CRD models on the Gson of a kubernetes client, which
+     * otherwise happens when the first function, sink or source is read or written.
+     */
+    public static void warmUp(ApiClient apiClient) {
+        Gson gson = apiClient.getJSON().getGson();
+        for (Class<?> model : CRD_MODELS) {
+            gson.getAdapter(model);
+        }
+        log.info("Resolved the json type adapters of {} function mesh models", CRD_MODELS.length);
+    }
+}
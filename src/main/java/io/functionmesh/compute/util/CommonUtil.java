@@ -18,14 +18,17 @@
  */
 package io.functionmesh.compute.util;
 
+import static io.functionmesh.compute.models.PackageMetadataProperties.PROPERTY_CHECKSUM;
 import static io.functionmesh.compute.models.PackageMetadataProperties.PROPERTY_FILE_NAME;
+import static io.functionmesh.compute.models.PackageMetadataProperties.PROPERTY_FILE_SIZE;
 import static io.functionmesh.compute.util.KubernetesUtils.GRPC_TIMEOUT_SECS;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Maps;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
-import com.google.gson.Gson;
 import com.google.protobuf.Empty;
 import io.functionmesh.compute.MeshWorkerService;
 import io.functionmesh.compute.models.CustomRuntimeOptions;
@@ -34,15 +37,23 @@ import io.kubernetes.client.openapi.models.V1ObjectMeta;
 import io.kubernetes.client.openapi.models.V1OwnerReference;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import javax.ws.rs.core.Response;
+import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang3.RandomStringUtils;
@@ -53,7 +64,7 @@ import org.apache.pulsar.client.admin.PulsarAdminException;
 import org.apache.pulsar.common.functions.FunctionConfig;
 import org.apache.pulsar.common.functions.Resources;
 import org.apache.pulsar.common.functions.Utils;
-import org.apache.pulsar.common.nar.NarClassLoader;
+import org.apache.pulsar.common.io.ConnectorDefinition;
 import org.apache.pulsar.common.policies.data.ExceptionInformation;
 import org.apache.pulsar.common.policies.data.FunctionInstanceStatsDataImpl;
 import org.apache.pulsar.common.policies.data.FunctionInstanceStatsImpl;
@@ -61,8 +72,6 @@ import org.apache.pulsar.common.util.RestException;
 import org.apache.pulsar.functions.proto.Function;
 import org.apache.pulsar.functions.proto.InstanceCommunication;
 import org.apache.pulsar.functions.proto.InstanceControlGrpc;
-import org.apache.pulsar.functions.utils.FunctionCommon;
-import org.apache.pulsar.functions.utils.io.ConnectorUtils;
 import org.apache.pulsar.packages.management.core.common.PackageMetadata;
 
 @Slf4j
@@ -80,7 +89,23 @@ public class CommonUtil {
     public static final String NAMESPACE_LABEL_CLAIM = "pulsar-namespace";
     public static final String COMPONENT_LABEL_CLAIM = "pulsar-component";
     public static final String ANNOTATION_MANAGED = "compute.functionmesh.io/managed";
+    public static final String PULSAR_IO_SERVICE_DESCRIPTOR = "META-INF/services/pulsar-io.yaml";
     private static final String CLUSTER_NAME_ENV = "clusterName";
+    private static final long CONNECTOR_DEFINITION_CACHE_SIZE = 1000;
+    private static final long OBJECT_NAME_CACHE_SIZE = 10000;
+
+    // connector definitions parsed from uploaded packages, keyed by the package url, checksum and size
+    private static final Cache<List<String>, ConnectorDefinition> CONNECTOR_DEFINITION_CACHE = CacheBuilder.newBuilder()
+            .maximumSize(CONNECTOR_DEFINITION_CACHE_SIZE)
+            .build();
+
+    // object names keyed by cluster, tenant, namespace and component name
+    private static final Cache<List<String>, String> OBJECT_NAME_CACHE = CacheBuilder.newBuilder()
+            .maximumSize(OBJECT_NAME_CACHE_SIZE)
+            .build();
+
+    // custom labels of each kind merged from the configs, merged again when a config replaces its labels
+    private static final Map<String, CustomLabelTemplate> CUSTOM_LABEL_TEMPLATES = new ConcurrentHashMap<>();
 
     public static String getClusterNameEnv() {
         return System.getenv(CLUSTER_NAME_ENV);
@@ -144,6 +169,19 @@ public class CommonUtil {
     }
 
     public static String createObjectName(String cluster, String tenant, String namespace, String functionName) {
+        if (functionName == null) {
+            return computeObjectName(cluster, tenant, namespace, functionName);
+        }
+        List<String> key = Arrays.asList(cluster, tenant, namespace, functionName);
+        String objectName = OBJECT_NAME_CACHE.getIfPresent(key);
+        if (objectName == null) {
+            objectName = computeObjectName(cluster, tenant, namespace, functionName);
+            OBJECT_NAME_CACHE.put(key, objectName);
+        }
+        return objectName;
+    }
+
+    private static String computeObjectName(String cluster, String tenant, String namespace, String functionName) {
         final String convertedJobName = toValidPodName(functionName);
         // use of functionName may cause naming collisions,
         // add a short hash here to avoid it
@@ -182,7 +220,7 @@ public class CommonUtil {
         if (Strings.isNotEmpty(customRuntimeOptionsJSON)) {
             try {
                 customRuntimeOptions =
-                        new Gson().fromJson(customRuntimeOptionsJSON, CustomRuntimeOptions.class);
+                        CodecUtil.readCustomRuntimeOptions(customRuntimeOptionsJSON);
             } catch (Exception ignored) {
                 throw new RestException(
                         Response.Status.BAD_REQUEST, "customRuntimeOptions cannot be deserialized.");
@@ -278,19 +316,27 @@ public class CommonUtil {
     }
 
     public static String getFilenameFromPackageMetadata(String functionPkgUrl, PulsarAdmin admin) {
+        return getPackageFileName(getPackageMetadata(functionPkgUrl, admin));
+    }
+
+    private static String getPackageFileName(PackageMetadata packageMetadata) {
+        if (packageMetadata != null && packageMetadata.getProperties() != null && packageMetadata.getProperties()
+                .containsKey(PROPERTY_FILE_NAME)
+                && StringUtils.isNotEmpty(packageMetadata.getProperties().get(PROPERTY_FILE_NAME))) {
+            return packageMetadata.getProperties().get(PROPERTY_FILE_NAME);
+        }
+        return DEFAULT_FUNCTION_EXECUTABLE;
+    }
+
+    private static PackageMetadata getPackageMetadata(String packageUrl, PulsarAdmin admin) {
         try {
-            PackageMetadata packageMetadata = admin.packages().getMetadata(functionPkgUrl);
-            if (packageMetadata != null && packageMetadata.getProperties() != null && packageMetadata.getProperties()
-                    .containsKey(PROPERTY_FILE_NAME)
-                    && StringUtils.isNotEmpty(packageMetadata.getProperties().get(PROPERTY_FILE_NAME))) {
-                return packageMetadata.getProperties().get(PROPERTY_FILE_NAME);
-            }
+            return admin.packages().getMetadata(packageUrl);
         } catch (PulsarAdminException.NotFoundException ex) {
-            log.warn("Not found package '{}' metadata", functionPkgUrl);
+            log.warn("Not found package '{}' metadata", packageUrl);
         } catch (Exception ex) {
-            log.warn("[{}] Failed to get package metadata", functionPkgUrl, ex);
+            log.warn("[{}] Failed to get package metadata", packageUrl, ex);
         }
-        return DEFAULT_FUNCTION_EXECUTABLE;
+        return null;
     }
 
     public static boolean isMapEmpty(Map<String, String> map) {
@@ -322,37 +368,46 @@ public class CommonUtil {
 
     public static Map<String, String> getCustomLabelClaims(String clusterName, String tenant, String namespace,
                                                            String compName, MeshWorkerService worker, String kind) {
-        Map<String, String> customLabelClaims = Maps.newHashMap();
+        Map<String, String> customLabels = worker != null ? getCustomLabels(worker, kind) : Collections.emptyMap();
+        Map<String, String> customLabelClaims = Maps.newHashMapWithExpectedSize(customLabels.size() + 4);
         customLabelClaims.put(CLUSTER_LABEL_CLAIM, clusterName);
         customLabelClaims.put(TENANT_LABEL_CLAIM, tenant);
         customLabelClaims.put(NAMESPACE_LABEL_CLAIM, namespace);
         customLabelClaims.put(COMPONENT_LABEL_CLAIM, compName);
-        if (worker != null) {
-            if (worker.getFactoryConfig() != null && worker.getFactoryConfig().getCustomLabels() != null
-                    && !worker.getFactoryConfig().getCustomLabels().isEmpty()) {
-                customLabelClaims.putAll(worker.getFactoryConfig().getCustomLabels());
+        customLabelClaims.putAll(customLabels);
+        return customLabelClaims;
+    }
+
+    private static Map<String, String> getCustomLabels(MeshWorkerService worker, String kind) {
+        Map<String, String> factoryLabels =
+                worker.getFactoryConfig() != null ? worker.getFactoryConfig().getCustomLabels() : null;
+        MeshWorkerServiceCustomConfig customConfig = worker.getMeshWorkerServiceCustomConfig();
+        Map<String, String> labels = null;
+        Map<String, String> kindLabels = null;
+        if (customConfig != null) {
+            labels = customConfig.getLabels();
+            if (kind.equals("Function")) {
+                kindLabels = customConfig.getFunctionLabels();
+            } else if (kind.equals("Sink")) {
+                kindLabels = customConfig.getSinkLabels();
+            } else if (kind.equals("Source")) {
+                kindLabels = customConfig.getSourceLabels();
             }
-            if (worker.getMeshWorkerServiceCustomConfig() != null) {
-                if (worker.getMeshWorkerServiceCustomConfig().getLabels() != null
-                        && !worker.getMeshWorkerServiceCustomConfig().getLabels().isEmpty()) {
-                    customLabelClaims.putAll(worker.getMeshWorkerServiceCustomConfig().getLabels());
-                }
-                if (kind.equals("Function") && worker.getMeshWorkerServiceCustomConfig().getFunctionLabels() != null
-                        && !worker.getMeshWorkerServiceCustomConfig().getFunctionLabels().isEmpty()) {
-                    customLabelClaims.putAll(worker.getMeshWorkerServiceCustomConfig().getFunctionLabels());
-                }
-                if (kind.equals("Sink") && worker.getMeshWorkerServiceCustomConfig().getSinkLabels() != null
-                        && !worker.getMeshWorkerServiceCustomConfig().getSinkLabels().isEmpty()) {
-                    customLabelClaims.putAll(worker.getMeshWorkerServiceCustomConfig().getSinkLabels());
-                }
-                if (kind.equals("Source") && worker.getMeshWorkerServiceCustomConfig().getSourceLabels() != null
-                        && !worker.getMeshWorkerServiceCustomConfig().getSourceLabels().isEmpty()) {
-                    customLabelClaims.putAll(worker.getMeshWorkerServiceCustomConfig().getSourceLabels());
+        }
+        CustomLabelTemplate template = CUSTOM_LABEL_TEMPLATES.get(kind);
+        if (template == null || template.factoryLabels != factoryLabels || template.labels != labels
+                || template.kindLabels != kindLabels) {
+            Map<String, String> merged = new HashMap<>();
+            for (Map<String, String> source : Arrays.asList(factoryLabels, labels, kindLabels)) {
+                if (source != null) {
+                    merged.putAll(source);
                 }
             }
+            template = new CustomLabelTemplate(factoryLabels, labels, kindLabels,
+                    Collections.unmodifiableMap(merged));
+            CUSTOM_LABEL_TEMPLATES.put(kind, template);
         }
-
-        return customLabelClaims;
+        return template.merged;
     }
 
     public static String getCustomLabelClaimsSelector(String clusterName, String tenant, String namespace) {
@@ -418,22 +473,32 @@ public class CommonUtil {
 
         return new Resources(cpu, ram, disk);
     }
-    public static File downloadPackageFile(MeshWorkerService worker, String packageName)
-            throws IOException, PulsarAdminException {
-        Path tempDirectory;
+    public static Path getDownloadDirectory(MeshWorkerService worker) throws IOException {
+        Path downloadDirectory;
         if (worker.getWorkerConfig().getDownloadDirectory() != null) {
-            tempDirectory = Paths.get(worker.getWorkerConfig().getDownloadDirectory());
+            downloadDirectory = Paths.get(worker.getWorkerConfig().getDownloadDirectory());
         } else {
             // use the Nar extraction directory as a temporary directory for downloaded files
-            tempDirectory = Paths.get(worker.getWorkerConfig().getNarExtractionDirectory());
+            downloadDirectory = Paths.get(worker.getWorkerConfig().getNarExtractionDirectory());
         }
-        if (Files.notExists(tempDirectory)) {
-            Files.createDirectories(tempDirectory);
+        if (Files.notExists(downloadDirectory)) {
+            Files.createDirectories(downloadDirectory);
         }
+        return downloadDirectory;
+    }
+
+    public static File downloadPackageFile(MeshWorkerService worker, String packageName)
+            throws IOException, PulsarAdminException {
         String fileName = String.format("function-%s.tmp", RandomStringUtils.random(5, true, true).toLowerCase());
         if (CommonUtil.getFilenameFromPackageMetadata(packageName, worker.getBrokerAdmin()) != null) {
             fileName = CommonUtil.getFilenameFromPackageMetadata(packageName, worker.getBrokerAdmin());
         }
+        return downloadPackage(worker, packageName, fileName);
+    }
+
+    private static File downloadPackage(MeshWorkerService worker, String packageName, String fileName)
+            throws IOException, PulsarAdminException {
+        Path tempDirectory = getDownloadDirectory(worker);
         Path filePath = Paths.get(tempDirectory.toString(), fileName);
         Files.deleteIfExists(filePath);
         worker.getBrokerAdmin().packages().download(packageName, filePath.toString());
@@ -442,39 +507,90 @@ public class CommonUtil {
 
     public static String getClassNameFromFile(MeshWorkerService worker, String packageUrl,
                                               Function.FunctionDetails.ComponentType componentType) throws Exception {
-        boolean isPkgUrlProvided = StringUtils.isNotEmpty(packageUrl);
-        File componentPackageFile = null;
-        if (isPkgUrlProvided) {
-            if (Utils.hasPackageTypePrefix(packageUrl)) {
-                componentPackageFile = downloadPackageFile(worker, packageUrl);
-            } else {
-                log.warn("get unsupported package url {}", packageUrl);
-                throw new IllegalArgumentException(
-                        "Function Package url is not valid. supported url (function/sink/source)");
-            }
+        if (StringUtils.isEmpty(packageUrl)) {
+            return null;
+        }
+        if (!Utils.hasPackageTypePrefix(packageUrl)) {
+            log.warn("get unsupported package url {}", packageUrl);
+            throw new IllegalArgumentException(
+                    "Function Package url is not valid. supported url (function/sink/source)");
+        }
+        if (componentType != Function.FunctionDetails.ComponentType.SINK
+                && componentType != Function.FunctionDetails.ComponentType.SOURCE) {
+            return null;
         }
 
-        if (componentPackageFile != null) {
-            try {
-                ClassLoader clsLoader = FunctionCommon.getClassLoaderFromPackage(componentType,
-                        null, componentPackageFile, worker.getWorkerConfig().getNarExtractionDirectory());
-                String className = null;
-                if (componentType == Function.FunctionDetails.ComponentType.SINK) {
-                    className = ConnectorUtils.getIOSinkClass((NarClassLoader) clsLoader);
-                } else if (componentType == Function.FunctionDetails.ComponentType.SOURCE) {
-                    className = ConnectorUtils.getIOSourceClass((NarClassLoader) clsLoader);
+        try {
+            PackageMetadata packageMetadata = getPackageMetadata(packageUrl, worker.getBrokerAdmin());
+            List<String> cacheKey = getConnectorDefinitionCacheKey(packageUrl, packageMetadata);
+            ConnectorDefinition connectorDefinition =
+                    cacheKey != null ? CONNECTOR_DEFINITION_CACHE.getIfPresent(cacheKey) : null;
+            if (connectorDefinition == null) {
+                File componentPackageFile = downloadPackage(worker, packageUrl, getPackageFileName(packageMetadata));
+                try {
+                    connectorDefinition = readConnectorDefinition(componentPackageFile);
+                } finally {
+                    componentPackageFile.delete();
                 }
-                if (StringUtils.isNotEmpty(className)) {
-                    return className;
+                if (cacheKey != null) {
+                    CONNECTOR_DEFINITION_CACHE.put(cacheKey, connectorDefinition);
                 }
-            } catch (Exception e) {
-                throw new RestException(Response.Status.BAD_REQUEST, e.getMessage());
-            } finally {
-                componentPackageFile.delete();
             }
+            return getConnectorClassName(connectorDefinition, componentType);
+        } catch (Exception e) {
+            throw new RestException(Response.Status.BAD_REQUEST, e.getMessage());
         }
+    }
 
+    // Read the connector definition from the package's service descriptor without extracting the archive
+    public static ConnectorDefinition readConnectorDefinition(File packageFile) throws IOException {
+        try (ZipFile zipFile = new ZipFile(packageFile)) {
+            ZipEntry entry = zipFile.getEntry(PULSAR_IO_SERVICE_DESCRIPTOR);
+            if (entry == null) {
+                throw new IOException(String.format("Could not find %s in package %s",
+                        PULSAR_IO_SERVICE_DESCRIPTOR, packageFile.getName()));
+            }
+            try (InputStream inputStream = zipFile.getInputStream(entry)) {
+                return CodecUtil.getYamlMapper().readValue(inputStream, ConnectorDefinition.class);
+            }
+        }
+    }
+
+    public static String getConnectorClassName(ConnectorDefinition connectorDefinition,
+                                               Function.FunctionDetails.ComponentType componentType)
+            throws IOException {
+        String className;
+        if (componentType == Function.FunctionDetails.ComponentType.SINK) {
+            className = connectorDefinition.getSinkClass();
+        } else {
+            className = connectorDefinition.getSourceClass();
+        }
+        if (StringUtils.isEmpty(className)) {
+            throw new IOException(String.format("The '%s' connector does not provide a %s implementation",
+                    connectorDefinition.getName(), componentType.name().toLowerCase()));
+        }
+        return className;
+    }
+
+    /**
+     * The checksum and size are recorded by the uploader of the package, they only identify the content together
+     * with the package url.
+     */
+    private static List<String> getConnectorDefinitionCacheKey(String packageUrl, PackageMetadata packageMetadata) {
+        if (packageMetadata != null && packageMetadata.getProperties() != null
+                && StringUtils.isNotEmpty(packageMetadata.getProperties().get(PROPERTY_CHECKSUM))
+                && StringUtils.isNotEmpty(packageMetadata.getProperties().get(PROPERTY_FILE_SIZE))) {
+            return Arrays.asList(packageUrl, packageMetadata.getProperties().get(PROPERTY_CHECKSUM),
+                    packageMetadata.getProperties().get(PROPERTY_FILE_SIZE));
+        }
         return null;
     }
 
+    @AllArgsConstructor
+    private static class CustomLabelTemplate {
+        private final Map<String, String> factoryLabels;
+        private final Map<String, String> labels;
+        private final Map<String, String> kindLabels;
+        private final Map<String, String> merged;
+    }
 }
@@ -26,7 +26,6 @@ import static io.functionmesh.compute.util.CommonUtil.buildDownloadPath;
 import static io.functionmesh.compute.util.CommonUtil.downloadPackageFile;
 import static io.functionmesh.compute.util.CommonUtil.getCustomLabelClaims;
 import static io.functionmesh.compute.util.CommonUtil.getExceptionInformation;
-import com.google.gson.Gson;
 import io.functionmesh.compute.MeshWorkerService;
 import io.functionmesh.compute.functions.models.V1alpha1Function;
 import io.functionmesh.compute.functions.models.V1alpha1FunctionSpec;
@@ -614,7 +613,7 @@ public class FunctionsUtil {
         resources.setRam(memoryQuantity.getNumber().longValue());
         functionConfig.setResources(resources);
 
-        String customRuntimeOptionsJSON = new Gson().toJson(customRuntimeOptions, CustomRuntimeOptions.class);
+        String customRuntimeOptionsJSON = CodecUtil.writeCustomRuntimeOptions(customRuntimeOptions);
         functionConfig.setCustomRuntimeOptions(customRuntimeOptionsJSON);
 
         if (Strings.isNotEmpty(v1alpha1FunctionSpec.getRuntimeFlags())) {
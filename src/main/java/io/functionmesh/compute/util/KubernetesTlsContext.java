@@ -0,0 +1,113 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.functionmesh.compute.util;
+
+import io.kubernetes.client.openapi.ApiClient;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import javax.net.ssl.SSLContext;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pulsar.common.util.TrustManagerProxy;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+
+/**
+ * TLS context trusting the kube-apiserver, shared by the function mesh proxy and the kubernetes clients.
+ *
+ * <p>The cluster CA is reloaded when the service account file is rotated, and all clients resume sessions from
+ * the same session cache.
+ */
+@Slf4j
+public class KubernetesTlsContext {
+
+    public static final String KUBERNETES_CA_CRT_PATH = "/var/run/secrets/kubernetes.io/serviceaccount/ca.crt";
+
+    private static final int TRUST_REFRESH_INTERVAL_SECONDS = 60;
+
+    private static final int SESSION_TIMEOUT_SECONDS = 3600;
+
+    private static volatile KubernetesTlsContext instance;
+
+    @Getter
+    private final TrustManagerProxy trustManager;
+
+    @Getter
+    private final SSLContext sslContext;
+
+    KubernetesTlsContext(String trustCertsFilePath, int refreshDurationSec, ScheduledExecutorService executor)
+            throws GeneralSecurityException {
+        try {
+            this.trustManager = new TrustManagerProxy(trustCertsFilePath, refreshDurationSec, executor);
+        } catch (IllegalArgumentException e) {
+            throw new GeneralSecurityException("Failed to load trust certs from " + trustCertsFilePath, e.getCause());
+        }
+        this.sslContext = SecurityUtil.createAutoRefreshSslContextForClient(trustManager, SESSION_TIMEOUT_SECONDS);
+    }
+
+    /**
+     * The context for the in-cluster CA, created on first use.
+     *
+     * @throws GeneralSecurityException if the CA can not be loaded, the next call tries again
+     */
+    public static KubernetesTlsContext getInstance() throws GeneralSecurityException {
+        KubernetesTlsContext context = instance;
+        if (context == null) {
+            synchronized (KubernetesTlsContext.class) {
+                context = instance;
+                if (context == null) {
+                    ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+                            new DefaultThreadFactory("kubernetes-tls-trust-refresher", true));
+                    try {
+                        context = new KubernetesTlsContext(KUBERNETES_CA_CRT_PATH, TRUST_REFRESH_INTERVAL_SECONDS,
+                                executor);
+                    } catch (GeneralSecurityException e) {
+                        executor.shutdownNow();
+                        throw e;
+                    }
+                    instance = context;
+                    log.info("Loaded kubernetes CA from {}, refreshed every {} seconds",
+                            KUBERNETES_CA_CRT_PATH, TRUST_REFRESH_INTERVAL_SECONDS);
+                }
+            }
+        }
+        return context;
+    }
+
+    /**
+     * A jetty client ssl factory over the shared context.
+     */
+    public SslContextFactory.Client newSslContextFactory() {
+        SslContextFactory.Client contextFactory = new SslContextFactory.Client(true);
+        contextFactory.setSslContext(sslContext);
+        return contextFactory;
+    }
+
+    /**
+     * Make the kubernetes client use the shared context, the ssl settings of the client must not be changed
+     * afterwards.
+     */
+    public ApiClient configure(ApiClient apiClient) {
+        apiClient.setHttpClient(apiClient.getHttpClient().newBuilder()
+                .sslSocketFactory(sslContext.getSocketFactory(), trustManager)
+                .build());
+        return apiClient;
+    }
+}
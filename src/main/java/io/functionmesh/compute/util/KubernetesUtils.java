@@ -20,7 +20,6 @@ package io.functionmesh.compute.util;
 
 import static java.net.HttpURLConnection.HTTP_CONFLICT;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.Maps;
 import io.functionmesh.compute.MeshWorkerService;
 import io.functionmesh.compute.models.MeshWorkerServiceCustomConfig;
@@ -119,10 +118,9 @@ public class KubernetesUtils {
         valueMap.put(CLIENT_AUTHENTICATION_PLUGIN_CLAIM, workerConfig.getBrokerClientAuthenticationPlugin().getBytes());
         byte[] finalParams = workerConfig.getBrokerClientAuthenticationParameters().getBytes();
         try {
-            ObjectMapper mapper = new ObjectMapper();
-            Oauth2Parameters oauth2Parameters = mapper.readValue(workerConfig.getBrokerClientAuthenticationParameters(),
-                    Oauth2Parameters.class);
-            finalParams = mapper.writeValueAsBytes(oauth2Parameters);
+            Oauth2Parameters oauth2Parameters =
+                    CodecUtil.readOauth2Parameters(workerConfig.getBrokerClientAuthenticationParameters());
+            finalParams = CodecUtil.writeOauth2Parameters(oauth2Parameters);
         } catch (JsonProcessingException e) { // use the original parameters when exception happens
         }
         valueMap.put(CLIENT_AUTHENTICATION_PARAMETERS_CLAIM, finalParams);
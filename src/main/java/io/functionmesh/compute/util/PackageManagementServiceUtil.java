@@ -25,12 +25,16 @@ import static io.functionmesh.compute.models.PackageMetadataProperties.PROPERTY_
 import static io.functionmesh.compute.models.PackageMetadataProperties.PROPERTY_MANAGED_BY_MESH_WORKER_SERVICE;
 import static io.functionmesh.compute.models.PackageMetadataProperties.PROPERTY_NAMESPACE;
 import static io.functionmesh.compute.models.PackageMetadataProperties.PROPERTY_TENANT;
+import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import javax.ws.rs.core.StreamingOutput;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.RandomStringUtils;
@@ -39,6 +43,7 @@ import org.apache.pulsar.client.admin.PulsarAdmin;
 import org.apache.pulsar.client.admin.PulsarAdminException;
 import org.apache.pulsar.functions.proto.Function;
 import org.apache.pulsar.packages.management.core.common.PackageMetadata;
+import org.apache.pulsar.packages.management.core.common.PackageName;
 import org.glassfish.jersey.media.multipart.FormDataContentDisposition;
 
 @Slf4j
@@ -49,7 +54,7 @@ public class PackageManagementServiceUtil {
     public static final String PACKAGE_TYPE_SINK = "sink";
     public static final String PACKAGE_TYPE_SOURCE = "source";
 
-    private static String generatePackageURL(final String type,
+    public static String generatePackageURL(final String type,
                                              final String tenant,
                                              final String namespace,
                                              final String functionName) {
@@ -70,10 +75,36 @@ public class PackageManagementServiceUtil {
         }
         Path filePath = Files.createTempFile(tempDirectoryPath,
                 RandomStringUtils.random(5, true, true).toLowerCase(), fileDetail.getFileName());
-        FileUtils.copyInputStreamToFile(uploadedInputStream, filePath.toFile());
-        uploadedInputStream.close();
+        try {
+            // compute the checksum while streaming, the same value as FileUtils.checksumCRC32 of the stored file
+            CRC32 crc32 = new CRC32();
+            try (CheckedInputStream checkedInputStream = new CheckedInputStream(uploadedInputStream, crc32)) {
+                FileUtils.copyInputStreamToFile(checkedInputStream, filePath.toFile());
+            }
+            return uploadPackageFileToPackageService(admin, type, tenant, namespace, functionName, filePath,
+                    fileDetail.getFileName(), filePath.toFile().length(), crc32.getValue());
+        } finally {
+            Files.deleteIfExists(filePath);
+        }
+    }
 
+    /**
+     * Upload a package file already stored on the worker, the checksum is the CRC32 of the file content.
+     */
+    public static String uploadPackageFileToPackageService(PulsarAdmin admin,
+                                                           final String type,
+                                                           final String tenant,
+                                                           final String namespace,
+                                                           final String functionName,
+                                                           final Path filePath,
+                                                           final String fileName,
+                                                           final long fileSize,
+                                                           final long checksum) throws Exception {
         String packageName = generatePackageURL(type, tenant, namespace, functionName);
+        if (isPackageUnchanged(admin, packageName, fileName, fileSize, checksum)) {
+            log.info("Package '{}' is unchanged, skip uploading file {}", packageName, fileName);
+            return packageName;
+        }
         try {
             log.info("Try to overwrite the function file if it is already exists at '{}'.", packageName);
             deletePackageFromPackageService(admin, type, tenant, namespace, functionName);
@@ -87,18 +118,39 @@ public class PackageManagementServiceUtil {
         properties.put(PROPERTY_TENANT, tenant);
         properties.put(PROPERTY_NAMESPACE, namespace);
         properties.put(PROPERTY_FUNCTION_NAME, functionName);
-        properties.put(PROPERTY_FILE_NAME, fileDetail.getFileName());
-        properties.put(PROPERTY_FILE_SIZE, Long.toString(filePath.toFile().length()));
-        long checksum = FileUtils.checksumCRC32(filePath.toFile());
+        properties.put(PROPERTY_FILE_NAME, fileName);
+        properties.put(PROPERTY_FILE_SIZE, Long.toString(fileSize));
         properties.put(PROPERTY_CHECKSUM, Long.toString(checksum));
         properties.put(PROPERTY_MANAGED_BY_MESH_WORKER_SERVICE, String.valueOf(true));
         packageMetadata.setProperties(properties);
         admin.packages().upload(packageMetadata, packageName, filePath.toString());
         log.info("upload file {} to package service {} successfully", filePath, packageName);
-        Files.deleteIfExists(filePath);
         return packageName;
     }
 
+    private static boolean isPackageUnchanged(PulsarAdmin admin,
+                                              final String packageName,
+                                              final String fileName,
+                                              final long fileSize,
+                                              final long checksum) {
+        try {
+            PackageMetadata packageMetadata = admin.packages().getMetadata(packageName);
+            if (packageMetadata == null || packageMetadata.getProperties() == null
+                    || !MESH_WORKER_SERVICE_PACKAGE_CONTACT.equals(packageMetadata.getContact())) {
+                return false;
+            }
+            Map<String, String> properties = packageMetadata.getProperties();
+            return Long.toString(checksum).equals(properties.get(PROPERTY_CHECKSUM))
+                    && Long.toString(fileSize).equals(properties.get(PROPERTY_FILE_SIZE))
+                    && StringUtils.equals(fileName, properties.get(PROPERTY_FILE_NAME));
+        } catch (PulsarAdminException.NotFoundException ex) {
+            return false;
+        } catch (Exception ex) {
+            log.warn("[{}] Failed to get package metadata, the package will be uploaded", packageName, ex);
+            return false;
+        }
+    }
+
     public static void deletePackageFromPackageService(PulsarAdmin admin,
                                                        final String type,
                                                        final String tenant,
@@ -120,6 +172,35 @@ public class PackageManagementServiceUtil {
         }
     }
 
+    /**
+     * Serve a package from the package service.
+     *
+     * <p>The package admin API only downloads to a file, so every transfer downloads the package into a temp file
+     * of the download directory when the response is written, and deletes it once the response is done. A missing
+     * package is reported before the response starts.
+     */
+    public static StreamingOutput downloadPackageFromPackageService(PulsarAdmin admin,
+                                                                    final String packageURL,
+                                                                    Path downloadDirectory)
+            throws PulsarAdminException {
+        String packageName = PackageName.get(packageURL).toString();
+        admin.packages().getMetadata(packageName);
+        return output -> {
+            Path filePath = downloadDirectory.resolve(packageName.replaceAll("[^a-zA-Z0-9.@-]", "_") + "-"
+                    + RandomStringUtils.random(5, true, true).toLowerCase() + ".tmp");
+            try {
+                admin.packages().download(packageName, filePath.toString());
+                // a client disconnect fails the write and stops the transfer
+                Files.copy(filePath, output);
+                output.flush();
+            } catch (PulsarAdminException e) {
+                throw new IOException("Failed to download package " + packageName, e);
+            } finally {
+                Files.deleteIfExists(filePath);
+            }
+        };
+    }
+
     public static String getPackageTypeFromComponentType(Function.FunctionDetails.ComponentType componentType) {
         switch (componentType) {
             case FUNCTION:
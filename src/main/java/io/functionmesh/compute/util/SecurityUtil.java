@@ -60,6 +60,7 @@ import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLException;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509ExtendedTrustManager;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.pulsar.common.classification.InterfaceAudience;
@@ -255,6 +256,22 @@ public class SecurityUtil {
         return sslContexBuilder.build();
     }
 
+    /**
+     * Creates a JDK {@link SSLContext} over a refreshing trust manager such as {@link TrustManagerProxy}, so
+     * rotated trust certs are picked up without building a new context. Client sessions are kept for
+     * {@code sessionTimeoutSec}, connections to a server already seen resume the session instead of doing a
+     * full handshake.
+     */
+    public static SSLContext createAutoRefreshSslContextForClient(X509ExtendedTrustManager trustManager,
+                                                                  int sessionTimeoutSec)
+            throws GeneralSecurityException {
+        // JDK provider, jetty negotiates h2 through the JDK ALPN api
+        SSLContext sslCtx = SSLContext.getInstance("TLS");
+        sslCtx.init(null, new TrustManager[]{trustManager}, new SecureRandom());
+        sslCtx.getClientSessionContext().setSessionTimeout(sessionTimeoutSec);
+        return sslCtx;
+    }
+
     public static SslContext createNettySslContextForClient(SslProvider sslProvider, boolean allowInsecureConnection,
                                                             String trustCertsFilePath,
                                                             String certFilePath, String keyFilePath,
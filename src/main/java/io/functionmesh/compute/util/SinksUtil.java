@@ -26,7 +26,6 @@ import static io.functionmesh.compute.util.CommonUtil.getClassNameFromFile;
 import static io.functionmesh.compute.util.CommonUtil.getCustomLabelClaims;
 import static io.functionmesh.compute.util.CommonUtil.getExceptionInformation;
 import static org.apache.pulsar.common.functions.Utils.BUILTIN;
-import com.google.gson.Gson;
 import io.functionmesh.compute.MeshWorkerService;
 import io.functionmesh.compute.models.CustomRuntimeOptions;
 import io.functionmesh.compute.models.FunctionMeshConnectorDefinition;
@@ -87,6 +86,9 @@ public class SinksUtil {
             location = sinkPkgUrl;
         }
         String archive = sinkConfig.getArchive();
+        // resolve the connector once, the whole conversion sees the same catalog
+        FunctionMeshConnectorDefinition connectorDefinition = connectorsManager == null ? null
+                : connectorsManager.getConnectorDefinition(archive.replaceFirst("^builtin://", ""));
         SinkConfigUtils.ExtractedSinkDetails extractedSinkDetails =
                 new SinkConfigUtils.ExtractedSinkDetails("", customRuntimeOptions.getInputTypeClassName());
         Map<String, String> customLabelClaims =
@@ -147,7 +149,7 @@ public class SinksUtil {
 
         if (connectorsManager != null && archive.startsWith(BUILTIN)) {
             String connectorType = archive.replaceFirst("^builtin://", "");
-            FunctionMeshConnectorDefinition definition = connectorsManager.getConnectorDefinition(connectorType);
+            FunctionMeshConnectorDefinition definition = connectorDefinition;
             if (definition != null) {
                 v1alpha1SinkSpec.setImage(definition.toFullImageURL());
                 if (definition.getSinkClass() != null && v1alpha1SinkSpec.getClassName() == null) {
@@ -205,9 +207,7 @@ public class SinksUtil {
             if (connectorsManager == null) {
                 v1alpha1SinkSpecInput.setTypeClassName("[B");
             } else {
-                String connectorType = archive.replaceFirst("^builtin://", "");
-                FunctionMeshConnectorDefinition functionMeshConnectorDefinition =
-                        connectorsManager.getConnectorDefinition(connectorType);
+                FunctionMeshConnectorDefinition functionMeshConnectorDefinition = connectorDefinition;
                 if (functionMeshConnectorDefinition == null) {
                     v1alpha1SinkSpecInput.setTypeClassName("[B");
                 } else {
@@ -515,7 +515,7 @@ public class SinksUtil {
         resources.setRam(memoryQuantity.getNumber().longValue());
         sinkConfig.setResources(resources);
 
-        String customRuntimeOptionsJSON = new Gson().toJson(customRuntimeOptions, CustomRuntimeOptions.class);
+        String customRuntimeOptionsJSON = CodecUtil.writeCustomRuntimeOptions(customRuntimeOptions);
         sinkConfig.setCustomRuntimeOptions(customRuntimeOptionsJSON);
 
         if (Strings.isNotEmpty(v1alpha1SinkSpec.getRuntimeFlags())) {
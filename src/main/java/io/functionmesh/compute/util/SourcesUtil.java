@@ -25,7 +25,6 @@ import static io.functionmesh.compute.util.CommonUtil.buildDownloadPath;
 import static io.functionmesh.compute.util.CommonUtil.getClassNameFromFile;
 import static io.functionmesh.compute.util.CommonUtil.getCustomLabelClaims;
 import static org.apache.pulsar.common.functions.Utils.BUILTIN;
-import com.google.gson.Gson;
 import io.functionmesh.compute.MeshWorkerService;
 import io.functionmesh.compute.models.CustomRuntimeOptions;
 import io.functionmesh.compute.models.FunctionMeshConnectorDefinition;
@@ -85,6 +84,9 @@ public class SourcesUtil {
             location = sourcePkgUrl;
         }
         String archive = sourceConfig.getArchive();
+        // resolve the connector once, the whole conversion sees the same catalog
+        FunctionMeshConnectorDefinition connectorDefinition = connectorsManager == null ? null
+                : connectorsManager.getConnectorDefinition(archive.replaceFirst("^builtin://", ""));
         SourceConfigUtils.ExtractedSourceDetails extractedSourceDetails =
                 new SourceConfigUtils.ExtractedSourceDetails("", customRuntimeOptions.getInputTypeClassName());
         Map<String, String> customLabelClaims =
@@ -141,7 +143,7 @@ public class SourcesUtil {
         v1alpha1SourceSpecJava.setExtraDependenciesDir(extraDependenciesDir);
         if (connectorsManager != null && archive.startsWith(BUILTIN)) {
             String connectorType = archive.replaceFirst("^builtin://", "");
-            FunctionMeshConnectorDefinition definition = connectorsManager.getConnectorDefinition(connectorType);
+            FunctionMeshConnectorDefinition definition = connectorDefinition;
             if (definition != null) {
                 v1alpha1SourceSpec.setImage(definition.toFullImageURL());
                 if (definition.getSourceClass() != null && v1alpha1SourceSpec.getClassName() == null) {
@@ -210,9 +212,7 @@ public class SourcesUtil {
             if (connectorsManager == null) {
                 v1alpha1SourceSpecOutput.setTypeClassName("[B");
             } else {
-                String connectorType = archive.replaceFirst("^builtin://", "");
-                FunctionMeshConnectorDefinition functionMeshConnectorDefinition =
-                        connectorsManager.getConnectorDefinition(connectorType);
+                FunctionMeshConnectorDefinition functionMeshConnectorDefinition = connectorDefinition;
                 if (functionMeshConnectorDefinition == null) {
                     v1alpha1SourceSpecOutput.setTypeClassName("[B");
                 } else {
@@ -429,7 +429,7 @@ public class SourcesUtil {
         resources.setRam(memoryQuantity.getNumber().longValue());
         sourceConfig.setResources(resources);
 
-        String customRuntimeOptionsJSON = new Gson().toJson(customRuntimeOptions, CustomRuntimeOptions.class);
+        String customRuntimeOptionsJSON = CodecUtil.writeCustomRuntimeOptions(customRuntimeOptions);
         sourceConfig.setCustomRuntimeOptions(customRuntimeOptionsJSON);
 
         if (Strings.isNotEmpty(v1alpha1SourceSpec.getRuntimeFlags())) {
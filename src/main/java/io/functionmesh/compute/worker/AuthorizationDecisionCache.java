@@ -0,0 +1,181 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.functionmesh.compute.worker;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.functionmesh.compute.models.MeshWorkerServiceCustomConfig;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import lombok.Data;
+import org.apache.pulsar.functions.proto.Function;
+
+/**
+ * Caches the result of authorizing a role for the components of a namespace.
+ *
+ * <p>Granted and denied decisions are kept in separate caches so a denial can expire sooner than a grant,
+ * letting a newly granted permission take effect quickly. A TTL of 0 disables caching for that kind of decision.
+ *
+ * <p>A decision computed while an invalidation happens is not cached: callers read {@link #getGeneration()}
+ * before authorizing and pass it to {@link #put}.
+ */
+public class AuthorizationDecisionCache {
+
+    private final Cache<Key, Boolean> allowedDecisions;
+    private final Cache<Key, Boolean> deniedDecisions;
+
+    // bumped before every invalidation
+    private final AtomicLong generation = new AtomicLong();
+
+    public AuthorizationDecisionCache(long maxSize, long allowTtlMs, long denyTtlMs) {
+        this.allowedDecisions = buildCache(maxSize, allowTtlMs);
+        this.deniedDecisions = buildCache(maxSize, denyTtlMs);
+    }
+
+    public static AuthorizationDecisionCache fromConfig(MeshWorkerServiceCustomConfig customConfig) {
+        if (customConfig == null) {
+            customConfig = new MeshWorkerServiceCustomConfig();
+        }
+        return new AuthorizationDecisionCache(customConfig.getAuthorizationCacheMaxSize(),
+                customConfig.getAuthorizationCacheAllowTtlMs(), customConfig.getAuthorizationCacheDenyTtlMs());
+    }
+
+    private static Cache<Key, Boolean> buildCache(long maxSize, long ttlMs) {
+        if (maxSize <= 0 || ttlMs <= 0) {
+            return null;
+        }
+        return CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttlMs, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /**
+     * @return the cached decision, or null if the role has to be authorized again
+     */
+    public Boolean get(String role, String tenant, String namespace,
+                       Function.FunctionDetails.ComponentType componentType) {
+        if (role == null) {
+            return null;
+        }
+        Key key = new Key(role, tenant, namespace, componentType);
+        if (allowedDecisions != null && allowedDecisions.getIfPresent(key) != null) {
+            return true;
+        }
+        if (deniedDecisions != null && deniedDecisions.getIfPresent(key) != null) {
+            return false;
+        }
+        return null;
+    }
+
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    public void put(String role, String tenant, String namespace,
+                    Function.FunctionDetails.ComponentType componentType, boolean authorized) {
+        put(role, tenant, namespace, componentType, authorized, generation.get());
+    }
+
+    /**
+     * Cache a decision, unless the cache was invalidated since {@code generation} was read.
+     */
+    public void put(String role, String tenant, String namespace,
+                    Function.FunctionDetails.ComponentType componentType, boolean authorized, long generation) {
+        if (role == null || generation != this.generation.get()) {
+            return;
+        }
+        Key key = new Key(role, tenant, namespace, componentType);
+        if (authorized) {
+            if (deniedDecisions != null) {
+                deniedDecisions.invalidate(key);
+            }
+            if (allowedDecisions != null) {
+                allowedDecisions.put(key, Boolean.TRUE);
+            }
+        } else {
+            if (allowedDecisions != null) {
+                allowedDecisions.invalidate(key);
+            }
+            if (deniedDecisions != null) {
+                deniedDecisions.put(key, Boolean.FALSE);
+            }
+        }
+        // an invalidation which started after the check above may have missed the decision
+        if (generation != this.generation.get()) {
+            remove(key);
+        }
+    }
+
+    public void invalidate(String role, String tenant, String namespace,
+                           Function.FunctionDetails.ComponentType componentType) {
+        generation.incrementAndGet();
+        remove(new Key(role, tenant, namespace, componentType));
+    }
+
+    private void remove(Key key) {
+        if (allowedDecisions != null) {
+            allowedDecisions.invalidate(key);
+        }
+        if (deniedDecisions != null) {
+            deniedDecisions.invalidate(key);
+        }
+    }
+
+    public void invalidateTenant(String tenant) {
+        invalidateIf(key -> key.getTenant().equals(tenant));
+    }
+
+    public void invalidateNamespace(String tenant, String namespace) {
+        invalidateIf(key -> key.getTenant().equals(tenant) && key.getNamespace().equals(namespace));
+    }
+
+    public void invalidateRole(String role) {
+        invalidateIf(key -> key.getRole().equals(role));
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        if (allowedDecisions != null) {
+            allowedDecisions.invalidateAll();
+        }
+        if (deniedDecisions != null) {
+            deniedDecisions.invalidateAll();
+        }
+    }
+
+    private void invalidateIf(Predicate<Key> predicate) {
+        generation.incrementAndGet();
+        if (allowedDecisions != null) {
+            allowedDecisions.asMap().keySet().removeIf(predicate);
+        }
+        if (deniedDecisions != null) {
+            deniedDecisions.asMap().keySet().removeIf(predicate);
+        }
+    }
+
+    @Data
+    private static class Key {
+        private final String role;
+        private final String tenant;
+        private final String namespace;
+        private final Function.FunctionDetails.ComponentType componentType;
+    }
+}
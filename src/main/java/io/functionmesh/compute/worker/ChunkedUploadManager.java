@@ -0,0 +1,318 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.functionmesh.compute.worker;
+
+import io.functionmesh.compute.util.PackageManagementServiceUtil;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import javax.ws.rs.core.Response;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.pulsar.client.admin.PulsarAdmin;
+import org.apache.pulsar.common.util.RestException;
+
+/**
+ * Resumable chunked uploads of large packages.
+ *
+ * <p>A client opens an upload session, then sends the package in chunks, each with the offset it starts at and
+ * the CRC32 of its content. Chunks are appended to the session file as they arrive, a chunk that fails its
+ * checksum or breaks off is discarded, and the session reports the offset to resume from. Once all bytes are
+ * received the session is committed, which hands the assembled file to the package service. Sessions idle for
+ * longer than the session timeout are swept in the background.
+ */
+@Slf4j
+public class ChunkedUploadManager implements Closeable {
+
+    private static final String SESSION_FILE_SUFFIX = ".upload";
+    private static final int CHUNK_BUFFER_SIZE = 64 * 1024;
+    private static final long MAX_EXPIRY_INTERVAL_MS = 60000;
+
+    private final Map<String, UploadSession> sessions = new ConcurrentHashMap<>();
+    @Getter
+    private final Path uploadDirectory;
+    private final long sessionTimeoutMs;
+    private final int maxSessions;
+    private final ScheduledExecutorService expiryExecutor;
+
+    public ChunkedUploadManager(Path uploadDirectory, long sessionTimeoutMs, int maxSessions) throws IOException {
+        this.uploadDirectory = uploadDirectory;
+        this.sessionTimeoutMs = sessionTimeoutMs;
+        this.maxSessions = maxSessions;
+        Files.createDirectories(uploadDirectory);
+        // sessions are not kept across restarts, drop the files they left behind
+        try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(uploadDirectory, "*" + SESSION_FILE_SUFFIX)) {
+            for (Path leftover : leftovers) {
+                Files.deleteIfExists(leftover);
+            }
+        }
+        if (sessionTimeoutMs > 0) {
+            long intervalMs = Math.min(sessionTimeoutMs, MAX_EXPIRY_INTERVAL_MS);
+            expiryExecutor = Executors.newSingleThreadScheduledExecutor(
+                    new DefaultThreadFactory("mesh-chunked-upload-expiry", true));
+            expiryExecutor.scheduleWithFixedDelay(this::expireSessions, intervalMs, intervalMs,
+                    TimeUnit.MILLISECONDS);
+        } else {
+            expiryExecutor = null;
+        }
+    }
+
+    /**
+     * Open an upload session.
+     *
+     * @param owner identifies the caller, only the same caller can use the session
+     */
+    public UploadSession createSession(final String packageType,
+                                       final String tenant,
+                                       final String namespace,
+                                       final String componentName,
+                                       final String owner,
+                                       final String fileName,
+                                       final long totalSize) throws IOException {
+        if (StringUtils.isEmpty(fileName)) {
+            throw new RestException(Response.Status.BAD_REQUEST, "File name is not provided");
+        }
+        if (totalSize <= 0) {
+            throw new RestException(Response.Status.BAD_REQUEST, "Package size must be positive");
+        }
+        expireSessions();
+        if (maxSessions > 0 && sessions.size() >= maxSessions) {
+            throw new RestException(Response.Status.TOO_MANY_REQUESTS,
+                    "Too many chunked upload sessions, please retry later");
+        }
+        String sessionId = UUID.randomUUID().toString();
+        UploadSession session = new UploadSession(sessionId, packageType, tenant, namespace, componentName, owner,
+                fileName, totalSize, uploadDirectory.resolve(sessionId + SESSION_FILE_SUFFIX));
+        Files.createFile(session.filePath);
+        sessions.put(sessionId, session);
+        log.info("Created upload session {} for {} {}/{}/{} ({} bytes)", sessionId, packageType, tenant, namespace,
+                componentName, totalSize);
+        return session;
+    }
+
+    public UploadSession getSession(final String sessionId) {
+        UploadSession session = sessionId != null ? sessions.get(sessionId) : null;
+        if (session == null || session.isExpired(System.currentTimeMillis())) {
+            throw new RestException(Response.Status.NOT_FOUND,
+                    String.format("Upload session %s does not exist", sessionId));
+        }
+        return session;
+    }
+
+    /**
+     * Append a chunk to the session file.
+     *
+     * @param offset the position of the chunk in the package, must be the resume offset of the session
+     * @param checksum the CRC32 of the chunk content
+     * @return the session, its resume offset includes the chunk
+     */
+    public UploadSession appendChunk(final String sessionId,
+                                     final long offset,
+                                     final long checksum,
+                                     final InputStream chunk) throws IOException {
+        UploadSession session = getSession(sessionId);
+        synchronized (session) {
+            session.checkOpen();
+            if (offset != session.receivedBytes) {
+                throw new RestException(Response.Status.CONFLICT, String.format(
+                        "Chunk offset %d does not match the resume offset %d", offset, session.receivedBytes));
+            }
+            session.lastUpdatedMs = System.currentTimeMillis();
+            CRC32 crc32 = new CRC32();
+            long position = offset;
+            try (FileChannel fileChannel = FileChannel.open(session.filePath, StandardOpenOption.WRITE)) {
+                try {
+                    byte[] buffer = new byte[CHUNK_BUFFER_SIZE];
+                    int n;
+                    while ((n = chunk.read(buffer)) != -1) {
+                        if (position + n > session.totalSize) {
+                            throw new RestException(Response.Status.BAD_REQUEST,
+                                    "Chunk exceeds the declared package size " + session.totalSize);
+                        }
+                        crc32.update(buffer, 0, n);
+                        ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, n);
+                        while (byteBuffer.hasRemaining()) {
+                            position += fileChannel.write(byteBuffer, position);
+                        }
+                    }
+                    if (crc32.getValue() != checksum) {
+                        throw new RestException(Response.Status.BAD_REQUEST, String.format(
+                                "Chunk checksum mismatch at offset %d, expected %d but was %d",
+                                offset, checksum, crc32.getValue()));
+                    }
+                } catch (IOException | RuntimeException e) {
+                    // discard the partial chunk, the client resends it from the resume offset
+                    fileChannel.truncate(offset);
+                    throw e;
+                }
+            }
+            session.receivedBytes = position;
+            session.lastUpdatedMs = System.currentTimeMillis();
+            return session;
+        }
+    }
+
+    /**
+     * Upload the assembled package to the package service and close the session.
+     *
+     * @return the package url to register the component with
+     */
+    public String commit(final String sessionId, PulsarAdmin admin) throws Exception {
+        UploadSession session = getSession(sessionId);
+        synchronized (session) {
+            session.checkOpen();
+            if (session.receivedBytes != session.totalSize) {
+                throw new RestException(Response.Status.CONFLICT, String.format(
+                        "Upload session %s is incomplete, received %d of %d bytes",
+                        sessionId, session.receivedBytes, session.totalSize));
+            }
+            session.lastUpdatedMs = System.currentTimeMillis();
+            String packageURL = PackageManagementServiceUtil.uploadPackageFileToPackageService(admin,
+                    session.packageType, session.tenant, session.namespace, session.componentName,
+                    session.filePath, session.fileName, session.totalSize,
+                    FileUtils.checksumCRC32(session.filePath.toFile()));
+            removeSession(session);
+            return packageURL;
+        }
+    }
+
+    public void abort(final String sessionId) throws IOException {
+        UploadSession session = getSession(sessionId);
+        synchronized (session) {
+            removeSession(session);
+        }
+    }
+
+    public void expireSessions() {
+        long now = System.currentTimeMillis();
+        Iterator<UploadSession> iterator = sessions.values().iterator();
+        while (iterator.hasNext()) {
+            UploadSession session = iterator.next();
+            if (session.isExpired(now)) {
+                synchronized (session) {
+                    if (!session.isExpired(System.currentTimeMillis())) {
+                        continue;
+                    }
+                    log.info("Upload session {} expired after {} ms", session.sessionId, sessionTimeoutMs);
+                    try {
+                        removeSession(session);
+                    } catch (IOException e) {
+                        log.warn("Failed to delete the file of upload session {}", session.sessionId, e);
+                    }
+                }
+            }
+        }
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    @Override
+    public void close() {
+        if (expiryExecutor != null) {
+            expiryExecutor.shutdownNow();
+        }
+        for (UploadSession session : sessions.values()) {
+            synchronized (session) {
+                try {
+                    removeSession(session);
+                } catch (IOException e) {
+                    log.warn("Failed to delete the file of upload session {}", session.sessionId, e);
+                }
+            }
+        }
+    }
+
+    private void removeSession(UploadSession session) throws IOException {
+        session.closed = true;
+        sessions.remove(session.sessionId, session);
+        Files.deleteIfExists(session.filePath);
+    }
+
+    /**
+     * The state of an upload session, {@link #getReceivedBytes()} is the offset the next chunk must start at.
+     */
+    @Getter
+    public class UploadSession {
+        private final String sessionId;
+        private final String packageType;
+        private final String tenant;
+        private final String namespace;
+        private final String componentName;
+        @Getter(AccessLevel.NONE)
+        private final String owner;
+        private final String fileName;
+        private final long totalSize;
+        @Getter(AccessLevel.NONE)
+        private final Path filePath;
+        private volatile long receivedBytes = 0;
+        private volatile long lastUpdatedMs = System.currentTimeMillis();
+        private volatile boolean closed = false;
+
+        private UploadSession(String sessionId, String packageType, String tenant, String namespace,
+                              String componentName, String owner, String fileName, long totalSize, Path filePath) {
+            this.sessionId = sessionId;
+            this.packageType = packageType;
+            this.tenant = tenant;
+            this.namespace = namespace;
+            this.componentName = componentName;
+            this.owner = owner;
+            this.fileName = fileName;
+            this.totalSize = totalSize;
+            this.filePath = filePath;
+        }
+
+        public boolean belongsTo(String packageType, String tenant, String namespace, String componentName,
+                                 String owner) {
+            return this.packageType.equals(packageType) && this.tenant.equals(tenant)
+                    && this.namespace.equals(namespace) && this.componentName.equals(componentName)
+                    && this.owner.equals(owner);
+        }
+
+        private boolean isExpired(long now) {
+            return sessionTimeoutMs > 0 && now - lastUpdatedMs > sessionTimeoutMs;
+        }
+
+        private void checkOpen() {
+            if (closed) {
+                throw new RestException(Response.Status.NOT_FOUND,
+                        String.format("Upload session %s does not exist", sessionId));
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.functionmesh.compute.worker;
+
+import io.functionmesh.compute.models.FunctionMeshConnectorDefinition;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import lombok.AccessLevel;
+import lombok.Getter;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.pulsar.common.io.ConnectorDefinition;
+
+/**
+ * An immutable snapshot of the connector catalog, with the views served by the connector endpoints computed
+ * once when the catalog is loaded.
+ */
+@Getter
+public class ConnectorCatalog {
+
+    static final ConnectorCatalog EMPTY = new ConnectorCatalog(new TreeMap<>());
+
+    /**
+     * All connectors by name.
+     */
+    private final NavigableMap<String, FunctionMeshConnectorDefinition> connectors;
+
+    private final List<ConnectorDefinition> connectorDefinitions;
+
+    /**
+     * The connectors with a sink class.
+     */
+    private final List<ConnectorDefinition> sinkDefinitions;
+
+    /**
+     * The connectors with a source class.
+     */
+    private final List<ConnectorDefinition> sourceDefinitions;
+
+    @Getter(AccessLevel.NONE)
+    private final Map<String, FunctionMeshConnectorDefinition> bySinkClass;
+
+    @Getter(AccessLevel.NONE)
+    private final Map<String, FunctionMeshConnectorDefinition> bySourceClass;
+
+    ConnectorCatalog(NavigableMap<String, FunctionMeshConnectorDefinition> connectors) {
+        List<ConnectorDefinition> all = new ArrayList<>(connectors.size());
+        List<ConnectorDefinition> sinks = new ArrayList<>();
+        List<ConnectorDefinition> sources = new ArrayList<>();
+        Map<String, FunctionMeshConnectorDefinition> sinkClasses = new HashMap<>();
+        Map<String, FunctionMeshConnectorDefinition> sourceClasses = new HashMap<>();
+        for (FunctionMeshConnectorDefinition definition : connectors.values()) {
+            all.add(definition);
+            if (StringUtils.isNotEmpty(definition.getSinkClass())) {
+                sinks.add(definition);
+                // the first connector by name wins if several share a class
+                sinkClasses.putIfAbsent(definition.getSinkClass(), definition);
+            }
+            if (StringUtils.isNotEmpty(definition.getSourceClass())) {
+                sources.add(definition);
+                sourceClasses.putIfAbsent(definition.getSourceClass(), definition);
+            }
+        }
+        this.connectors = Collections.unmodifiableNavigableMap(connectors);
+        this.connectorDefinitions = Collections.unmodifiableList(all);
+        this.sinkDefinitions = Collections.unmodifiableList(sinks);
+        this.sourceDefinitions = Collections.unmodifiableList(sources);
+        this.bySinkClass = Collections.unmodifiableMap(sinkClasses);
+        this.bySourceClass = Collections.unmodifiableMap(sourceClasses);
+    }
+
+    public FunctionMeshConnectorDefinition getConnectorDefinition(String name) {
+        return connectors.get(name);
+    }
+
+    public FunctionMeshConnectorDefinition getConnectorDefinitionBySinkClass(String sinkClass) {
+        return bySinkClass.get(sinkClass);
+    }
+
+    public FunctionMeshConnectorDefinition getConnectorDefinitionBySourceClass(String sourceClass) {
+        return bySourceClass.get(sourceClass);
+    }
+}
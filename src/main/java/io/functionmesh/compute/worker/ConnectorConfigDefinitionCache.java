@@ -0,0 +1,252 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.functionmesh.compute.worker;
+
+import io.functionmesh.compute.models.FunctionMeshConnectorDefinition;
+import io.functionmesh.compute.models.MeshWorkerServiceCustomConfig;
+import io.functionmesh.compute.util.CodecUtil;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.pulsar.common.io.ConfigFieldDefinition;
+import org.apache.pulsar.common.nar.NarClassLoader;
+import org.apache.pulsar.functions.utils.io.ConnectorUtils;
+import org.apache.pulsar.functions.worker.WorkerConfig;
+
+/**
+ * The config fields of the built-in connectors, derived from the {@code sinkConfigClass} and
+ * {@code sourceConfigClass} of their definitions.
+ *
+ * <p>The config classes are loaded once per connector version on a background thread, from the connector NAR
+ * if it is found in the connectors directory, else from the worker class path. Results are kept in memory and
+ * in a directory, so a restarted worker does not load them again. A failed load is not kept, it is retried with
+ * a backoff and on the next catalog refresh. Lookups never load classes, a connector whose fields are not known
+ * yet has no config fields.
+ */
+@Slf4j
+public class ConnectorConfigDefinitionCache implements AutoCloseable {
+
+    private static final String DEFAULT_CACHE_DIRECTORY = "mesh-worker-connector-config-definitions";
+
+    private static final long DEFAULT_INITIAL_RETRY_DELAY_MS = 10000;
+
+    private static final long DEFAULT_MAX_RETRY_DELAY_MS = 600000;
+
+    private final Path connectorsDirectory;
+
+    private final String narExtractionDirectory;
+
+    private final Path cacheDirectory;
+
+    private final long initialRetryDelayMs;
+
+    private final long maxRetryDelayMs;
+
+    private final ScheduledExecutorService executor;
+
+    private final Map<String, CompletableFuture<ConfigDefinitions>> definitions = new ConcurrentHashMap<>();
+
+    // the number of failed loads of the connector versions which are retried
+    private final Map<String, Integer> failures = new ConcurrentHashMap<>();
+
+    public ConnectorConfigDefinitionCache(Path connectorsDirectory, String narExtractionDirectory,
+                                          Path cacheDirectory) {
+        this(connectorsDirectory, narExtractionDirectory, cacheDirectory, DEFAULT_INITIAL_RETRY_DELAY_MS,
+                DEFAULT_MAX_RETRY_DELAY_MS);
+    }
+
+    ConnectorConfigDefinitionCache(Path connectorsDirectory, String narExtractionDirectory, Path cacheDirectory,
+                                   long initialRetryDelayMs, long maxRetryDelayMs) {
+        this.connectorsDirectory = connectorsDirectory;
+        this.narExtractionDirectory = narExtractionDirectory;
+        this.cacheDirectory = cacheDirectory;
+        this.initialRetryDelayMs = initialRetryDelayMs;
+        this.maxRetryDelayMs = maxRetryDelayMs;
+        this.executor = Executors.newSingleThreadScheduledExecutor(
+                new DefaultThreadFactory("mesh-connector-config-definitions", true));
+    }
+
+    public static ConnectorConfigDefinitionCache fromConfig(WorkerConfig workerConfig,
+                                                            MeshWorkerServiceCustomConfig customConfig) {
+        if (customConfig == null) {
+            customConfig = new MeshWorkerServiceCustomConfig();
+        }
+        Path cacheDirectory = StringUtils.isNotEmpty(customConfig.getConnectorConfigDefinitionDirectory())
+                ? Paths.get(customConfig.getConnectorConfigDefinitionDirectory())
+                : Paths.get(System.getProperty("java.io.tmpdir"), DEFAULT_CACHE_DIRECTORY);
+        return new ConnectorConfigDefinitionCache(Paths.get(workerConfig.getConnectorsDirectory()),
+                workerConfig.getNarExtractionDirectory(), cacheDirectory);
+    }
+
+    /**
+     * Derive the config fields of the connectors of a new catalog, and forget the versions which are gone.
+     */
+    public void refresh(ConnectorCatalog catalog) {
+        Set<String> keys = new HashSet<>();
+        for (FunctionMeshConnectorDefinition definition : catalog.getConnectors().values()) {
+            String key = key(definition);
+            keys.add(key);
+            definitions.compute(key, (k, loading) -> loading == null || loading.isCompletedExceptionally()
+                    ? load(k, definition) : loading);
+        }
+        definitions.keySet().retainAll(keys);
+        failures.keySet().retainAll(keys);
+    }
+
+    private CompletableFuture<ConfigDefinitions> load(String key, FunctionMeshConnectorDefinition definition) {
+        CompletableFuture<ConfigDefinitions> future =
+                CompletableFuture.supplyAsync(() -> loadDefinitions(key, definition), executor);
+        future.whenComplete((loaded, e) -> {
+            if (e == null) {
+                failures.remove(key);
+                return;
+            }
+            int attempts = failures.merge(key, 1, Integer::sum);
+            long delayMs = Math.min(initialRetryDelayMs << Math.min(attempts - 1, 20), maxRetryDelayMs);
+            log.warn("Cannot derive the config fields of connector {}, retry in {} ms", key, delayMs,
+                    e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+            if (!executor.isShutdown()) {
+                // a refresh may have replaced the failed load already, or dropped the connector version
+                executor.schedule(() -> definitions.computeIfPresent(key,
+                        (k, loading) -> loading == future ? load(k, definition) : loading),
+                        delayMs, TimeUnit.MILLISECONDS);
+            }
+        });
+        return future;
+    }
+
+    public List<ConfigFieldDefinition> getSinkConfigDefinition(FunctionMeshConnectorDefinition definition) {
+        ConfigDefinitions loaded = getNow(definition);
+        return loaded == null ? Collections.emptyList() : loaded.getSinkConfigDefinition();
+    }
+
+    public List<ConfigFieldDefinition> getSourceConfigDefinition(FunctionMeshConnectorDefinition definition) {
+        ConfigDefinitions loaded = getNow(definition);
+        return loaded == null ? Collections.emptyList() : loaded.getSourceConfigDefinition();
+    }
+
+    CompletableFuture<ConfigDefinitions> getFuture(FunctionMeshConnectorDefinition definition) {
+        return definitions.get(key(definition));
+    }
+
+    private ConfigDefinitions getNow(FunctionMeshConnectorDefinition definition) {
+        String key = key(definition);
+        CompletableFuture<ConfigDefinitions> future = definitions.get(key);
+        if (future != null && future.isDone() && !future.isCompletedExceptionally()) {
+            return future.join();
+        }
+        if (failures.containsKey(key)) {
+            log.warn("The config fields of connector {} failed to be derived, they are retried", key);
+        } else {
+            log.info("The config fields of connector {} are not derived yet", key);
+        }
+        return null;
+    }
+
+    private ConfigDefinitions loadDefinitions(String key, FunctionMeshConnectorDefinition definition) {
+        File cached = cacheDirectory.resolve(key + ".json").toFile();
+        if (cached.isFile()) {
+            try {
+                return CodecUtil.getJsonMapper().readValue(cached, ConfigDefinitions.class);
+            } catch (IOException e) {
+                log.warn("Ignore unreadable config definitions of connector {} in {}", key, cached, e);
+            }
+        }
+
+        ConfigDefinitions loaded;
+        try {
+            loaded = deriveDefinitions(definition);
+        } catch (Exception | LinkageError e) {
+            // neither kept nor stored, the load is retried
+            throw new CompletionException(e);
+        }
+
+        try {
+            Files.createDirectories(cacheDirectory);
+            Path tmp = Files.createTempFile(cacheDirectory, key, ".tmp");
+            CodecUtil.getJsonMapper().writeValue(tmp.toFile(), loaded);
+            Files.move(tmp, cached.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Failed to store the config definitions of connector {} in {}", key, cacheDirectory, e);
+        }
+        log.info("Derived {} sink and {} source config fields of connector {}",
+                loaded.getSinkConfigDefinition().size(), loaded.getSourceConfigDefinition().size(), key);
+        return loaded;
+    }
+
+    ConfigDefinitions deriveDefinitions(FunctionMeshConnectorDefinition definition) throws Exception {
+        File nar = connectorsDirectory.resolve(definition.getId() + "-" + definition.getVersion() + ".nar").toFile();
+        if (nar.isFile()) {
+            try (NarClassLoader classLoader = NarClassLoader.getFromArchive(nar, Collections.emptySet(),
+                    narExtractionDirectory)) {
+                return loadDefinitions(classLoader, definition);
+            }
+        }
+        return loadDefinitions(getClass().getClassLoader(), definition);
+    }
+
+    private static ConfigDefinitions loadDefinitions(ClassLoader classLoader,
+                                                     FunctionMeshConnectorDefinition definition) throws Exception {
+        List<ConfigFieldDefinition> sink = StringUtils.isEmpty(definition.getSinkConfigClass())
+                ? Collections.emptyList()
+                : ConnectorUtils.getConnectorConfigDefinition(classLoader, definition.getSinkConfigClass());
+        List<ConfigFieldDefinition> source = StringUtils.isEmpty(definition.getSourceConfigClass())
+                ? Collections.emptyList()
+                : ConnectorUtils.getConnectorConfigDefinition(classLoader, definition.getSourceConfigClass());
+        return new ConfigDefinitions(sink, source);
+    }
+
+    private static String key(FunctionMeshConnectorDefinition definition) {
+        String id = definition.getId() != null ? definition.getId() : definition.getName();
+        return (id + "-" + definition.getVersion()).replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class ConfigDefinitions {
+        private List<ConfigFieldDefinition> sinkConfigDefinition;
+        private List<ConfigFieldDefinition> sourceConfigDefinition;
+    }
+}
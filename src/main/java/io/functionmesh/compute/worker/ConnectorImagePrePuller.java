@@ -0,0 +1,240 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.functionmesh.compute.worker;
+
+import com.google.common.hash.Hashing;
+import io.functionmesh.compute.models.FunctionMeshConnectorDefinition;
+import io.functionmesh.compute.models.MeshWorkerServiceCustomConfig;
+import io.kubernetes.client.custom.Quantity;
+import io.kubernetes.client.openapi.ApiException;
+import io.kubernetes.client.openapi.apis.AppsV1Api;
+import io.kubernetes.client.openapi.models.V1Container;
+import io.kubernetes.client.openapi.models.V1DaemonSet;
+import io.kubernetes.client.openapi.models.V1DaemonSetSpec;
+import io.kubernetes.client.openapi.models.V1LabelSelector;
+import io.kubernetes.client.openapi.models.V1LocalObjectReference;
+import io.kubernetes.client.openapi.models.V1ObjectMeta;
+import io.kubernetes.client.openapi.models.V1PodSpec;
+import io.kubernetes.client.openapi.models.V1PodTemplateSpec;
+import io.kubernetes.client.openapi.models.V1ResourceRequirements;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Keep the images of the built-in connectors pulled on every node, so scaled out connector instances start on
+ * warm nodes.
+ *
+ * <p>A DaemonSet runs one init container per distinct connector image of the catalog, each exiting right away,
+ * and a pause container keeping the pod, and so the pulled images, on the node. The DaemonSet is synced on a
+ * background thread whenever the catalog changes; catalogs arriving while a sync is running are coalesced and
+ * a failed sync is retried unless a newer catalog supersedes it. The DaemonSet is only replaced when its pod
+ * template changes, and deleted when the catalog has no connector images.
+ */
+@Slf4j
+public class ConnectorImagePrePuller implements AutoCloseable {
+
+    static final String POD_TEMPLATE_HASH_ANNOTATION = "compute.functionmesh.io/connector-image-pre-pull-hash";
+
+    private static final String NAME_LABEL = "app.kubernetes.io/name";
+
+    private static final String MANAGED_BY_LABEL = "app.kubernetes.io/managed-by";
+
+    private static final String MANAGED_BY = "function-mesh-worker-service";
+
+    private static final List<String> EXIT_COMMAND = Arrays.asList("sh", "-c", "exit 0");
+
+    private static final long RETRY_DELAY_MS = 30000;
+
+    private final AppsV1Api appsV1Api;
+
+    private final String namespace;
+
+    private final String name;
+
+    private final String pauseImage;
+
+    private final String imagePullPolicy;
+
+    private final List<V1LocalObjectReference> imagePullSecrets;
+
+    private final long retryDelayMs;
+
+    private final ScheduledExecutorService executor;
+
+    private final AtomicReference<ConnectorCatalog> pending = new AtomicReference<>();
+
+    public ConnectorImagePrePuller(AppsV1Api appsV1Api, String namespace,
+                                   MeshWorkerServiceCustomConfig customConfig) {
+        this(appsV1Api, namespace, customConfig, RETRY_DELAY_MS);
+    }
+
+    ConnectorImagePrePuller(AppsV1Api appsV1Api, String namespace, MeshWorkerServiceCustomConfig customConfig,
+                            long retryDelayMs) {
+        this.appsV1Api = appsV1Api;
+        this.namespace = namespace;
+        this.name = customConfig.getConnectorImagePrePullDaemonSetName();
+        this.pauseImage = customConfig.getConnectorImagePrePullPauseImage();
+        this.imagePullPolicy = customConfig.getImagePullPolicy();
+        this.imagePullSecrets = customConfig.getImagePullSecrets();
+        this.retryDelayMs = retryDelayMs;
+        this.executor = Executors.newSingleThreadScheduledExecutor(
+                new DefaultThreadFactory("mesh-connector-image-pre-pull", true));
+    }
+
+    /**
+     * Sync the DaemonSet with the connector images of a new catalog in the background.
+     */
+    public void refresh(ConnectorCatalog catalog) {
+        if (pending.getAndSet(catalog) == null) {
+            executor.execute(this::sync);
+        }
+    }
+
+    void sync() {
+        ConnectorCatalog catalog = pending.getAndSet(null);
+        if (catalog == null) {
+            return;
+        }
+        try {
+            apply(getConnectorImages(catalog));
+        } catch (ApiException e) {
+            log.warn("Failed to sync the connector image pre-pull DaemonSet {}/{}: {} {}, retry in {} ms",
+                    namespace, name, e.getCode(), e.getResponseBody(), retryDelayMs, e);
+            if (pending.compareAndSet(null, catalog)) {
+                executor.schedule(this::sync, retryDelayMs, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private void apply(SortedSet<String> images) throws ApiException {
+        V1DaemonSet existing = read();
+        if (images.isEmpty()) {
+            if (existing != null) {
+                // the response is not parsed, it is either a status or the deleted DaemonSet
+                appsV1Api.getApiClient().execute(appsV1Api.deleteNamespacedDaemonSetCall(
+                        name, namespace, null, null, null, null, null, null, null));
+                log.info("Deleted the connector image pre-pull DaemonSet {}/{}", namespace, name);
+            }
+            return;
+        }
+
+        V1DaemonSet daemonSet = buildDaemonSet(images);
+        if (existing == null) {
+            appsV1Api.createNamespacedDaemonSet(namespace, daemonSet, null, null, null);
+            log.info("Created the connector image pre-pull DaemonSet {}/{} for images {}", namespace, name, images);
+        } else if (!getPodTemplateHash(daemonSet).equals(getPodTemplateHash(existing))) {
+            daemonSet.getMetadata().setResourceVersion(existing.getMetadata().getResourceVersion());
+            appsV1Api.replaceNamespacedDaemonSet(name, namespace, daemonSet, null, null, null);
+            log.info("Updated the connector image pre-pull DaemonSet {}/{} for images {}", namespace, name, images);
+        }
+    }
+
+    private V1DaemonSet read() throws ApiException {
+        try {
+            return appsV1Api.readNamespacedDaemonSet(name, namespace, null, null, null);
+        } catch (ApiException e) {
+            if (e.getCode() == HttpURLConnection.HTTP_NOT_FOUND) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    static SortedSet<String> getConnectorImages(ConnectorCatalog catalog) {
+        SortedSet<String> images = new TreeSet<>();
+        for (FunctionMeshConnectorDefinition definition : catalog.getConnectors().values()) {
+            if (StringUtils.isNotEmpty(definition.getImageRepository())) {
+                images.add(definition.toFullImageURL());
+            }
+        }
+        return images;
+    }
+
+    V1DaemonSet buildDaemonSet(SortedSet<String> images) {
+        Map<String, String> selector = Collections.singletonMap(NAME_LABEL, name);
+        Map<String, String> labels = new HashMap<>(selector);
+        labels.put(MANAGED_BY_LABEL, MANAGED_BY);
+
+        // the init containers run one at a time, so the pod requests no more than a single one of them
+        V1ResourceRequirements resources = new V1ResourceRequirements()
+                .putRequestsItem("cpu", Quantity.fromString("10m"))
+                .putRequestsItem("memory", Quantity.fromString("16Mi"));
+        List<V1Container> initContainers = new ArrayList<>(images.size());
+        for (String image : images) {
+            initContainers.add(new V1Container()
+                    .name("connector-" + initContainers.size())
+                    .image(image)
+                    .imagePullPolicy(imagePullPolicy)
+                    .command(EXIT_COMMAND)
+                    .resources(resources));
+        }
+
+        V1PodTemplateSpec template = new V1PodTemplateSpec()
+                .metadata(new V1ObjectMeta().labels(labels))
+                .spec(new V1PodSpec()
+                        .initContainers(initContainers)
+                        .containers(Collections.singletonList(new V1Container()
+                                .name("pause")
+                                .image(pauseImage)
+                                .resources(resources)))
+                        .imagePullSecrets(imagePullSecrets)
+                        .terminationGracePeriodSeconds(0L));
+        String hash = Hashing.sha256().hashString(appsV1Api.getApiClient().getJSON().serialize(template),
+                StandardCharsets.UTF_8).toString();
+
+        return new V1DaemonSet()
+                .apiVersion("apps/v1")
+                .kind("DaemonSet")
+                .metadata(new V1ObjectMeta()
+                        .name(name)
+                        .namespace(namespace)
+                        .labels(labels)
+                        .putAnnotationsItem(POD_TEMPLATE_HASH_ANNOTATION, hash))
+                .spec(new V1DaemonSetSpec()
+                        .selector(new V1LabelSelector().matchLabels(selector))
+                        .template(template));
+    }
+
+    private static String getPodTemplateHash(V1DaemonSet daemonSet) {
+        Map<String, String> annotations = daemonSet.getMetadata() != null
+                ? daemonSet.getMetadata().getAnnotations() : null;
+        String hash = annotations != null ? annotations.get(POD_TEMPLATE_HASH_ANNOTATION) : null;
+        return hash != null ? hash : "";
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
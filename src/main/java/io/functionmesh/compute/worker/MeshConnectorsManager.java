@@ -18,64 +18,366 @@
  */
 package io.functionmesh.compute.worker;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.gson.reflect.TypeToken;
 import io.functionmesh.compute.models.FunctionMeshConnectorDefinition;
+import io.functionmesh.compute.util.CodecUtil;
+import io.kubernetes.client.openapi.ApiClient;
+import io.kubernetes.client.openapi.apis.CoreV1Api;
+import io.kubernetes.client.openapi.models.V1ConfigMap;
+import io.kubernetes.client.util.Watch;
+import io.netty.util.concurrent.DefaultThreadFactory;
 import java.io.IOException;
+import java.lang.reflect.Type;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
 import java.util.TreeMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.pulsar.common.io.ConnectorDefinition;
-import org.apache.pulsar.common.util.ObjectMapperFactory;
 
 @Slf4j
-public class MeshConnectorsManager {
+public class MeshConnectorsManager implements AutoCloseable {
     private static final String PULSAR_IO_CONNECTORS_CONFIG = "conf/connectors.yaml";
 
+    // wait for the writes of an update to settle before reading the file
+    private static final long WATCH_SETTLE_MS = 500;
+
+    private static final int CONFIG_MAP_WATCH_TIMEOUT_SECONDS = 300;
+
+    private static final long CONFIG_MAP_WATCH_RETRY_INTERVAL_MS = 5000;
+
+    private static final Type CONFIG_MAP_WATCH_EVENT_TYPE = new TypeToken<Watch.Response<V1ConfigMap>>() {
+    }.getType();
+
+    private final Path configPath;
+
+    /**
+     * The current catalog, an immutable snapshot which is swapped as a whole on reload.
+     */
     @Getter
-    private volatile TreeMap<String, FunctionMeshConnectorDefinition> connectors;
+    private volatile ConnectorCatalog catalog;
+
+    private volatile byte[] loadedConfig;
+
+    private ExecutorService watchExecutor;
+
+    private WatchService watchService;
+
+    private volatile String configMapName;
+
+    private volatile boolean closed;
+
+    private final List<Consumer<ConnectorCatalog>> catalogListeners = new CopyOnWriteArrayList<>();
+
+    private volatile Watch<V1ConfigMap> configMapWatch;
 
     public MeshConnectorsManager() {
-        this.connectors = searchForConnectors();
+        this(Paths.get(PULSAR_IO_CONNECTORS_CONFIG));
     }
 
-    public static TreeMap<String, FunctionMeshConnectorDefinition> searchForConnectors() {
-        Path path = Paths.get(PULSAR_IO_CONNECTORS_CONFIG).toAbsolutePath();
-        log.info("Connectors configs in {}", path);
+    public MeshConnectorsManager(Path configPath) {
+        this.configPath = configPath.toAbsolutePath();
+        this.catalog = ConnectorCatalog.EMPTY;
+        reloadConnectors();
+    }
 
+    /**
+     * Parse and validate a connector catalog.
+     *
+     * @param strict whether an invalid definition rejects the whole catalog, else it is skipped and the last
+     *               definition of a name wins
+     * @throws IOException if the catalog is not valid yaml
+     * @throws IllegalArgumentException if the catalog is strictly validated and a connector definition is
+     *                                  incomplete or defined twice
+     */
+    static ConnectorCatalog parseConnectors(byte[] configs, boolean strict)
+            throws IOException {
+        FunctionMeshConnectorDefinition[] data = CodecUtil.getYamlMapper()
+                .readValue(new String(configs, StandardCharsets.UTF_8), FunctionMeshConnectorDefinition[].class);
+        if (data == null) {
+            throw new IllegalArgumentException("The connector catalog is empty");
+        }
         TreeMap<String, FunctionMeshConnectorDefinition> results = new TreeMap<>();
+        for (FunctionMeshConnectorDefinition d : data) {
+            String error = null;
+            if (StringUtils.isBlank(d.getName()) || StringUtils.isBlank(d.getImageRepository())) {
+                error = "Connector " + d.getId() + " has no name or imageRepository";
+            } else if (StringUtils.isBlank(d.getSinkClass()) && StringUtils.isBlank(d.getSourceClass())) {
+                error = "Connector " + d.getName() + " has no sinkClass or sourceClass";
+            }
+            if (error != null) {
+                if (strict) {
+                    throw new IllegalArgumentException(error);
+                }
+                log.error("{}, skip it", error);
+                continue;
+            }
+            if (results.put(d.getName(), d) != null) {
+                if (strict) {
+                    throw new IllegalArgumentException("Connector " + d.getName() + " is defined more than once");
+                }
+                log.error("Connector {} is defined more than once, use the last definition", d.getName());
+            }
+        }
+        return new ConnectorCatalog(results);
+    }
+
+    public NavigableMap<String, FunctionMeshConnectorDefinition> getConnectors() {
+        return catalog.getConnectors();
+    }
+
+    public FunctionMeshConnectorDefinition getConnectorDefinition(String connectorType) {
+        return catalog.getConnectorDefinition(connectorType);
+    }
 
-        if (!path.toFile().exists()) {
-            log.warn("Connectors configs not found");
-            return results;
+    /**
+     * Load the catalog again, a catalog which can not be read or is not valid keeps the current one.
+     *
+     * @return true if a new catalog has been loaded
+     */
+    public synchronized boolean reloadConnectors() {
+        if (configMapName != null) {
+            log.info("The connector catalog follows config map {}, nothing to reload", configMapName);
+            return false;
+        }
+        if (!Files.exists(configPath)) {
+            log.warn("Connectors configs not found in {}", configPath);
+            return false;
         }
         try {
-            String configs = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
-            FunctionMeshConnectorDefinition[] data = ObjectMapperFactory.getThreadLocalYaml()
-                    .readValue(configs, FunctionMeshConnectorDefinition[].class);
-            for (FunctionMeshConnectorDefinition d : data) {
-                results.put(d.getName(), d);
-            }
+            return applyConnectors(Files.readAllBytes(configPath), configPath);
         } catch (IOException e) {
-            log.error("Cannot parse connector definitions", e);
+            log.error("Cannot read connector definitions in {}, keep the current {} connectors",
+                    configPath, catalog.getConnectors().size(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Swap in the catalog parsed from {@code configs}. Connectors are matched by id with the current catalog,
+     * and the definitions which did not change are kept as they are.
+     *
+     * <p>Until a catalog has been loaded, invalid definitions are skipped so that one bad entry does not disable
+     * every connector. Afterwards an invalid catalog is rejected as a whole and the current one is kept.
+     *
+     * @return true if the catalog has changed
+     */
+    synchronized boolean applyConnectors(byte[] configs, Object source) {
+        if (Arrays.equals(configs, loadedConfig)) {
+            return false;
+        }
+        ConnectorCatalog update;
+        try {
+            update = parseConnectors(configs, loadedConfig != null);
+        } catch (IOException | IllegalArgumentException e) {
+            log.error("Cannot parse connector definitions in {}, keep the current {} connectors",
+                    source, catalog.getConnectors().size(), e);
+            return false;
+        }
+        Map<String, FunctionMeshConnectorDefinition> currentById = new HashMap<>();
+        for (FunctionMeshConnectorDefinition definition : catalog.getConnectors().values()) {
+            if (definition.getId() != null) {
+                currentById.put(definition.getId(), definition);
+            }
+        }
+        TreeMap<String, FunctionMeshConnectorDefinition> results = new TreeMap<>();
+        int changed = 0;
+        for (FunctionMeshConnectorDefinition definition : update.getConnectors().values()) {
+            FunctionMeshConnectorDefinition current = definition.getId() == null ? null
+                    : currentById.remove(definition.getId());
+            if (current != null && isSameDefinition(current, definition)) {
+                definition = current;
+            } else {
+                changed++;
+            }
+            results.put(definition.getName(), definition);
         }
+        catalog = new ConnectorCatalog(results);
+        loadedConfig = configs;
+        log.info("Loaded {} connectors from {}: {} added or updated, {} removed",
+                results.size(), source, changed, currentById.size());
+        for (Consumer<ConnectorCatalog> listener : catalogListeners) {
+            listener.accept(catalog);
+        }
+        return true;
+    }
 
-        return results;
+    /**
+     * Call {@code listener} with the current catalog if one has been loaded, and with every catalog swapped in
+     * afterwards.
+     */
+    public synchronized void addCatalogListener(Consumer<ConnectorCatalog> listener) {
+        catalogListeners.add(listener);
+        if (loadedConfig != null) {
+            listener.accept(catalog);
+        }
     }
 
-    public FunctionMeshConnectorDefinition getConnectorDefinition(String connectorType) {
-        return connectors.get(connectorType);
+    private static boolean isSameDefinition(FunctionMeshConnectorDefinition a, FunctionMeshConnectorDefinition b) {
+        ObjectMapper mapper = CodecUtil.getJsonMapper();
+        return mapper.valueToTree(a).equals(mapper.valueToTree(b));
+    }
+
+    /**
+     * Reload the catalog in the background whenever its file changes. The directory is watched, so that
+     * files updated by replacing a symlink, like mounted config maps, are seen as well.
+     */
+    public synchronized void startWatching() throws IOException {
+        if (watchExecutor != null) {
+            return;
+        }
+        Path directory = configPath.getParent();
+        watchService = FileSystems.getDefault().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        watchExecutor = Executors.newSingleThreadExecutor(
+                new DefaultThreadFactory("mesh-connectors-watcher", true));
+        WatchService service = watchService;
+        watchExecutor.execute(() -> watch(service));
+        log.info("Watching {} for connector catalog changes", directory);
+    }
+
+    /**
+     * Follow the catalog stored under {@code key} of a config map instead of the local file, so that all
+     * worker replicas share one catalog. Updates are applied as soon as the watch delivers them.
+     *
+     * @param watchClient a kubernetes client without read timeout
+     */
+    public synchronized void startWatching(ApiClient watchClient, String namespace, String name, String key) {
+        if (watchExecutor != null) {
+            return;
+        }
+        configMapName = namespace + "/" + name;
+        watchExecutor = Executors.newSingleThreadExecutor(
+                new DefaultThreadFactory("mesh-connectors-watcher", true));
+        watchExecutor.execute(() -> watchConfigMap(watchClient, namespace, name, key));
+        log.info("Watching config map {} for connector catalog changes", configMapName);
+    }
+
+    private void watchConfigMap(ApiClient watchClient, String namespace, String name, String key) {
+        CoreV1Api coreV1Api = new CoreV1Api(watchClient);
+        String resourceVersion = null;
+        while (!closed) {
+            try (Watch<V1ConfigMap> watch = Watch.createWatch(watchClient,
+                    coreV1Api.listNamespacedConfigMapCall(namespace, null, null, null, "metadata.name=" + name,
+                            null, null, resourceVersion, null, CONFIG_MAP_WATCH_TIMEOUT_SECONDS, true, null),
+                    CONFIG_MAP_WATCH_EVENT_TYPE)) {
+                configMapWatch = watch;
+                if (closed) {
+                    return;
+                }
+                for (Watch.Response<V1ConfigMap> event : watch) {
+                    if ("ERROR".equals(event.type)) {
+                        // most likely 410 Gone, start over from the current config map
+                        log.warn("Connector catalog config map watch failed: {}", event.status);
+                        resourceVersion = null;
+                        break;
+                    }
+                    if (event.object == null || event.object.getMetadata() == null) {
+                        continue;
+                    }
+                    resourceVersion = event.object.getMetadata().getResourceVersion();
+                    if ("DELETED".equals(event.type)) {
+                        log.warn("Connector catalog config map {} is deleted, keep the current catalog",
+                                configMapName);
+                    } else if (event.object.getData() == null || event.object.getData().get(key) == null) {
+                        log.warn("Connector catalog config map {} has no {}, keep the current catalog",
+                                configMapName, key);
+                    } else {
+                        applyConnectors(event.object.getData().get(key).getBytes(StandardCharsets.UTF_8),
+                                configMapName);
+                    }
+                }
+            } catch (Exception e) {
+                if (closed) {
+                    return;
+                }
+                log.warn("Connector catalog config map watch disconnected, retry in {} ms",
+                        CONFIG_MAP_WATCH_RETRY_INTERVAL_MS, e);
+                try {
+                    Thread.sleep(CONFIG_MAP_WATCH_RETRY_INTERVAL_MS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void watch(WatchService service) {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = service.take();
+                Thread.sleep(WATCH_SETTLE_MS);
+                do {
+                    key.pollEvents();
+                    if (!key.reset()) {
+                        log.warn("Connector catalog directory is no longer watched");
+                        return;
+                    }
+                    key = service.poll();
+                } while (key != null);
+                reloadConnectors();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // closed
+        }
     }
 
-    public void reloadConnectors() {
-        connectors = searchForConnectors();
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (configMapWatch != null) {
+            try {
+                // unblock the watch thread
+                configMapWatch.close();
+            } catch (IOException e) {
+                log.warn("Failed to close the connector catalog config map watch", e);
+            }
+        }
+        if (watchExecutor != null) {
+            watchExecutor.shutdownNow();
+            watchExecutor = null;
+        }
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                log.warn("Failed to close the connector catalog watcher", e);
+            }
+            watchService = null;
+        }
     }
 
     public List<ConnectorDefinition> getConnectorDefinitions() {
-        return connectors.values().stream().map(v -> (ConnectorDefinition) v).collect(Collectors.toList());
+        return catalog.getConnectorDefinitions();
+    }
+
+    public List<ConnectorDefinition> getSinkDefinitions() {
+        return catalog.getSinkDefinitions();
+    }
+
+    public List<ConnectorDefinition> getSourceDefinitions() {
+        return catalog.getSourceDefinitions();
     }
 }
@@ -0,0 +1,182 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.functionmesh.compute.worker;
+
+import io.functionmesh.compute.models.MeshWorkerServiceCustomConfig;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.ws.rs.core.Response;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pulsar.common.util.RestException;
+
+/**
+ * Admission control for packages uploaded through the worker.
+ *
+ * <p>Limits the number of uploads staged at the same time and the total bytes they hold, so a burst of
+ * uploads is rejected quickly instead of filling the temporary directory or exhausting the http threads.
+ */
+@Slf4j
+public class PackageUploadLimiter {
+
+    private final Semaphore uploadPermits;
+    private final int maxPendingUploads;
+    private final long maxUploadBytesInFlight;
+    private final long uploadWaitTimeoutMs;
+    private final AtomicLong uploadBytesInFlight = new AtomicLong();
+
+    public PackageUploadLimiter(int maxConcurrentUploads, int maxPendingUploads, long maxUploadBytesInFlight,
+                                long uploadWaitTimeoutMs) {
+        this.uploadPermits = maxConcurrentUploads > 0 ? new Semaphore(maxConcurrentUploads, true) : null;
+        this.maxPendingUploads = maxPendingUploads;
+        this.maxUploadBytesInFlight = maxUploadBytesInFlight;
+        this.uploadWaitTimeoutMs = uploadWaitTimeoutMs;
+    }
+
+    public static PackageUploadLimiter fromConfig(MeshWorkerServiceCustomConfig customConfig) {
+        if (customConfig == null) {
+            customConfig = new MeshWorkerServiceCustomConfig();
+        }
+        return new PackageUploadLimiter(customConfig.getMaxConcurrentUploads(), customConfig.getMaxPendingUploads(),
+                customConfig.getMaxUploadBytesInFlight(), customConfig.getUploadWaitTimeoutMs());
+    }
+
+    /**
+     * Acquire a slot for a new upload, waiting at most the configured timeout for a running upload to finish.
+     *
+     * @param expectedBytes the size of the upload if known by the client, or a negative value
+     * @return a permit which must be closed once the uploaded package is no longer staged on the worker
+     */
+    public Permit acquire(long expectedBytes) {
+        if (uploadPermits != null) {
+            if (maxPendingUploads > 0 && uploadPermits.availablePermits() == 0
+                    && uploadPermits.getQueueLength() >= maxPendingUploads) {
+                throw new RestException(Response.Status.TOO_MANY_REQUESTS,
+                        "Too many pending package uploads, please retry later");
+            }
+            boolean acquired;
+            try {
+                acquired = uploadPermits.tryAcquire(uploadWaitTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RestException(Response.Status.SERVICE_UNAVAILABLE, "Interrupted while waiting for upload");
+            }
+            if (!acquired) {
+                throw new RestException(Response.Status.TOO_MANY_REQUESTS,
+                        "Too many concurrent package uploads, please retry later");
+            }
+        }
+        Permit permit = new Permit();
+        if (expectedBytes > 0) {
+            try {
+                permit.reserve(expectedBytes);
+            } catch (RestException e) {
+                permit.close();
+                throw e;
+            }
+        }
+        return permit;
+    }
+
+    public long getUploadBytesInFlight() {
+        return uploadBytesInFlight.get();
+    }
+
+    private void reserveBytes(long bytes) {
+        long current;
+        do {
+            current = uploadBytesInFlight.get();
+            if (maxUploadBytesInFlight > 0 && current + bytes > maxUploadBytesInFlight) {
+                throw new RestException(Response.Status.SERVICE_UNAVAILABLE,
+                        "Package upload exceeds the available upload capacity, please retry later");
+            }
+        } while (!uploadBytesInFlight.compareAndSet(current, current + bytes));
+    }
+
+    /**
+     * A granted upload, holding one concurrency slot and the bytes read through {@link #wrap(InputStream)}.
+     */
+    public class Permit implements AutoCloseable {
+        private long reservedBytes = 0;
+        private long readBytes = 0;
+        private boolean closed = false;
+
+        private synchronized void reserve(long bytes) {
+            reserveBytes(bytes);
+            reservedBytes += bytes;
+        }
+
+        private synchronized void onRead(long bytes) {
+            readBytes += bytes;
+            if (readBytes > reservedBytes) {
+                reserve(readBytes - reservedBytes);
+            }
+        }
+
+        /**
+         * Wrap the uploaded stream so the bytes read from it are charged to the upload byte budget.
+         */
+        public InputStream wrap(InputStream inputStream) {
+            return new FilterInputStream(inputStream) {
+                @Override
+                public int read() throws IOException {
+                    int b = super.read();
+                    if (b >= 0) {
+                        onRead(1);
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    int n = super.read(b, off, len);
+                    if (n > 0) {
+                        onRead(n);
+                    }
+                    return n;
+                }
+
+                @Override
+                public long skip(long n) throws IOException {
+                    long skipped = super.skip(n);
+                    if (skipped > 0) {
+                        onRead(skipped);
+                    }
+                    return skipped;
+                }
+            };
+        }
+
+        @Override
+        public synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            uploadBytesInFlight.addAndGet(-reservedBytes);
+            reservedBytes = 0;
+            if (uploadPermits != null) {
+                uploadPermits.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.functionmesh.compute.worker;
+
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pulsar.metadata.api.Notification;
+
+/**
+ * Invalidates the cached tenant metadata and authorization decisions affected by a change of the tenant and
+ * namespace policies in the configuration metadata store, so revoked permissions are not served from the caches.
+ */
+@Slf4j
+public class PolicyCacheInvalidator implements Consumer<Notification> {
+
+    static final String POLICIES_PATH = "/admin/policies";
+
+    private final Supplier<TenantInfoCache> tenantInfoCache;
+    private final Supplier<AuthorizationDecisionCache> authorizationDecisionCache;
+
+    public PolicyCacheInvalidator(Supplier<TenantInfoCache> tenantInfoCache,
+                                  Supplier<AuthorizationDecisionCache> authorizationDecisionCache) {
+        this.tenantInfoCache = tenantInfoCache;
+        this.authorizationDecisionCache = authorizationDecisionCache;
+    }
+
+    @Override
+    public void accept(Notification notification) {
+        String path = notification.getPath();
+        if (path == null || !path.startsWith(POLICIES_PATH + "/")) {
+            return;
+        }
+        String[] parts = path.substring(POLICIES_PATH.length() + 1).split("/");
+        String tenant = parts[0];
+        if (tenant.isEmpty()) {
+            return;
+        }
+        TenantInfoCache tenants = tenantInfoCache.get();
+        AuthorizationDecisionCache decisions = authorizationDecisionCache.get();
+        if (parts.length == 2) {
+            // namespace policies hold the permissions granted on the namespace
+            log.debug("Namespace policies of {}/{} changed ({})", tenant, parts[1], notification.getType());
+            if (decisions != null) {
+                decisions.invalidateNamespace(tenant, parts[1]);
+            }
+        } else {
+            // tenant info holds the tenant admin roles, deeper paths are v1 namespaces under a cluster
+            log.debug("Policies of tenant {} changed at {} ({})", tenant, path, notification.getType());
+            if (parts.length == 1 && tenants != null) {
+                tenants.invalidate(tenant);
+            }
+            if (decisions != null) {
+                decisions.invalidateTenant(tenant);
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.functionmesh.compute.worker;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.pulsar.client.admin.PulsarAdmin;
+import org.apache.pulsar.client.admin.PulsarAdminException;
+import org.apache.pulsar.common.policies.data.TenantInfo;
+
+/**
+ * Caches tenant metadata read from the broker, so validating a request does not call the broker admin api
+ * each time. Only existing tenants are cached, a missing tenant is looked up again on the next request.
+ * Metadata read while the cache is invalidated is not cached.
+ */
+public class TenantInfoCache {
+
+    private static final long MAX_CACHED_TENANTS = 10000;
+
+    private final PulsarAdmin admin;
+    private final Cache<String, TenantInfo> tenants;
+
+    // bumped before every invalidation
+    private final AtomicLong generation = new AtomicLong();
+
+    public TenantInfoCache(PulsarAdmin admin, long ttlMs) {
+        this.admin = admin;
+        this.tenants = ttlMs > 0
+                ? CacheBuilder.newBuilder()
+                .maximumSize(MAX_CACHED_TENANTS)
+                .expireAfterWrite(ttlMs, TimeUnit.MILLISECONDS)
+                .build()
+                : null;
+    }
+
+    /**
+     * @return the tenant metadata, completed exceptionally with {@link PulsarAdminException.NotFoundException}
+     *         if the tenant does not exist
+     */
+    public CompletableFuture<TenantInfo> getTenantInfoAsync(String tenant) {
+        if (tenants == null) {
+            return admin.tenants().getTenantInfoAsync(tenant);
+        }
+        TenantInfo tenantInfo = tenants.getIfPresent(tenant);
+        if (tenantInfo != null) {
+            return CompletableFuture.completedFuture(tenantInfo);
+        }
+        long readGeneration = generation.get();
+        return admin.tenants().getTenantInfoAsync(tenant).thenApply(info -> {
+            if (info != null && readGeneration == generation.get()) {
+                tenants.put(tenant, info);
+                // an invalidation which started after the check above may have missed the metadata
+                if (readGeneration != generation.get()) {
+                    tenants.invalidate(tenant);
+                }
+            }
+            return info;
+        });
+    }
+
+    public void invalidate(String tenant) {
+        if (tenants != null) {
+            generation.incrementAndGet();
+            tenants.invalidate(tenant);
+        }
+    }
+
+    public void invalidateAll() {
+        if (tenants != null) {
+            generation.incrementAndGet();
+            tenants.invalidateAll();
+        }
+    }
+}
@@ -0,0 +1,281 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.functionmesh.compute;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import io.functionmesh.compute.util.CodecUtil;
+import io.functionmesh.compute.worker.ChunkedUploadManager;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.zip.CRC32;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.apache.pulsar.client.admin.Packages;
+import org.apache.pulsar.client.admin.PulsarAdmin;
+import org.apache.pulsar.client.admin.PulsarAdminException;
+import org.apache.pulsar.packages.management.core.common.PackageMetadata;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ChunkedUploadHandlerTest {
+
+    private static final String PATH = "/admin/v3/sinks/public/default/test-sink/uploads";
+
+    private static final String AUTHORIZATION = "Bearer owner-token";
+
+    private static final byte[] CONTENT = "0123456789abcdefghij".getBytes(StandardCharsets.UTF_8);
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private ChunkedUploadHandler handler;
+
+    private Packages packages;
+
+    private String[] adminAuthorization;
+
+    private byte[][] uploaded;
+
+    @Before
+    public void setup() throws Exception {
+        PulsarAdmin admin = mock(PulsarAdmin.class);
+        packages = mock(Packages.class);
+        when(admin.packages()).thenReturn(packages);
+        when(packages.getMetadata(anyString()))
+                .thenThrow(new PulsarAdminException.NotFoundException(null, "not found", 404));
+        uploaded = new byte[1][];
+        doAnswer(invocation -> {
+            uploaded[0] = Files.readAllBytes(Paths.get((String) invocation.getArguments()[2]));
+            return null;
+        }).when(packages).upload(any(PackageMetadata.class), anyString(), anyString());
+        adminAuthorization = new String[1];
+        handler = new ChunkedUploadHandler(
+                new ChunkedUploadManager(temporaryFolder.newFolder().toPath(), 60000, 0), authorization -> {
+                    adminAuthorization[0] = authorization;
+                    return admin;
+                });
+    }
+
+    @After
+    public void cleanup() {
+        handler.close();
+    }
+
+    @Test
+    public void testUploadInChunksAndCommit() throws Exception {
+        String sessionId = createSession(AUTHORIZATION);
+        String sessionPath = PATH + "/" + sessionId;
+
+        Assert.assertEquals(10L, putChunk(sessionPath, AUTHORIZATION, 0, 10).get("receivedBytes"));
+
+        // a chunk failing its checksum is discarded
+        HttpServletRequest request = request("PUT", sessionPath, AUTHORIZATION,
+                Arrays.copyOfRange(CONTENT, 10, 20));
+        when(request.getParameter("offset")).thenReturn("10");
+        when(request.getParameter("checksum")).thenReturn("1");
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        Assert.assertTrue(handler.serve(request, response));
+        verify(response).sendError(eq(HttpServletResponse.SC_BAD_REQUEST), anyString());
+
+        Map<?, ?> state = serve(request("GET", sessionPath, AUTHORIZATION, null));
+        Assert.assertEquals(sessionId, state.get("sessionId"));
+        Assert.assertEquals(20L, ((Number) state.get("totalSize")).longValue());
+        Assert.assertEquals(10L, ((Number) state.get("receivedBytes")).longValue());
+
+        putChunk(sessionPath, AUTHORIZATION, 10, 20);
+        Map<?, ?> committed = serve(request("POST", sessionPath + "/commit", AUTHORIZATION, null));
+        Assert.assertEquals("sink://public/default/test-sink", committed.get("packageUrl"));
+        // the package is uploaded with the credentials of the caller
+        Assert.assertEquals(AUTHORIZATION, adminAuthorization[0]);
+        Assert.assertArrayEquals(CONTENT, uploaded[0]);
+
+        response = mock(HttpServletResponse.class);
+        Assert.assertTrue(handler.serve(request("GET", sessionPath, AUTHORIZATION, null), response));
+        verify(response).sendError(eq(HttpServletResponse.SC_NOT_FOUND), anyString());
+    }
+
+    @Test
+    public void testSessionIsOnlyVisibleToItsCaller() throws Exception {
+        String sessionId = createSession(AUTHORIZATION);
+        String sessionPath = PATH + "/" + sessionId;
+
+        for (HttpServletRequest request : Arrays.asList(
+                request("GET", sessionPath, "Bearer another-token", null),
+                request("GET", sessionPath, null, null),
+                request("POST", sessionPath + "/commit", "Bearer another-token", null),
+                request("DELETE", sessionPath, "Bearer another-token", null),
+                request("GET", "/admin/v3/sources/public/default/test-sink/uploads/" + sessionId, AUTHORIZATION,
+                        null),
+                request("GET", "/admin/v3/sinks/public/default/another-sink/uploads/" + sessionId, AUTHORIZATION,
+                        null))) {
+            HttpServletResponse response = mock(HttpServletResponse.class);
+            Assert.assertTrue(handler.serve(request, response));
+            verify(response).sendError(eq(HttpServletResponse.SC_NOT_FOUND), anyString());
+        }
+        verify(packages, never()).upload(any(PackageMetadata.class), anyString(), anyString());
+
+        Assert.assertEquals(0L, serve(request("GET", sessionPath, AUTHORIZATION, null)).get("receivedBytes"));
+    }
+
+    @Test
+    public void testAbort() throws Exception {
+        String sessionPath = PATH + "/" + createSession(AUTHORIZATION);
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        Assert.assertTrue(handler.serve(request("DELETE", sessionPath, AUTHORIZATION, null), response));
+        verify(response).setStatus(HttpServletResponse.SC_NO_CONTENT);
+
+        response = mock(HttpServletResponse.class);
+        Assert.assertTrue(handler.serve(request("GET", sessionPath, AUTHORIZATION, null), response));
+        verify(response).sendError(eq(HttpServletResponse.SC_NOT_FOUND), anyString());
+    }
+
+    @Test
+    public void testInvalidRequests() throws Exception {
+        HttpServletRequest request = request("POST", PATH, AUTHORIZATION, null);
+        when(request.getParameter("fileName")).thenReturn("test-sink.nar");
+        when(request.getParameter("size")).thenReturn("big");
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        Assert.assertTrue(handler.serve(request, response));
+        verify(response).sendError(eq(HttpServletResponse.SC_BAD_REQUEST), anyString());
+
+        response = mock(HttpServletResponse.class);
+        Assert.assertTrue(handler.serve(request("GET", PATH, AUTHORIZATION, null), response));
+        verify(response).sendError(eq(HttpServletResponse.SC_METHOD_NOT_ALLOWED), anyString());
+    }
+
+    @Test
+    public void testOtherRequestsAreNotServed() throws Exception {
+        for (String path : Arrays.asList(
+                "/apis/compute.functionmesh.io/v1alpha1/namespaces/default/functionmeshes",
+                "/admin/v3/sinks/public/default/test-sink",
+                "/admin/v3/tenants/public/default/test-sink/uploads",
+                "/admin/v3/sinks/public/default/test-sink/uploads/id/status")) {
+            HttpServletResponse response = mock(HttpServletResponse.class);
+            Assert.assertFalse(handler.serve(request("GET", path, AUTHORIZATION, null), response));
+            verify(response, never()).sendError(any(Integer.class), anyString());
+        }
+    }
+
+    private String createSession(String authorization) throws IOException {
+        HttpServletRequest request = request("POST", PATH, authorization, null);
+        when(request.getParameter("fileName")).thenReturn("test-sink.nar");
+        when(request.getParameter("size")).thenReturn(String.valueOf(CONTENT.length));
+        return (String) serve(request).get("sessionId");
+    }
+
+    private Map<?, ?> putChunk(String sessionPath, String authorization, int from, int to) throws IOException {
+        byte[] chunk = Arrays.copyOfRange(CONTENT, from, to);
+        CRC32 crc32 = new CRC32();
+        crc32.update(chunk);
+        HttpServletRequest request = request("PUT", sessionPath, authorization, chunk);
+        when(request.getParameter("offset")).thenReturn(String.valueOf(from));
+        when(request.getParameter("checksum")).thenReturn(String.valueOf(crc32.getValue()));
+        Map<?, ?> state = serve(request);
+        Assert.assertEquals((long) to, ((Number) state.get("receivedBytes")).longValue());
+        return state;
+    }
+
+    private Map<?, ?> serve(HttpServletRequest request) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        HttpServletResponse response = response(body);
+        Assert.assertTrue(handler.serve(request, response));
+        verify(response, never()).sendError(any(Integer.class), anyString());
+        verify(response).setStatus(HttpServletResponse.SC_OK);
+        verify(response).setContentType("application/json");
+        Map<?, ?> state = CodecUtil.getJsonMapper().readValue(body.toByteArray(), Map.class);
+        if (state.containsKey("receivedBytes")) {
+            // compared as longs
+            ((Map<Object, Object>) state).put("receivedBytes", ((Number) state.get("receivedBytes")).longValue());
+        }
+        return state;
+    }
+
+    private static HttpServletRequest request(String method, String path, String authorization, byte[] body)
+            throws IOException {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getMethod()).thenReturn(method);
+        when(request.getRequestURI()).thenReturn(path);
+        when(request.getHeader("Authorization")).thenReturn(authorization);
+        if (body != null) {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            when(request.getInputStream()).thenReturn(new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                }
+
+                @Override
+                public int read() {
+                    return in.read();
+                }
+            });
+        }
+        return request;
+    }
+
+    private static HttpServletResponse response(ByteArrayOutputStream body) throws IOException {
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+        });
+        return response;
+    }
+}
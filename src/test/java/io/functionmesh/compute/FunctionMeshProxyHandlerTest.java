@@ -19,10 +19,20 @@
 package io.functionmesh.compute;
 
 import static org.powermock.api.mockito.PowerMockito.spy;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import javax.servlet.ServletConfig;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.http.HttpClientTransportOverHTTP;
+import org.eclipse.jetty.http2.client.http.HttpClientTransportOverHTTP2;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.Mockito;
 import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PowerMockIgnore;
 import org.powermock.modules.junit4.PowerMockRunner;
@@ -51,4 +61,99 @@ public class FunctionMeshProxyHandlerTest {
                 + "/apis/compute.functionmesh.io/v1alpha1/namespaces/default/functionmeshes?limit=500";
         Assert.assertEquals(rewriteTarget, expectedValue);
     }
+
+    @Test
+    public void rewriteTargetPathTest() {
+        PowerMockito.when(meshWorkerServiceHandler
+                .getEnvironment("KUBERNETES_SERVICE_HOST")).thenReturn("localhost");
+        HttpServletRequest httpServletRequest = PowerMockito.mock(HttpServletRequest.class);
+        String prefix = "/apis/compute.functionmesh.io/v1alpha1/namespaces";
+
+        PowerMockito.when(httpServletRequest.getRequestURI()).thenReturn(prefix + "/default/functionmeshes/mesh");
+        Assert.assertEquals("https://localhost:443" + prefix + "/default/functionmeshes/mesh",
+                meshWorkerServiceHandler.rewriteTarget(httpServletRequest));
+
+        PowerMockito.when(httpServletRequest.getRequestURI()).thenReturn(prefix + "/default/functions/mesh");
+        Assert.assertNull(meshWorkerServiceHandler.rewriteTarget(httpServletRequest));
+        PowerMockito.when(httpServletRequest.getRequestURI()).thenReturn(prefix + "/default/functionmeshesx");
+        Assert.assertNull(meshWorkerServiceHandler.rewriteTarget(httpServletRequest));
+        PowerMockito.when(httpServletRequest.getRequestURI()).thenReturn(prefix + "/default");
+        Assert.assertNull(meshWorkerServiceHandler.rewriteTarget(httpServletRequest));
+
+        PowerMockito.when(httpServletRequest.getRequestURI())
+                .thenReturn(prefix + "/default/functionmeshes/../functionmeshes/mesh");
+        Assert.assertEquals("https://localhost:443" + prefix + "/default/functionmeshes/mesh",
+                meshWorkerServiceHandler.rewriteTarget(httpServletRequest));
+        PowerMockito.when(httpServletRequest.getRequestURI())
+                .thenReturn(prefix + "/default/functionmeshes/../../../../../api/v1/secrets");
+        Assert.assertNull(meshWorkerServiceHandler.rewriteTarget(httpServletRequest));
+    }
+
+    @Test
+    public void refreshAuthorizationHeaderTest() throws Exception {
+        File tokenFile = File.createTempFile("token", null);
+        tokenFile.deleteOnExit();
+        PowerMockito.when(meshWorkerServiceHandler.getTokenPath()).thenReturn(tokenFile.getPath());
+
+        Files.write(tokenFile.toPath(), "token-1\n".getBytes(StandardCharsets.UTF_8));
+        meshWorkerServiceHandler.refreshAuthorizationHeader();
+        Assert.assertEquals("Bearer token-1", meshWorkerServiceHandler.getAuthorizationHeader());
+
+        Files.write(tokenFile.toPath(), "token-2".getBytes(StandardCharsets.UTF_8));
+        meshWorkerServiceHandler.refreshAuthorizationHeader();
+        Assert.assertEquals("Bearer token-2", meshWorkerServiceHandler.getAuthorizationHeader());
+
+        // keep the last token if the file can not be read
+        Assert.assertTrue(tokenFile.delete());
+        meshWorkerServiceHandler.refreshAuthorizationHeader();
+        Assert.assertEquals("Bearer token-2", meshWorkerServiceHandler.getAuthorizationHeader());
+    }
+
+    @Test
+    public void http2TransportTest() {
+        Assert.assertFalse(meshWorkerServiceHandler.isHttp2Enabled());
+
+        ServletConfig servletConfig = PowerMockito.mock(ServletConfig.class);
+        PowerMockito.when(meshWorkerServiceHandler.getServletConfig()).thenReturn(servletConfig);
+        Assert.assertFalse(meshWorkerServiceHandler.isHttp2Enabled());
+        PowerMockito.when(servletConfig.getInitParameter("http2")).thenReturn("true");
+        Assert.assertTrue(meshWorkerServiceHandler.isHttp2Enabled());
+
+        HttpClient http1Client = MeshWorkerServiceHandler.newHttpClient(new SslContextFactory.Client(true), false);
+        Assert.assertTrue(http1Client.getTransport() instanceof HttpClientTransportOverHTTP);
+        HttpClient http2Client = MeshWorkerServiceHandler.newHttpClient(new SslContextFactory.Client(true), true);
+        Assert.assertTrue(http2Client.getTransport() instanceof HttpClientTransportOverHTTP2);
+    }
+
+    @Test
+    public void untrustedClientTest() throws Exception {
+        // the kubernetes CA can not be loaded in the test environment
+        PowerMockito.doReturn(new HttpClient()).when(meshWorkerServiceHandler).createHttpClient();
+        HttpServletRequest request = PowerMockito.mock(HttpServletRequest.class);
+        HttpServletResponse response = PowerMockito.mock(HttpServletResponse.class);
+
+        meshWorkerServiceHandler.service(request, response);
+        meshWorkerServiceHandler.service(request, response);
+
+        Mockito.verify(response, Mockito.times(2))
+                .sendError(Mockito.eq(HttpServletResponse.SC_SERVICE_UNAVAILABLE), Mockito.anyString());
+        // retried at most once every 10 seconds
+        Mockito.verify(meshWorkerServiceHandler, Mockito.times(1)).createHttpClient();
+    }
+
+    @Test
+    public void chunkedUploadWithoutTrustTest() throws Exception {
+        PowerMockito.doReturn(new HttpClient()).when(meshWorkerServiceHandler).createHttpClient();
+        ChunkedUploadHandler chunkedUploadHandler = PowerMockito.mock(ChunkedUploadHandler.class);
+        meshWorkerServiceHandler.setChunkedUploadHandler(chunkedUploadHandler);
+        HttpServletRequest request = PowerMockito.mock(HttpServletRequest.class);
+        HttpServletResponse response = PowerMockito.mock(HttpServletResponse.class);
+        PowerMockito.when(chunkedUploadHandler.serve(request, response)).thenReturn(true);
+
+        // uploads do not go to the kube-apiserver
+        meshWorkerServiceHandler.service(request, response);
+        Mockito.verify(chunkedUploadHandler).serve(request, response);
+        Mockito.verify(response, Mockito.never()).sendError(Mockito.anyInt(), Mockito.anyString());
+        Mockito.verify(meshWorkerServiceHandler, Mockito.never()).createHttpClient();
+    }
 }
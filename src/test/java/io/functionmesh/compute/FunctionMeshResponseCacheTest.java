@@ -0,0 +1,201 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.functionmesh.compute;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpHeader;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+public class FunctionMeshResponseCacheTest {
+
+    private static final String PATH = "/apis/compute.functionmesh.io/v1alpha1/namespaces/default/functionmeshes";
+
+    private static final byte[] BODY = "{\"kind\":\"FunctionMeshList\"}".getBytes(StandardCharsets.UTF_8);
+
+    private FunctionMeshResponseCache cache;
+
+    @Before
+    public void setup() {
+        cache = new FunctionMeshResponseCache(100, 60000, 1024);
+        cache.setWatching(true);
+    }
+
+    @Test
+    public void testServeFromCache() throws Exception {
+        HttpServletRequest request = request(PATH, null);
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        Assert.assertFalse(cache.serve(request, "default", response));
+        proxy(request);
+        Assert.assertEquals(1, cache.size());
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        response = response(body);
+        Assert.assertTrue(cache.serve(request(PATH, null), "default", response));
+        verify(response).setStatus(200);
+        verify(response).setContentType("application/json");
+        verify(response).setHeader(anyString(), any());
+        Assert.assertArrayEquals(BODY, body.toByteArray());
+
+        // the same list with another query is a different entry
+        Assert.assertFalse(cache.serve(request(PATH, "labelSelector=app"), "default", mock(HttpServletResponse.class)));
+    }
+
+    @Test
+    public void testNotModified() throws Exception {
+        HttpServletRequest request = request(PATH, null);
+        Assert.assertFalse(cache.serve(request, "default", mock(HttpServletResponse.class)));
+        proxy(request);
+
+        HttpServletResponse response = response(new ByteArrayOutputStream());
+        Assert.assertTrue(cache.serve(request(PATH, null), "default", response));
+        ArgumentCaptor<String> etag = ArgumentCaptor.forClass(String.class);
+        verify(response).setHeader(eq(HttpHeader.ETAG.asString()), etag.capture());
+
+        request = request(PATH, null);
+        when(request.getHeaders(HttpHeader.IF_NONE_MATCH.asString()))
+                .thenReturn(Collections.enumeration(Collections.singletonList("W/" + etag.getValue())));
+        response = mock(HttpServletResponse.class);
+        Assert.assertTrue(cache.serve(request, "default", response));
+        verify(response).setStatus(304);
+        verify(response, never()).getOutputStream();
+    }
+
+    @Test
+    public void testInvalidation() throws Exception {
+        HttpServletRequest request = request(PATH, null);
+        Assert.assertFalse(cache.serve(request, "default", mock(HttpServletResponse.class)));
+        proxy(request);
+        HttpServletRequest other = request(PATH.replace("/default/", "/other/"), null);
+        Assert.assertFalse(cache.serve(other, "other", mock(HttpServletResponse.class)));
+        proxy(other);
+        Assert.assertEquals(2, cache.size());
+
+        cache.invalidateNamespace("default");
+        Assert.assertEquals(1, cache.size());
+        Assert.assertFalse(cache.serve(request(PATH, null), "default", mock(HttpServletResponse.class)));
+
+        // a response forwarded before an invalidation is not cached
+        request = request(PATH, null);
+        Assert.assertFalse(cache.serve(request, "default", mock(HttpServletResponse.class)));
+        cache.invalidateNamespace("default");
+        proxy(request);
+        Assert.assertEquals(1, cache.size());
+
+        cache.invalidateAll();
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testBypass() throws Exception {
+        Assert.assertFalse(FunctionMeshResponseCache.isCacheable(request(PATH, "watch=true")));
+        Assert.assertFalse(FunctionMeshResponseCache.isCacheable(request(PATH, "resourceVersion=1024")));
+        Assert.assertFalse(FunctionMeshResponseCache.isCacheable(request(PATH, "continue=token")));
+        Assert.assertTrue(FunctionMeshResponseCache.isCacheable(request(PATH, "resourceVersion=0")));
+        HttpServletRequest post = request(PATH, null);
+        when(post.getMethod()).thenReturn("POST");
+        Assert.assertFalse(FunctionMeshResponseCache.isCacheable(post));
+
+        // nothing is served or recorded without the watch
+        cache.setWatching(false);
+        HttpServletRequest request = request(PATH, null);
+        Assert.assertFalse(cache.serve(request, "default", mock(HttpServletResponse.class)));
+        verify(request, never()).setAttribute(anyString(), any());
+    }
+
+    @Test
+    public void testLargeBodyIsNotCached() throws Exception {
+        HttpServletRequest request = request(PATH, null);
+        Assert.assertFalse(cache.serve(request, "default", mock(HttpServletResponse.class)));
+        cache.record(request, new byte[2048], 0, 2048);
+        cache.complete(request, serverResponse(200));
+        Assert.assertEquals(0, cache.size());
+    }
+
+    private void proxy(HttpServletRequest request) {
+        cache.record(request, BODY, 0, 10);
+        cache.record(request, BODY, 10, BODY.length - 10);
+        cache.complete(request, serverResponse(200));
+    }
+
+    private static HttpServletRequest request(String path, String query) {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getMethod()).thenReturn("GET");
+        when(request.getRequestURI()).thenReturn(path);
+        when(request.getQueryString()).thenReturn(query);
+        if (query != null) {
+            String[] param = query.split("=");
+            when(request.getParameter(param[0])).thenReturn(param[1]);
+        }
+        Object[] attribute = new Object[1];
+        doAnswer(invocation -> {
+            attribute[0] = invocation.getArguments()[1];
+            return null;
+        }).when(request).setAttribute(anyString(), any());
+        when(request.getAttribute(FunctionMeshResponseCache.RECORDER_ATTRIBUTE)).thenAnswer(invocation -> attribute[0]);
+        return request;
+    }
+
+    private static HttpServletResponse response(ByteArrayOutputStream body) throws Exception {
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+        });
+        return response;
+    }
+
+    private static Response serverResponse(int status) {
+        Response response = mock(Response.class);
+        when(response.getStatus()).thenReturn(status);
+        HttpFields headers = new HttpFields();
+        headers.put(HttpHeader.CONTENT_TYPE, "application/json");
+        when(response.getHeaders()).thenReturn(headers);
+        return response;
+    }
+}
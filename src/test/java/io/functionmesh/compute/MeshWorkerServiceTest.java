@@ -0,0 +1,82 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.functionmesh.compute;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import io.functionmesh.compute.worker.PolicyCacheInvalidator;
+import org.apache.pulsar.functions.worker.WorkerConfig;
+import org.apache.pulsar.metadata.api.extended.MetadataStoreExtended;
+import org.junit.Test;
+import org.powermock.api.mockito.PowerMockito;
+
+public class MeshWorkerServiceTest {
+
+    @Test
+    public void testStandaloneWatchesPolicyChanges() throws Exception {
+        WorkerConfig workerConfig = new WorkerConfig();
+        workerConfig.setAuthorizationEnabled(true);
+        workerConfig.setConfigurationStoreServers("localhost:2181");
+        MetadataStoreExtended store = PowerMockito.mock(MetadataStoreExtended.class);
+        MeshWorkerService service = spy(new MeshWorkerService());
+        doNothing().when(service).init(workerConfig);
+        doReturn(store).when(service).newConfigurationMetadataStore(workerConfig);
+
+        service.initAsStandalone(workerConfig);
+        verify(store).registerListener(any(PolicyCacheInvalidator.class));
+        // the authorization service of the standalone worker uses the same store
+        assertSame(store, service.getConfigurationMetadataStore());
+
+        service.stop();
+        verify(store).close();
+    }
+
+    @Test
+    public void testStandaloneWithoutConfigurationStore() throws Exception {
+        WorkerConfig workerConfig = new WorkerConfig();
+        workerConfig.setAuthorizationEnabled(true);
+        workerConfig.setConfigurationStoreServers(null);
+        MeshWorkerService service = spy(new MeshWorkerService());
+        doNothing().when(service).init(workerConfig);
+
+        service.initAsStandalone(workerConfig);
+        verify(service, never()).newConfigurationMetadataStore(workerConfig);
+        service.stop();
+    }
+
+    @Test
+    public void testStandaloneWithoutAuthorization() throws Exception {
+        WorkerConfig workerConfig = new WorkerConfig();
+        workerConfig.setAuthorizationEnabled(false);
+        workerConfig.setConfigurationStoreServers("localhost:2181");
+        MeshWorkerService service = spy(new MeshWorkerService());
+        doNothing().when(service).init(workerConfig);
+
+        service.initAsStandalone(workerConfig);
+        verify(service, never()).newConfigurationMetadataStore(workerConfig);
+        assertNull(service.getConfigurationMetadataStore());
+        service.stop();
+    }
+}
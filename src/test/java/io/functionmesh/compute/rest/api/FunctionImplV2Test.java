@@ -153,6 +153,8 @@ public class FunctionImplV2Test {
         when(meshWorkerService.getWorkerConfig()).thenReturn(workerConfig);
         when(meshWorkerService.isInitialized()).thenReturn(true);
         when(meshWorkerService.getBrokerAdmin()).thenReturn(mockedPulsarAdmin);
+        when(meshWorkerService.getTenantInfoAsync(any()))
+                .thenReturn(CompletableFuture.completedFuture(mockedTenantInfo));
         when(meshWorkerService.getJobNamespace()).thenReturn(kubernetesNamespace);
         when(meshWorkerService.getMeshWorkerServiceCustomConfig()).thenReturn(meshWorkerServiceCustomConfig);
         when(meshWorkerService.getCoreV1Api()).thenReturn(coreV1Api);
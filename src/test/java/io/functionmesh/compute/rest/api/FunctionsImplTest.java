@@ -336,6 +336,8 @@ public class FunctionsImplTest {
         PowerMockito.when(workerConfig.getFunctionsWorkerServiceCustomConfigs()).thenReturn(Collections.emptyMap());
         PulsarAdmin pulsarAdmin = PowerMockito.mock(PulsarAdmin.class);
         PowerMockito.when(meshWorkerService.getBrokerAdmin()).thenReturn(pulsarAdmin);
+        PowerMockito.when(meshWorkerService.getTenantInfoAsync(any()))
+                .thenReturn(CompletableFuture.completedFuture(null));
         Tenants tenants = PowerMockito.mock(Tenants.class);
         PowerMockito.when(pulsarAdmin.tenants()).thenReturn(tenants);
         Call call = PowerMockito.mock(Call.class);
@@ -540,6 +542,8 @@ public class FunctionsImplTest {
 
         PulsarAdmin pulsarAdmin = PowerMockito.mock(PulsarAdmin.class);
         PowerMockito.when(meshWorkerService.getBrokerAdmin()).thenReturn(pulsarAdmin);
+        PowerMockito.when(meshWorkerService.getTenantInfoAsync(any()))
+                .thenReturn(CompletableFuture.completedFuture(null));
         Tenants tenants = PowerMockito.mock(Tenants.class);
         PowerMockito.when(pulsarAdmin.tenants()).thenReturn(tenants);
         PowerMockito.when(tenants.getTenantInfo(tenant)).thenReturn(null);
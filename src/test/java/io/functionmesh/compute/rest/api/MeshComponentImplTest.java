@@ -0,0 +1,231 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.functionmesh.compute.rest.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import io.functionmesh.compute.MeshWorkerService;
+import io.functionmesh.compute.functions.models.V1alpha1Function;
+import io.functionmesh.compute.functions.models.V1alpha1FunctionList;
+import io.functionmesh.compute.worker.AuthorizationDecisionCache;
+import io.kubernetes.client.openapi.models.V1Status;
+import io.kubernetes.client.util.generic.GenericKubernetesApi;
+import io.kubernetes.client.util.generic.KubernetesApiResponse;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import org.apache.pulsar.broker.authorization.AuthorizationService;
+import org.apache.pulsar.client.admin.Packages;
+import org.apache.pulsar.client.admin.PulsarAdmin;
+import org.apache.pulsar.client.admin.PulsarAdminException;
+import org.apache.pulsar.common.policies.data.FunctionInstanceStatsImpl;
+import org.apache.pulsar.common.policies.data.TenantInfo;
+import org.apache.pulsar.common.util.FutureUtil;
+import org.apache.pulsar.common.util.RestException;
+import org.apache.pulsar.functions.proto.Function;
+import org.apache.pulsar.packages.management.core.common.PackageMetadata;
+import org.apache.pulsar.functions.worker.WorkerConfig;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MeshComponentImplTest {
+
+    private static final String TENANT = "public";
+    private static final String NAMESPACE = "default";
+    private static final String NAME = "word-count";
+    private static final String ROLE = "client";
+    private static final String SUPER_USER = "admin";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private WorkerConfig workerConfig;
+    private MeshWorkerService meshWorkerService;
+    private AuthorizationService authorizationService;
+    private TestComponentImpl component;
+
+    @Before
+    public void setup() {
+        workerConfig = new WorkerConfig();
+        workerConfig.setAuthorizationEnabled(true);
+        workerConfig.setSuperUserRoles(Collections.singleton(SUPER_USER));
+        workerConfig.setZooKeeperOperationTimeoutSeconds(1);
+        authorizationService = mock(AuthorizationService.class);
+        meshWorkerService = mock(MeshWorkerService.class);
+        when(meshWorkerService.getWorkerConfig()).thenReturn(workerConfig);
+        when(meshWorkerService.getAuthorizationService()).thenReturn(authorizationService);
+        when(meshWorkerService.getAuthorizationDecisionCache())
+                .thenReturn(new AuthorizationDecisionCache(100, 60000, 60000));
+        component = new TestComponentImpl(() -> meshWorkerService);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Packages mockComponent(KubernetesApiResponse<V1alpha1Function> response) throws Exception {
+        workerConfig.setDownloadDirectory(temporaryFolder.getRoot().getAbsolutePath());
+        when(meshWorkerService.isInitialized()).thenReturn(true);
+        when(meshWorkerService.getJobNamespace()).thenReturn("default");
+        when(meshWorkerService.getTenantInfoAsync(TENANT))
+                .thenReturn(CompletableFuture.completedFuture(TenantInfo.builder().build()));
+        component.resourceApi = mock(GenericKubernetesApi.class);
+        when(component.resourceApi.get(anyString(), anyString())).thenReturn(response);
+        PulsarAdmin admin = mock(PulsarAdmin.class);
+        Packages packages = mock(Packages.class);
+        when(meshWorkerService.getBrokerAdmin()).thenReturn(admin);
+        when(admin.packages()).thenReturn(packages);
+        when(packages.getMetadata(anyString())).thenReturn(new PackageMetadata());
+        return packages;
+    }
+
+    @Test
+    public void testDownloadThePackageOfTheComponent() throws Exception {
+        Packages packages = mockComponent(new KubernetesApiResponse<>(new V1alpha1Function()));
+        // updated with a file under another package type than the one of the component
+        component.packageLocation = "function://public/default/word-count@latest";
+
+        StreamingOutput output = component.downloadFunction(TENANT, NAMESPACE, NAME, SUPER_USER, null);
+        assertNotNull(output);
+        verify(packages).getMetadata("function://public/default/word-count@latest");
+    }
+
+    @Test
+    public void testDownloadComponentNotFound() throws Exception {
+        Packages packages = mockComponent(new KubernetesApiResponse<>(new V1Status(), 404));
+
+        assertDownloadFails(Response.Status.NOT_FOUND, "Function word-count does not exist");
+        verify(packages, never()).getMetadata(anyString());
+    }
+
+    @Test
+    public void testDownloadComponentWithoutPackage() throws Exception {
+        Packages packages = mockComponent(new KubernetesApiResponse<>(new V1alpha1Function()));
+        String message = "Function word-count does not run a package of the package service, it cannot be "
+                + "downloaded";
+
+        // a builtin connector
+        component.packageLocation = "";
+        assertDownloadFails(Response.Status.BAD_REQUEST, message);
+        component.packageLocation = "https://example.com/word-count.jar";
+        assertDownloadFails(Response.Status.BAD_REQUEST, message);
+        verify(packages, never()).getMetadata(anyString());
+    }
+
+    @Test
+    public void testPermissionFailureReportedBeforeMissingTenant() {
+        when(meshWorkerService.getTenantInfoAsync(TENANT)).thenReturn(FutureUtil.failedFuture(
+                new PulsarAdminException.NotFoundException(null, "Tenant does not exist", 404)));
+        // the denial completes after the tenant lookup already failed
+        when(authorizationService.isSuperUser(anyString(), any())).thenReturn(CompletableFuture.supplyAsync(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return false;
+        }));
+
+        assertValidationFails(ROLE, Response.Status.UNAUTHORIZED, "client is not authorize to perform operation");
+    }
+
+    @Test
+    public void testMissingTenantReportedForAuthorizedClient() {
+        when(meshWorkerService.getTenantInfoAsync(TENANT)).thenReturn(FutureUtil.failedFuture(
+                new PulsarAdminException.NotFoundException(null, "Tenant does not exist", 404)));
+
+        assertValidationFails(SUPER_USER, Response.Status.BAD_REQUEST, "Tenant does not exist");
+    }
+
+    @Test
+    public void testValidationTimeout() {
+        when(meshWorkerService.getTenantInfoAsync(TENANT)).thenReturn(new CompletableFuture<>());
+
+        long start = System.currentTimeMillis();
+        assertValidationFails(SUPER_USER, Response.Status.INTERNAL_SERVER_ERROR,
+                "Time-out while validating the request");
+        long elapsed = System.currentTimeMillis() - start;
+        assertTrue(elapsed >= 1000 && elapsed < 10000);
+    }
+
+    @Test
+    public void testValidationPasses() {
+        when(meshWorkerService.getTenantInfoAsync(TENANT))
+                .thenReturn(CompletableFuture.completedFuture(TenantInfo.builder().build()));
+
+        component.validatePermissionAndTenant(TENANT, NAMESPACE, NAME, SUPER_USER, null);
+    }
+
+    private void assertDownloadFails(Response.Status status, String message) {
+        try {
+            component.downloadFunction(TENANT, NAMESPACE, NAME, SUPER_USER, null);
+            fail("the download should fail");
+        } catch (RestException e) {
+            assertEquals(status.getStatusCode(), e.getResponse().getStatus());
+            assertEquals(message, e.getMessage());
+        }
+    }
+
+    private void assertValidationFails(String clientRole, Response.Status status, String message) {
+        try {
+            component.validatePermissionAndTenant(TENANT, NAMESPACE, NAME, clientRole, null);
+            fail("the validation should fail");
+        } catch (RestException e) {
+            assertEquals(status.getStatusCode(), e.getResponse().getStatus());
+            assertEquals(message, e.getMessage());
+        }
+    }
+
+    /**
+     * The checks shared by the functions, sinks and sources, the package location is set by the tests.
+     */
+    private static class TestComponentImpl extends MeshComponentImpl<V1alpha1Function, V1alpha1FunctionList> {
+
+        private String packageLocation;
+
+        TestComponentImpl(Supplier<MeshWorkerService> meshWorkerServiceSupplier) {
+            super(meshWorkerServiceSupplier, Function.FunctionDetails.ComponentType.FUNCTION);
+        }
+
+        @Override
+        List<FunctionInstanceStatsImpl> getComponentInstancesStats(String tenant, String namespace,
+                                                                   String componentName) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        void validateResourceObject(V1alpha1Function obj) {
+        }
+
+        @Override
+        String getPackageLocation(V1alpha1Function obj) {
+            return packageLocation;
+        }
+    }
+}
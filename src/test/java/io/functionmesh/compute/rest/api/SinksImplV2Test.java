@@ -150,6 +150,8 @@ public class SinksImplV2Test {
         when(meshWorkerService.getMeshWorkerServiceCustomConfig()).thenReturn(meshWorkerServiceCustomConfig);
         when(meshWorkerService.isInitialized()).thenReturn(true);
         when(meshWorkerService.getBrokerAdmin()).thenReturn(mockedPulsarAdmin);
+        when(meshWorkerService.getTenantInfoAsync(any()))
+                .thenReturn(CompletableFuture.completedFuture(mockedTenantInfo));
         when(meshWorkerService.getJobNamespace()).thenReturn(kubernetesNamespace);
 
         initFunctionStatefulSet();
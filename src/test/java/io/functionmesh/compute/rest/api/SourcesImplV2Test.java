@@ -149,6 +149,8 @@ public class SourcesImplV2Test {
         when(meshWorkerService.getMeshWorkerServiceCustomConfig()).thenReturn(meshWorkerServiceCustomConfig);
         when(meshWorkerService.isInitialized()).thenReturn(true);
         when(meshWorkerService.getBrokerAdmin()).thenReturn(mockedPulsarAdmin);
+        when(meshWorkerService.getTenantInfoAsync(any()))
+                .thenReturn(CompletableFuture.completedFuture(mockedTenantInfo));
         when(meshWorkerService.getJobNamespace()).thenReturn(kubernetesNamespace);
 
         initFunctionStatefulSet();
@@ -0,0 +1,135 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.functionmesh.compute.util;
+
+import static org.junit.Assert.assertEquals;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.functionmesh.compute.functions.models.FunctionsTypeAdapterFactory;
+import io.functionmesh.compute.functions.models.V1alpha1Function;
+import io.functionmesh.compute.models.CustomRuntimeOptions;
+import io.functionmesh.compute.models.Oauth2Parameters;
+import io.functionmesh.compute.sinks.models.SinksTypeAdapterFactory;
+import io.functionmesh.compute.sinks.models.V1alpha1Sink;
+import io.functionmesh.compute.sinks.models.V1alpha1SinkList;
+import io.functionmesh.compute.sources.models.SourcesTypeAdapterFactory;
+import io.functionmesh.compute.sources.models.V1alpha1Source;
+import io.kubernetes.client.openapi.ApiClient;
+import io.kubernetes.client.openapi.JSON;
+import io.kubernetes.client.openapi.models.V1ObjectMeta;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+public class CodecUtilTest {
+
+    @Test
+    public void testCustomRuntimeOptions() {
+        CustomRuntimeOptions customRuntimeOptions = new CustomRuntimeOptions();
+        customRuntimeOptions.setClusterName("test-pulsar");
+        customRuntimeOptions.setMaxReplicas(3);
+        String json = CodecUtil.writeCustomRuntimeOptions(customRuntimeOptions);
+        assertEquals(customRuntimeOptions, CodecUtil.readCustomRuntimeOptions(json));
+        // unset options keep their defaults
+        assertEquals(true, CodecUtil.readCustomRuntimeOptions("{\"clusterName\":\"test-pulsar\"}").isManaged());
+    }
+
+    @Test
+    public void testOauth2Parameters() throws Exception {
+        Oauth2Parameters oauth2Parameters = CodecUtil.readOauth2Parameters(
+                "{\"issuerUrl\":\"https://auth.test\",\"privateKey\":\"/mnt/secret/auth.json\","
+                        + "\"audience\":\"urn:test\"}");
+        JsonNode written = CodecUtil.getJsonMapper().readTree(CodecUtil.writeOauth2Parameters(oauth2Parameters));
+        assertEquals("https://auth.test", written.get("issuerUrl").asText());
+        assertEquals("https://auth.test", written.get("issuer_url").asText());
+        assertEquals("/mnt/secret/auth.json", written.get("private_key").asText());
+        assertEquals("urn:test", written.get("audience").asText());
+        assertEquals(false, written.has("scope"));
+    }
+
+    @Test(expected = JsonProcessingException.class)
+    public void testOtherAuthenticationParameters() throws Exception {
+        CodecUtil.readOauth2Parameters("{\"token\":\"abc\"}");
+    }
+
+    @Test
+    public void testWarmUp() {
+        ApiClient apiClient = new ApiClient();
+        CodecUtil.warmUp(apiClient);
+        V1ObjectMeta metadata = apiClient.getJSON().deserialize("{\"name\":\"test\"}", V1ObjectMeta.class);
+        assertEquals("test", metadata.getName());
+    }
+
+    @Test
+    public void testRegisterCrdTypeAdapters() {
+        ApiClient apiClient = new ApiClient();
+        CodecUtil.registerCrdTypeAdapters(apiClient);
+        Gson gson = apiClient.getJSON().getGson();
+        assertEquals(FunctionsTypeAdapterFactory.class,
+                gson.getAdapter(V1alpha1Function.class).getClass().getEnclosingClass());
+        assertEquals(SinksTypeAdapterFactory.class,
+                gson.getAdapter(V1alpha1SinkList.class).getClass().getEnclosingClass());
+        assertEquals(SourcesTypeAdapterFactory.class,
+                gson.getAdapter(V1alpha1Source.class).getClass().getEnclosingClass());
+        // the adapters of the kubernetes client are kept
+        assertEquals("test", gson.fromJson("{\"name\":\"test\"}", V1ObjectMeta.class).getName());
+    }
+
+    @Test
+    public void testCrdTypeAdaptersMatchReflection() throws IOException {
+        Gson reflective = new JSON().getGson();
+        ApiClient apiClient = new ApiClient();
+        CodecUtil.registerCrdTypeAdapters(apiClient);
+        Gson generated = apiClient.getJSON().getGson();
+        Gson reflectiveWithNulls = reflective.newBuilder().serializeNulls().create();
+        Gson generatedWithNulls = generated.newBuilder().serializeNulls().create();
+
+        for (Gson[] gsons : new Gson[][]{{reflective, generated}, {reflectiveWithNulls, generatedWithNulls}}) {
+            assertSameJson(gsons[0], gsons[1], "/crd/function.json", V1alpha1Function.class);
+            assertSameJson(gsons[0], gsons[1], "/crd/sink.json", V1alpha1Sink.class);
+            assertSameJson(gsons[0], gsons[1], "/crd/source.json", V1alpha1Source.class);
+        }
+    }
+
+    private static <T> void assertSameJson(Gson reflective, Gson generated, String resource, Class<T> type)
+            throws IOException {
+        String json;
+        try (InputStream in = CodecUtilTest.class.getResourceAsStream(resource)) {
+            json = IOUtils.toString(in, StandardCharsets.UTF_8);
+        }
+        T model = reflective.fromJson(json, type);
+        String expected = reflective.toJson(model);
+        // decoded into the same model
+        assertEquals(resource, expected, reflective.toJson(generated.fromJson(json, type)));
+        // encoded into the same json
+        assertEquals(resource, expected, generated.toJson(model));
+        // fields unknown to the models are skipped by both, the fixture must not decode to an empty model
+        JsonObject fixture = JsonParser.parseString(json).getAsJsonObject();
+        JsonObject encoded = JsonParser.parseString(generated.toJson(model)).getAsJsonObject();
+        assertEquals(resource, fixture.getAsJsonObject("metadata").get("name"),
+                encoded.getAsJsonObject("metadata").get("name"));
+        assertEquals(resource, fixture.getAsJsonObject("spec").get("className"),
+                encoded.getAsJsonObject("spec").get("className"));
+    }
+}
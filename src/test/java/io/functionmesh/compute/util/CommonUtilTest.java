@@ -18,12 +18,48 @@
  */
 package io.functionmesh.compute.util;
 
+import static io.functionmesh.compute.models.PackageMetadataProperties.PROPERTY_CHECKSUM;
+import static io.functionmesh.compute.models.PackageMetadataProperties.PROPERTY_FILE_NAME;
+import static io.functionmesh.compute.models.PackageMetadataProperties.PROPERTY_FILE_SIZE;
 import static io.functionmesh.compute.util.CommonUtil.DEFAULT_FUNCTION_DOWNLOAD_DIRECTORY;
 import static io.functionmesh.compute.util.CommonUtil.DEFAULT_FUNCTION_EXECUTABLE;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import io.functionmesh.compute.MeshWorkerService;
+import io.functionmesh.compute.models.MeshWorkerServiceCustomConfig;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.pulsar.client.admin.Packages;
+import org.apache.pulsar.client.admin.PulsarAdmin;
+import org.apache.pulsar.common.io.ConnectorDefinition;
+import org.apache.pulsar.functions.proto.Function;
+import org.apache.pulsar.functions.worker.WorkerConfig;
+import org.apache.pulsar.packages.management.core.common.PackageMetadata;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
 
 public class CommonUtilTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Test
     public void testBuildDownloadPath() {
         // no data provided
@@ -56,4 +92,129 @@ public class CommonUtilTest {
         path = CommonUtil.buildDownloadPath(downloadDirectory, archivePath);
         assertEquals(DEFAULT_FUNCTION_DOWNLOAD_DIRECTORY + "a.jar", path);
     }
+
+    @Test
+    public void testReadConnectorDefinition() throws Exception {
+        File nar = temporaryFolder.newFile("connector.nar");
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(nar))) {
+            out.putNextEntry(new ZipEntry("META-INF/bundled-dependencies/large.jar"));
+            out.write(new byte[1024]);
+            out.closeEntry();
+            out.putNextEntry(new ZipEntry(CommonUtil.PULSAR_IO_SERVICE_DESCRIPTOR));
+            out.write(("name: data-generator\n"
+                    + "description: Test data generator source\n"
+                    + "sourceClass: org.apache.pulsar.io.datagenerator.DataGeneratorSource\n")
+                    .getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+
+        ConnectorDefinition connectorDefinition = CommonUtil.readConnectorDefinition(nar);
+        assertEquals("data-generator", connectorDefinition.getName());
+        assertEquals("org.apache.pulsar.io.datagenerator.DataGeneratorSource",
+                CommonUtil.getConnectorClassName(connectorDefinition, Function.FunctionDetails.ComponentType.SOURCE));
+        try {
+            CommonUtil.getConnectorClassName(connectorDefinition, Function.FunctionDetails.ComponentType.SINK);
+            fail("data-generator does not provide a sink implementation");
+        } catch (IOException ignored) {
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadConnectorDefinitionWithoutDescriptor() throws Exception {
+        File nar = temporaryFolder.newFile("function.jar");
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(nar))) {
+            out.putNextEntry(new ZipEntry("org/example/Function.class"));
+            out.write(new byte[16]);
+            out.closeEntry();
+        }
+        CommonUtil.readConnectorDefinition(nar);
+    }
+
+    @Test
+    public void testCreateObjectName() {
+        String name = CommonUtil.createObjectName("test-pulsar", "public", "default", "Word_Count");
+        assertEquals("word-count-" + DigestUtils.sha1Hex("test-pulsar-public-default-Word_Count").substring(0, 8),
+                name);
+        assertEquals(name, CommonUtil.createObjectName("test-pulsar", "public", "default", "Word_Count"));
+        assertNotEquals(name, CommonUtil.createObjectName("test-pulsar", "public", "default2", "Word_Count"));
+    }
+
+    @Test
+    public void testGetCustomLabelClaims() {
+        MeshWorkerServiceCustomConfig customConfig = new MeshWorkerServiceCustomConfig();
+        customConfig.setLabels(Collections.singletonMap("team", "mesh"));
+        customConfig.setFunctionLabels(Collections.singletonMap("pulsar-cluster", "overridden"));
+        MeshWorkerService worker = Mockito.mock(MeshWorkerService.class);
+        Mockito.when(worker.getMeshWorkerServiceCustomConfig()).thenReturn(customConfig);
+
+        Map<String, String> expected = new HashMap<>();
+        expected.put(CommonUtil.CLUSTER_LABEL_CLAIM, "overridden");
+        expected.put(CommonUtil.TENANT_LABEL_CLAIM, "public");
+        expected.put(CommonUtil.NAMESPACE_LABEL_CLAIM, "default");
+        expected.put(CommonUtil.COMPONENT_LABEL_CLAIM, "word-count");
+        expected.put("team", "mesh");
+        assertEquals(expected,
+                CommonUtil.getCustomLabelClaims("test-pulsar", "public", "default", "word-count", worker, "Function"));
+
+        // the labels of the other kinds are not applied
+        expected.put(CommonUtil.CLUSTER_LABEL_CLAIM, "test-pulsar");
+        assertEquals(expected,
+                CommonUtil.getCustomLabelClaims("test-pulsar", "public", "default", "word-count", worker, "Sink"));
+
+        // replaced labels are picked up
+        customConfig.setLabels(Collections.singletonMap("team", "compute"));
+        expected.put("team", "compute");
+        assertEquals(expected,
+                CommonUtil.getCustomLabelClaims("test-pulsar", "public", "default", "word-count", worker, "Sink"));
+    }
+
+    @Test
+    public void testConnectorDefinitionCacheKeyedByPackageUrl() throws Exception {
+        String packageA = "sink://tenant-a/default/elastic-search@1.0";
+        String packageB = "sink://tenant-b/default/elastic-search@1.0";
+        // the uploaders recorded the same checksum and size for different content
+        Map<String, String> properties = new HashMap<>();
+        properties.put(PROPERTY_FILE_NAME, "elastic-search.nar");
+        properties.put(PROPERTY_CHECKSUM, "1234");
+        properties.put(PROPERTY_FILE_SIZE, "100");
+        PackageMetadata packageMetadata = PackageMetadata.builder().properties(properties).build();
+        PulsarAdmin admin = Mockito.mock(PulsarAdmin.class);
+        Packages packages = Mockito.mock(Packages.class);
+        Mockito.when(admin.packages()).thenReturn(packages);
+        Mockito.when(packages.getMetadata(anyString())).thenReturn(packageMetadata);
+        doAnswer(invocation -> {
+            writeConnector(new File((String) invocation.getArguments()[1]), "org.example.SinkA");
+            return null;
+        }).when(packages).download(eq(packageA), anyString());
+        doAnswer(invocation -> {
+            writeConnector(new File((String) invocation.getArguments()[1]), "org.example.SinkB");
+            return null;
+        }).when(packages).download(eq(packageB), anyString());
+        WorkerConfig workerConfig = new WorkerConfig();
+        workerConfig.setDownloadDirectory(temporaryFolder.newFolder().getAbsolutePath());
+        MeshWorkerService worker = Mockito.mock(MeshWorkerService.class);
+        Mockito.when(worker.getBrokerAdmin()).thenReturn(admin);
+        Mockito.when(worker.getWorkerConfig()).thenReturn(workerConfig);
+
+        assertEquals("org.example.SinkA",
+                CommonUtil.getClassNameFromFile(worker, packageA, Function.FunctionDetails.ComponentType.SINK));
+        assertEquals("org.example.SinkB",
+                CommonUtil.getClassNameFromFile(worker, packageB, Function.FunctionDetails.ComponentType.SINK));
+        assertEquals("org.example.SinkA",
+                CommonUtil.getClassNameFromFile(worker, packageA, Function.FunctionDetails.ComponentType.SINK));
+
+        verify(packages, times(1)).download(eq(packageA), anyString());
+        verify(packages, times(1)).download(eq(packageB), anyString());
+        // one metadata lookup per resolution
+        verify(packages, times(2)).getMetadata(packageA);
+        assertEquals(0, Files.list(Paths.get(workerConfig.getDownloadDirectory())).count());
+    }
+
+    private static void writeConnector(File nar, String sinkClass) throws IOException {
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(nar))) {
+            out.putNextEntry(new ZipEntry(CommonUtil.PULSAR_IO_SERVICE_DESCRIPTOR));
+            out.write(("name: elastic-search\nsinkClass: " + sinkClass + "\n").getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+    }
 }
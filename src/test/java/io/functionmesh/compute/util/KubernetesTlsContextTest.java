@@ -0,0 +1,100 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.functionmesh.compute.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import io.kubernetes.client.openapi.ApiClient;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class KubernetesTlsContextTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+    @After
+    public void cleanup() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testTrustIsReloaded() throws Exception {
+        File ca = temporaryFolder.newFile("ca.crt");
+        copy("tls/ca-1.crt", ca);
+        KubernetesTlsContext context = new KubernetesTlsContext(ca.getPath(), 1, executor);
+        assertEquals("CN=test-ca-1", subject(context));
+        assertEquals(3600, context.getSslContext().getClientSessionContext().getSessionTimeout());
+
+        copy("tls/ca-2.crt", ca);
+        Files.setLastModifiedTime(ca.toPath(), FileTime.fromMillis(System.currentTimeMillis() + 10000));
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!"CN=test-ca-2".equals(subject(context)) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+        assertEquals("CN=test-ca-2", subject(context));
+    }
+
+    @Test
+    public void testSharedContext() throws Exception {
+        File ca = temporaryFolder.newFile("ca.crt");
+        copy("tls/ca-1.crt", ca);
+        KubernetesTlsContext context = new KubernetesTlsContext(ca.getPath(), 60, executor);
+
+        SslContextFactory.Client contextFactory = context.newSslContextFactory();
+        assertSame(context.getSslContext(), contextFactory.getSslContext());
+
+        ApiClient apiClient = context.configure(new ApiClient());
+        assertNotNull(apiClient.getHttpClient().sslSocketFactory());
+    }
+
+    @Test
+    public void testMissingTrustCerts() {
+        try {
+            new KubernetesTlsContext(new File(temporaryFolder.getRoot(), "missing.crt").getPath(), 60, executor);
+            fail("should fail without trust certs");
+        } catch (GeneralSecurityException e) {
+            // expected
+        }
+    }
+
+    private static String subject(KubernetesTlsContext context) {
+        return context.getTrustManager().getAcceptedIssuers()[0].getSubjectX500Principal().getName();
+    }
+
+    private static void copy(String resource, File target) throws Exception {
+        try (InputStream in = KubernetesTlsContextTest.class.getClassLoader().getResourceAsStream(resource)) {
+            Files.copy(in, target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
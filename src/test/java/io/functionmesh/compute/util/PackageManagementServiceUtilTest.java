@@ -0,0 +1,180 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.functionmesh.compute.util;
+
+import static io.functionmesh.compute.models.PackageMetadataProperties.PROPERTY_CHECKSUM;
+import static io.functionmesh.compute.models.PackageMetadataProperties.PROPERTY_FILE_NAME;
+import static io.functionmesh.compute.models.PackageMetadataProperties.PROPERTY_FILE_SIZE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import javax.ws.rs.core.StreamingOutput;
+import org.apache.pulsar.client.admin.Packages;
+import org.apache.pulsar.client.admin.PulsarAdmin;
+import org.apache.pulsar.client.admin.PulsarAdminException;
+import org.apache.pulsar.packages.management.core.common.PackageMetadata;
+import org.glassfish.jersey.media.multipart.FormDataContentDisposition;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.powermock.api.mockito.PowerMockito;
+
+public class PackageManagementServiceUtilTest {
+    private static final String PACKAGE_NAME = "sink://public/default/test-sink";
+    private static final String PACKAGE_NAME_WITH_VERSION = PACKAGE_NAME + "@latest";
+    private static final String FILE_NAME = "test-sink.nar";
+    private static final byte[] CONTENT = "test-sink-content".getBytes(StandardCharsets.UTF_8);
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private PulsarAdmin admin;
+    private Packages packages;
+    private FormDataContentDisposition fileDetail;
+
+    @Before
+    public void setup() {
+        admin = PowerMockito.mock(PulsarAdmin.class);
+        packages = PowerMockito.mock(Packages.class);
+        PowerMockito.when(admin.packages()).thenReturn(packages);
+        fileDetail = PowerMockito.mock(FormDataContentDisposition.class);
+        PowerMockito.when(fileDetail.getFileName()).thenReturn(FILE_NAME);
+    }
+
+    private PackageMetadata existingMetadata(long checksum, long fileSize) {
+        Map<String, String> properties = new HashMap<>();
+        properties.put(PROPERTY_FILE_NAME, FILE_NAME);
+        properties.put(PROPERTY_FILE_SIZE, Long.toString(fileSize));
+        properties.put(PROPERTY_CHECKSUM, Long.toString(checksum));
+        PackageMetadata packageMetadata = new PackageMetadata();
+        packageMetadata.setContact(PackageManagementServiceUtil.MESH_WORKER_SERVICE_PACKAGE_CONTACT);
+        packageMetadata.setProperties(properties);
+        return packageMetadata;
+    }
+
+    private String upload() throws Exception {
+        return PackageManagementServiceUtil.uploadPackageToPackageService(admin,
+                PackageManagementServiceUtil.PACKAGE_TYPE_SINK, "public", "default", "test-sink",
+                new ByteArrayInputStream(CONTENT), fileDetail, temporaryFolder.getRoot().getAbsolutePath());
+    }
+
+    @Test
+    public void testSkipUploadWhenPackageUnchanged() throws Exception {
+        CRC32 crc32 = new CRC32();
+        crc32.update(CONTENT);
+        PowerMockito.when(packages.getMetadata(PACKAGE_NAME)).thenReturn(existingMetadata(crc32.getValue(),
+                CONTENT.length));
+
+        assertEquals(PACKAGE_NAME, upload());
+        verify(packages, never()).delete(anyString());
+        verify(packages, never()).upload(any(PackageMetadata.class), anyString(), anyString());
+        assertEquals(0, temporaryFolder.getRoot().list().length);
+    }
+
+    @Test
+    public void testUploadWhenPackageChanged() throws Exception {
+        PowerMockito.when(packages.getMetadata(PACKAGE_NAME)).thenReturn(existingMetadata(1L, CONTENT.length));
+
+        assertEquals(PACKAGE_NAME, upload());
+        verify(packages, times(1)).delete(PACKAGE_NAME);
+        verify(packages, times(1)).upload(any(PackageMetadata.class), anyString(), anyString());
+        assertEquals(0, temporaryFolder.getRoot().list().length);
+    }
+
+    @Test
+    public void testUploadWhenPackageNotFound() throws Exception {
+        PowerMockito.when(packages.getMetadata(PACKAGE_NAME))
+                .thenThrow(new PulsarAdminException.NotFoundException(null, "not found", 404));
+
+        assertEquals(PACKAGE_NAME, upload());
+        verify(packages, never()).delete(anyString());
+        verify(packages, times(1)).upload(any(PackageMetadata.class), anyString(), anyString());
+    }
+
+    @Test
+    public void testDownloadPackageDeletesTempFile() throws Exception {
+        PowerMockito.when(packages.getMetadata(PACKAGE_NAME_WITH_VERSION)).thenReturn(new PackageMetadata());
+        doAnswer(invocation -> {
+            Files.write(Paths.get((String) invocation.getArguments()[1]), CONTENT);
+            return null;
+        }).when(packages).download(eq(PACKAGE_NAME_WITH_VERSION), anyString());
+
+        StreamingOutput streamingOutput = PackageManagementServiceUtil.downloadPackageFromPackageService(
+                admin, PACKAGE_NAME, temporaryFolder.getRoot().toPath());
+        // nothing is downloaded before the response is written
+        verify(packages, never()).download(anyString(), anyString());
+        for (int i = 0; i < 2; i++) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            streamingOutput.write(output);
+            assertEquals(new String(CONTENT, StandardCharsets.UTF_8), output.toString("UTF-8"));
+            assertEquals(0, temporaryFolder.getRoot().list().length);
+        }
+        verify(packages, times(2)).download(eq(PACKAGE_NAME_WITH_VERSION), anyString());
+    }
+
+    @Test
+    public void testDownloadPackageDeletesTempFileOnDisconnect() throws Exception {
+        PowerMockito.when(packages.getMetadata(PACKAGE_NAME_WITH_VERSION)).thenReturn(new PackageMetadata());
+        doAnswer(invocation -> {
+            Files.write(Paths.get((String) invocation.getArguments()[1]), CONTENT);
+            return null;
+        }).when(packages).download(eq(PACKAGE_NAME_WITH_VERSION), anyString());
+
+        StreamingOutput streamingOutput = PackageManagementServiceUtil.downloadPackageFromPackageService(
+                admin, PACKAGE_NAME, temporaryFolder.getRoot().toPath());
+        try {
+            streamingOutput.write(new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    throw new IOException("Broken pipe");
+                }
+            });
+            fail("the transfer should fail");
+        } catch (IOException e) {
+            assertEquals("Broken pipe", e.getMessage());
+        }
+        assertEquals(0, temporaryFolder.getRoot().list().length);
+    }
+
+    @Test(expected = PulsarAdminException.NotFoundException.class)
+    public void testDownloadPackageNotFound() throws Exception {
+        PowerMockito.when(packages.getMetadata(PACKAGE_NAME_WITH_VERSION))
+                .thenThrow(new PulsarAdminException.NotFoundException(null, "not found", 404));
+
+        PackageManagementServiceUtil.downloadPackageFromPackageService(
+                admin, PACKAGE_NAME, temporaryFolder.getRoot().toPath());
+    }
+}
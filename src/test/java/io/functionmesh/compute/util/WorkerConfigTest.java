@@ -20,7 +20,9 @@ package io.functionmesh.compute.util;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import io.functionmesh.compute.functions.models.V1alpha1FunctionSpecPodImagePullSecrets;
 import io.functionmesh.compute.functions.models.V1alpha1FunctionSpecPodInitContainers;
 import io.functionmesh.compute.functions.models.V1alpha1FunctionSpecPodVolumes;
@@ -30,7 +32,9 @@ import io.functionmesh.compute.sinks.models.V1alpha1SinkSpecPodVolumes;
 import io.functionmesh.compute.sources.models.V1alpha1SourceSpecPodInitContainers;
 import io.functionmesh.compute.sources.models.V1alpha1SourceSpecPodVolumes;
 import io.kubernetes.client.openapi.models.V1OwnerReference;
+import io.kubernetes.client.openapi.models.V1Volume;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import lombok.extern.slf4j.Slf4j;
@@ -144,4 +148,26 @@ public class WorkerConfigTest {
         assertEquals(2, resources.getCpu(), 0.1);
         assertEquals(17179869184L, resources.getRam().longValue());
     }
+
+    @Test
+    public void testPodPolicyConvertedOnce() throws Exception {
+        WorkerConfig workerConfig = WorkerConfig.load(getClass().getClassLoader().getResource("test_worker_config.yaml")
+                .toURI().getPath());
+        MeshWorkerServiceCustomConfig customConfig = RuntimeUtils.getRuntimeFunctionConfig(
+                workerConfig.getFunctionsWorkerServiceCustomConfigs(), MeshWorkerServiceCustomConfig.class);
+
+        List<V1alpha1FunctionSpecPodVolumes> volumes = customConfig.asV1alpha1FunctionSpecPodVolumesList();
+        List<V1alpha1FunctionSpecPodVolumes> again = customConfig.asV1alpha1FunctionSpecPodVolumesList();
+        // every call gets its own list of the converted volumes
+        assertNotSame(volumes, again);
+        assertSame(volumes.get(0), again.get(0));
+        again.clear();
+        assertEquals(1, customConfig.asV1alpha1FunctionSpecPodVolumesList().size());
+
+        // a new value is converted again
+        customConfig.setVolumes(Collections.singletonList(new V1Volume().name("other")));
+        assertEquals("other", customConfig.asV1alpha1FunctionSpecPodVolumesList().get(0).getName());
+        customConfig.setVolumes(null);
+        assertNull(customConfig.asV1alpha1FunctionSpecPodVolumesList());
+    }
 }
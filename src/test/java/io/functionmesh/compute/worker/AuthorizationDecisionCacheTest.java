@@ -0,0 +1,91 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.functionmesh.compute.worker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import java.util.concurrent.CompletableFuture;
+import org.apache.pulsar.functions.proto.Function.FunctionDetails.ComponentType;
+import org.junit.Test;
+
+public class AuthorizationDecisionCacheTest {
+
+    @Test
+    public void testCachedDecisions() {
+        AuthorizationDecisionCache cache = new AuthorizationDecisionCache(100, 60000, 60000);
+        assertNull(cache.get("role", "public", "default", ComponentType.SINK));
+
+        cache.put("role", "public", "default", ComponentType.SINK, true);
+        cache.put("role", "public", "default", ComponentType.SOURCE, false);
+        assertEquals(Boolean.TRUE, cache.get("role", "public", "default", ComponentType.SINK));
+        assertEquals(Boolean.FALSE, cache.get("role", "public", "default", ComponentType.SOURCE));
+        assertNull(cache.get("role", "public", "default", ComponentType.FUNCTION));
+        assertNull(cache.get("other", "public", "default", ComponentType.SINK));
+        assertNull(cache.get(null, "public", "default", ComponentType.SINK));
+
+        cache.put("role", "public", "default", ComponentType.SINK, false);
+        assertEquals(Boolean.FALSE, cache.get("role", "public", "default", ComponentType.SINK));
+    }
+
+    @Test
+    public void testDisabledDecisions() {
+        AuthorizationDecisionCache cache = new AuthorizationDecisionCache(100, 60000, 0);
+        cache.put("role", "public", "default", ComponentType.SINK, false);
+        assertNull(cache.get("role", "public", "default", ComponentType.SINK));
+        cache.put("role", "public", "default", ComponentType.SINK, true);
+        assertEquals(Boolean.TRUE, cache.get("role", "public", "default", ComponentType.SINK));
+    }
+
+    @Test
+    public void testInvalidation() {
+        AuthorizationDecisionCache cache = new AuthorizationDecisionCache(100, 60000, 60000);
+        cache.put("role", "public", "default", ComponentType.SINK, true);
+        cache.put("role", "public", "other", ComponentType.SINK, true);
+        cache.put("role", "tenant", "default", ComponentType.SINK, false);
+
+        cache.invalidate("role", "public", "default", ComponentType.SINK);
+        assertNull(cache.get("role", "public", "default", ComponentType.SINK));
+        assertEquals(Boolean.TRUE, cache.get("role", "public", "other", ComponentType.SINK));
+
+        cache.invalidateNamespace("public", "other");
+        assertNull(cache.get("role", "public", "other", ComponentType.SINK));
+        assertEquals(Boolean.FALSE, cache.get("role", "tenant", "default", ComponentType.SINK));
+
+        cache.invalidateTenant("tenant");
+        assertNull(cache.get("role", "tenant", "default", ComponentType.SINK));
+    }
+
+    @Test
+    public void testInvalidationDuringCheck() {
+        AuthorizationDecisionCache cache = new AuthorizationDecisionCache(100, 60000, 60000);
+        long generation = cache.getGeneration();
+        CompletableFuture<Boolean> check = new CompletableFuture<>();
+        check.thenAccept(authorized ->
+                cache.put("role", "public", "default", ComponentType.SINK, authorized, generation));
+
+        // the permission is revoked while the broker is answering with the previous grant
+        cache.invalidateNamespace("public", "default");
+        check.complete(true);
+        assertNull(cache.get("role", "public", "default", ComponentType.SINK));
+
+        // a check started after the invalidation is cached
+        cache.put("role", "public", "default", ComponentType.SINK, false, cache.getGeneration());
+        assertEquals(Boolean.FALSE, cache.get("role", "public", "default", ComponentType.SINK));
+    }
+}
@@ -0,0 +1,234 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.functionmesh.compute.worker;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
+import io.functionmesh.compute.util.PackageManagementServiceUtil;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import javax.ws.rs.core.Response;
+import org.apache.pulsar.client.admin.Packages;
+import org.apache.pulsar.client.admin.PulsarAdmin;
+import org.apache.pulsar.client.admin.PulsarAdminException;
+import org.apache.pulsar.common.util.RestException;
+import org.apache.pulsar.packages.management.core.common.PackageMetadata;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.powermock.api.mockito.PowerMockito;
+
+public class ChunkedUploadManagerTest {
+    private static final byte[] CONTENT = "0123456789abcdefghij".getBytes(StandardCharsets.UTF_8);
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private ChunkedUploadManager manager;
+
+    @Before
+    public void setup() throws Exception {
+        manager = new ChunkedUploadManager(temporaryFolder.newFolder().toPath(), 60000, 0);
+    }
+
+    @After
+    public void cleanup() {
+        manager.close();
+    }
+
+    private static long checksum(byte[] content) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(content);
+        return crc32.getValue();
+    }
+
+    private ChunkedUploadManager.UploadSession newSession() throws IOException {
+        return manager.createSession(PackageManagementServiceUtil.PACKAGE_TYPE_SINK, "public", "default",
+                "test-sink", "owner", "test-sink.nar", CONTENT.length);
+    }
+
+    private void appendChunk(String sessionId, int from, int to) throws IOException {
+        byte[] chunk = Arrays.copyOfRange(CONTENT, from, to);
+        manager.appendChunk(sessionId, from, checksum(chunk), new ByteArrayInputStream(chunk));
+    }
+
+    private static void assertRestStatus(Response.Status status, RestException e) {
+        assertEquals(status.getStatusCode(), e.getResponse().getStatus());
+    }
+
+    @Test
+    public void testResumeAfterBrokenChunk() throws Exception {
+        ChunkedUploadManager.UploadSession session = newSession();
+        appendChunk(session.getSessionId(), 0, 10);
+        assertEquals(10, session.getReceivedBytes());
+
+        byte[] chunk = Arrays.copyOfRange(CONTENT, 10, 20);
+        InputStream broken = new FilterInputStream(new ByteArrayInputStream(chunk)) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (in.available() < 5) {
+                    throw new IOException("connection reset");
+                }
+                return super.read(b, off, Math.min(len, 5));
+            }
+        };
+        try {
+            manager.appendChunk(session.getSessionId(), 10, checksum(chunk), broken);
+            fail("broken chunk should fail");
+        } catch (IOException e) {
+            // expected
+        }
+        assertEquals(10, session.getReceivedBytes());
+
+        try {
+            manager.appendChunk(session.getSessionId(), 10, checksum(chunk) + 1, new ByteArrayInputStream(chunk));
+            fail("chunk with wrong checksum should fail");
+        } catch (RestException e) {
+            assertRestStatus(Response.Status.BAD_REQUEST, e);
+        }
+        assertEquals(10, session.getReceivedBytes());
+
+        appendChunk(session.getSessionId(), 10, 20);
+        assertEquals(CONTENT.length, session.getReceivedBytes());
+    }
+
+    @Test
+    public void testRejectChunkAtWrongOffset() throws Exception {
+        ChunkedUploadManager.UploadSession session = newSession();
+        appendChunk(session.getSessionId(), 0, 10);
+        try {
+            appendChunk(session.getSessionId(), 5, 15);
+            fail("chunk at wrong offset should fail");
+        } catch (RestException e) {
+            assertRestStatus(Response.Status.CONFLICT, e);
+        }
+        assertEquals(10, session.getReceivedBytes());
+    }
+
+    @Test
+    public void testCommitHandsOffToPackageService() throws Exception {
+        PulsarAdmin admin = PowerMockito.mock(PulsarAdmin.class);
+        Packages packages = PowerMockito.mock(Packages.class);
+        PowerMockito.when(admin.packages()).thenReturn(packages);
+        PowerMockito.when(packages.getMetadata(anyString()))
+                .thenThrow(new PulsarAdminException.NotFoundException(null, "not found", 404));
+        byte[][] uploaded = new byte[1][];
+        doAnswer(invocation -> {
+            uploaded[0] = Files.readAllBytes(Paths.get((String) invocation.getArguments()[2]));
+            return null;
+        }).when(packages).upload(any(PackageMetadata.class), anyString(), anyString());
+
+        ChunkedUploadManager.UploadSession session = newSession();
+        appendChunk(session.getSessionId(), 0, 8);
+        try {
+            manager.commit(session.getSessionId(), admin);
+            fail("incomplete session should not be committed");
+        } catch (RestException e) {
+            assertRestStatus(Response.Status.CONFLICT, e);
+        }
+        appendChunk(session.getSessionId(), 8, 20);
+
+        String packageURL = manager.commit(session.getSessionId(), admin);
+        assertEquals("sink://public/default/test-sink", packageURL);
+        verify(packages).upload(any(PackageMetadata.class), eq(packageURL), anyString());
+        assertArrayEquals(CONTENT, uploaded[0]);
+        assertEquals(0, manager.getSessionCount());
+        try {
+            manager.getSession(session.getSessionId());
+            fail("committed session should be removed");
+        } catch (RestException e) {
+            assertRestStatus(Response.Status.NOT_FOUND, e);
+        }
+    }
+
+    @Test
+    public void testSessionBelongsToItsComponentAndOwner() throws Exception {
+        ChunkedUploadManager.UploadSession session = newSession();
+        assertTrue(session.belongsTo(PackageManagementServiceUtil.PACKAGE_TYPE_SINK, "public", "default",
+                "test-sink", "owner"));
+        assertFalse(session.belongsTo(PackageManagementServiceUtil.PACKAGE_TYPE_SINK, "public", "default",
+                "test-sink", "another"));
+        assertFalse(session.belongsTo(PackageManagementServiceUtil.PACKAGE_TYPE_SOURCE, "public", "default",
+                "test-sink", "owner"));
+    }
+
+    @Test
+    public void testIdleSessionsAreSwept() throws Exception {
+        manager.close();
+        Path uploadDirectory = temporaryFolder.newFolder().toPath();
+        manager = new ChunkedUploadManager(uploadDirectory, 50, 0);
+        ChunkedUploadManager.UploadSession session = newSession();
+        appendChunk(session.getSessionId(), 0, 10);
+
+        // no request touches the manager, the files are deleted in the background
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+        while (manager.getSessionCount() > 0) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+        assertEquals(0, uploadDirectory.toFile().list().length);
+    }
+
+    @Test
+    public void testCloseDeletesSessionFiles() throws Exception {
+        manager.close();
+        Path uploadDirectory = temporaryFolder.newFolder().toPath();
+        manager = new ChunkedUploadManager(uploadDirectory, 60000, 0);
+        appendChunk(newSession().getSessionId(), 0, 10);
+        assertEquals(1, uploadDirectory.toFile().list().length);
+
+        manager.close();
+        assertEquals(0, manager.getSessionCount());
+        assertEquals(0, uploadDirectory.toFile().list().length);
+    }
+
+    @Test
+    public void testMaxSessions() throws Exception {
+        manager.close();
+        manager = new ChunkedUploadManager(temporaryFolder.newFolder().toPath(), 60000, 1);
+        ChunkedUploadManager.UploadSession session = newSession();
+        try {
+            newSession();
+            fail("session limit should be enforced");
+        } catch (RestException e) {
+            assertRestStatus(Response.Status.TOO_MANY_REQUESTS, e);
+        }
+        manager.abort(session.getSessionId());
+        newSession();
+    }
+}
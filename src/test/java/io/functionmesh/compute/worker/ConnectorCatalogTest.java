@@ -0,0 +1,70 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.functionmesh.compute.worker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import io.functionmesh.compute.models.FunctionMeshConnectorDefinition;
+import java.util.TreeMap;
+import org.junit.Test;
+
+public class ConnectorCatalogTest {
+
+    @Test
+    public void testViews() {
+        FunctionMeshConnectorDefinition sink = definition("aerospike", "AerospikeSink", null);
+        FunctionMeshConnectorDefinition source = definition("canal", null, "CanalSource");
+        FunctionMeshConnectorDefinition both = definition("kafka", "KafkaSink", "KafkaSource");
+        FunctionMeshConnectorDefinition sameSinkClass = definition("kafka-2", "KafkaSink", null);
+        TreeMap<String, FunctionMeshConnectorDefinition> connectors = new TreeMap<>();
+        for (FunctionMeshConnectorDefinition definition : new FunctionMeshConnectorDefinition[]{
+                sameSinkClass, source, both, sink}) {
+            connectors.put(definition.getName(), definition);
+        }
+        ConnectorCatalog catalog = new ConnectorCatalog(connectors);
+
+        assertEquals(4, catalog.getConnectorDefinitions().size());
+        assertSame(sink, catalog.getConnectorDefinitions().get(0));
+        assertEquals(3, catalog.getSinkDefinitions().size());
+        assertEquals(2, catalog.getSourceDefinitions().size());
+        assertSame(both, catalog.getSourceDefinitions().get(1));
+        assertSame(both, catalog.getConnectorDefinition("kafka"));
+        assertSame(both, catalog.getConnectorDefinitionBySinkClass("KafkaSink"));
+        assertSame(source, catalog.getConnectorDefinitionBySourceClass("CanalSource"));
+        assertNull(catalog.getConnectorDefinitionBySinkClass("CanalSource"));
+        // the views are computed once
+        assertSame(catalog.getSinkDefinitions(), catalog.getSinkDefinitions());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testViewsAreImmutable() {
+        TreeMap<String, FunctionMeshConnectorDefinition> connectors = new TreeMap<>();
+        connectors.put("aerospike", definition("aerospike", "AerospikeSink", null));
+        new ConnectorCatalog(connectors).getSinkDefinitions().clear();
+    }
+
+    private static FunctionMeshConnectorDefinition definition(String name, String sinkClass, String sourceClass) {
+        FunctionMeshConnectorDefinition definition = new FunctionMeshConnectorDefinition();
+        definition.setName(name);
+        definition.setSinkClass(sinkClass);
+        definition.setSourceClass(sourceClass);
+        return definition;
+    }
+}
@@ -0,0 +1,192 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.functionmesh.compute.worker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import io.functionmesh.compute.models.FunctionMeshConnectorDefinition;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.pulsar.common.io.ConfigFieldDefinition;
+import org.apache.pulsar.io.core.annotations.FieldDoc;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ConnectorConfigDefinitionCacheTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    public static class TestSinkConfig {
+        @FieldDoc(required = true, defaultValue = "", help = "The host to write to")
+        private String host;
+
+        @FieldDoc(defaultValue = "10", help = "The batch size")
+        private int batchSize;
+    }
+
+    @Test
+    public void testDefinitionsAreDerivedOnceAndStored() throws Exception {
+        File cacheDirectory = temporaryFolder.newFolder("definitions");
+        FunctionMeshConnectorDefinition definition = definition(TestSinkConfig.class.getName());
+
+        ConnectorConfigDefinitionCache cache = new ConnectorConfigDefinitionCache(
+                temporaryFolder.newFolder("connectors").toPath(), null, cacheDirectory.toPath());
+        try {
+            // nothing is loaded on lookup
+            assertTrue(cache.getSinkConfigDefinition(definition).isEmpty());
+
+            cache.refresh(catalog(definition));
+            cache.getFuture(definition).get(30, TimeUnit.SECONDS);
+            List<ConfigFieldDefinition> fields = cache.getSinkConfigDefinition(definition);
+            assertEquals(2, fields.size());
+            assertEquals("host", fields.get(0).getFieldName());
+            assertEquals("true", fields.get(0).getAttributes().get("required"));
+            assertEquals("int", fields.get(1).getTypeName());
+            assertTrue(cache.getSourceConfigDefinition(definition).isEmpty());
+            assertTrue(new File(cacheDirectory, "pulsar-io-test-2.9.1.json").isFile());
+        } finally {
+            cache.close();
+        }
+
+        // a new worker reads the stored definitions, the config class is not loaded again
+        FunctionMeshConnectorDefinition moved = definition("org.example.Missing");
+        cache = new ConnectorConfigDefinitionCache(
+                temporaryFolder.newFolder("connectors-2").toPath(), null, cacheDirectory.toPath());
+        try {
+            cache.refresh(catalog(moved));
+            cache.getFuture(moved).get(30, TimeUnit.SECONDS);
+            assertEquals(2, cache.getSinkConfigDefinition(moved).size());
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void testUnknownConfigClass() throws Exception {
+        File cacheDirectory = temporaryFolder.newFolder("definitions");
+        FunctionMeshConnectorDefinition definition = definition("org.example.Missing");
+        ConnectorConfigDefinitionCache cache = new ConnectorConfigDefinitionCache(
+                temporaryFolder.newFolder("connectors").toPath(), null, cacheDirectory.toPath());
+        try {
+            cache.refresh(catalog(definition));
+            assertFailed(cache.getFuture(definition));
+            assertTrue(cache.getSinkConfigDefinition(definition).isEmpty());
+            assertEquals(0, cacheDirectory.list().length);
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void testFailedDefinitionsAreRetriedOnRefresh() throws Exception {
+        File cacheDirectory = temporaryFolder.newFolder("definitions");
+        FunctionMeshConnectorDefinition definition = definition(TestSinkConfig.class.getName());
+        FailingCache cache = new FailingCache(temporaryFolder.newFolder("connectors").toPath(),
+                cacheDirectory.toPath(), 1, 3600000);
+        try {
+            cache.refresh(catalog(definition));
+            CompletableFuture<?> failed = cache.getFuture(definition);
+            assertFailed(failed);
+            assertTrue(cache.getSinkConfigDefinition(definition).isEmpty());
+            assertEquals(0, cacheDirectory.list().length);
+
+            // the failed load is not kept
+            cache.refresh(catalog(definition));
+            assertTrue(failed != cache.getFuture(definition));
+            cache.getFuture(definition).get(30, TimeUnit.SECONDS);
+            assertEquals(2, cache.getSinkConfigDefinition(definition).size());
+            assertEquals(2, cache.attempts.get());
+            assertTrue(new File(cacheDirectory, "pulsar-io-test-2.9.1.json").isFile());
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void testFailedDefinitionsAreRetriedWithBackoff() throws Exception {
+        File cacheDirectory = temporaryFolder.newFolder("definitions");
+        FunctionMeshConnectorDefinition definition = definition(TestSinkConfig.class.getName());
+        FailingCache cache = new FailingCache(temporaryFolder.newFolder("connectors").toPath(),
+                cacheDirectory.toPath(), 2, 10);
+        try {
+            cache.refresh(catalog(definition));
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+            while (cache.getSinkConfigDefinition(definition).isEmpty()) {
+                assertTrue(System.currentTimeMillis() < deadline);
+                Thread.sleep(10);
+            }
+            assertEquals(2, cache.getSinkConfigDefinition(definition).size());
+            assertEquals(3, cache.attempts.get());
+        } finally {
+            cache.close();
+        }
+    }
+
+    private static class FailingCache extends ConnectorConfigDefinitionCache {
+        private final int failures;
+        private final AtomicInteger attempts = new AtomicInteger();
+
+        FailingCache(Path connectorsDirectory, Path cacheDirectory, int failures, long retryDelayMs) {
+            super(connectorsDirectory, null, cacheDirectory, retryDelayMs, retryDelayMs);
+            this.failures = failures;
+        }
+
+        @Override
+        ConfigDefinitions deriveDefinitions(FunctionMeshConnectorDefinition definition) throws Exception {
+            if (attempts.incrementAndGet() <= failures) {
+                throw new IOException("the connector is not readable");
+            }
+            return super.deriveDefinitions(definition);
+        }
+    }
+
+    private static void assertFailed(CompletableFuture<?> future) throws Exception {
+        try {
+            future.get(30, TimeUnit.SECONDS);
+            fail("the definitions are derived");
+        } catch (ExecutionException e) {
+            // expected
+        }
+    }
+
+    private static FunctionMeshConnectorDefinition definition(String sinkConfigClass) {
+        FunctionMeshConnectorDefinition definition = new FunctionMeshConnectorDefinition();
+        definition.setId("pulsar-io-test");
+        definition.setName("test");
+        definition.setVersion("2.9.1");
+        definition.setSinkClass("org.example.TestSink");
+        definition.setSinkConfigClass(sinkConfigClass);
+        return definition;
+    }
+
+    private static ConnectorCatalog catalog(FunctionMeshConnectorDefinition definition) {
+        TreeMap<String, FunctionMeshConnectorDefinition> connectors = new TreeMap<>();
+        connectors.put(definition.getName(), definition);
+        return new ConnectorCatalog(connectors);
+    }
+}
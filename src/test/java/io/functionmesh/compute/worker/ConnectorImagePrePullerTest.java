@@ -0,0 +1,235 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.functionmesh.compute.worker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.functionmesh.compute.models.FunctionMeshConnectorDefinition;
+import io.functionmesh.compute.models.MeshWorkerServiceCustomConfig;
+import io.kubernetes.client.openapi.ApiClient;
+import io.kubernetes.client.openapi.JSON;
+import io.kubernetes.client.openapi.apis.AppsV1Api;
+import io.kubernetes.client.openapi.models.V1Container;
+import io.kubernetes.client.openapi.models.V1DaemonSet;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConnectorImagePrePullerTest {
+
+    private static final String DAEMON_SETS = "/apis/apps/v1/namespaces/default/daemonsets";
+
+    private static final String DAEMON_SET = DAEMON_SETS + "/function-mesh-connector-image-pre-pull";
+
+    private final JSON json = new JSON();
+
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+
+    private final AtomicInteger failures = new AtomicInteger();
+
+    private volatile V1DaemonSet stored;
+
+    private HttpServer apiServer;
+
+    private ConnectorImagePrePuller prePuller;
+
+    @Before
+    public void setup() throws IOException {
+        apiServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        apiServer.createContext(DAEMON_SETS, this::handle);
+        apiServer.start();
+        ApiClient apiClient = new ApiClient().setBasePath("http://127.0.0.1:" + apiServer.getAddress().getPort());
+        prePuller = new ConnectorImagePrePuller(new AppsV1Api(apiClient), "default",
+                new MeshWorkerServiceCustomConfig(), 10);
+    }
+
+    @After
+    public void cleanup() {
+        prePuller.close();
+        apiServer.stop(0);
+    }
+
+    /**
+     * A fake apiserver keeping a single DaemonSet.
+     */
+    private synchronized void handle(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath();
+        requests.add(method + " " + path);
+        if (failures.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+            respond(exchange, 500, "{\"kind\":\"Status\",\"code\":500}");
+            return;
+        }
+        V1DaemonSet body = null;
+        if ("POST".equals(method) || "PUT".equals(method)) {
+            body = json.deserialize(IOUtils.toString(new InputStreamReader(exchange.getRequestBody(),
+                    StandardCharsets.UTF_8)), V1DaemonSet.class);
+        }
+        if ("GET".equals(method) && path.equals(DAEMON_SET) && stored != null) {
+            respond(exchange, 200, json.serialize(stored));
+        } else if ("POST".equals(method) && path.equals(DAEMON_SETS) && stored == null) {
+            body.getMetadata().setResourceVersion("1");
+            stored = body;
+            respond(exchange, 201, json.serialize(stored));
+        } else if ("PUT".equals(method) && path.equals(DAEMON_SET) && stored != null) {
+            if (!stored.getMetadata().getResourceVersion().equals(body.getMetadata().getResourceVersion())) {
+                respond(exchange, 409, "{\"kind\":\"Status\",\"code\":409}");
+                return;
+            }
+            body.getMetadata().setResourceVersion(
+                    String.valueOf(Integer.parseInt(stored.getMetadata().getResourceVersion()) + 1));
+            stored = body;
+            respond(exchange, 200, json.serialize(stored));
+        } else if ("DELETE".equals(method) && path.equals(DAEMON_SET) && stored != null) {
+            // like the apiserver, answer with the deleted object rather than a status
+            respond(exchange, 200, json.serialize(stored));
+            stored = null;
+        } else {
+            respond(exchange, 404, "{\"kind\":\"Status\",\"code\":404}");
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int code, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(code, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Test
+    public void testSyncDaemonSet() throws Exception {
+        prePuller.refresh(catalog(
+                definition("kafka", "pulsar-io-kafka"),
+                definition("kafka-2", "pulsar-io-kafka"),
+                definition("canal", "pulsar-io-canal")));
+        awaitRequests(2);
+        assertEquals(Arrays.asList("GET " + DAEMON_SET, "POST " + DAEMON_SETS), requests);
+        assertEquals(Arrays.asList(
+                "docker.io/streamnative/pulsar-io-canal:2.9.1",
+                "docker.io/streamnative/pulsar-io-kafka:2.9.1"), getInitContainerImages());
+        assertEquals("k8s.gcr.io/pause:3.5", stored.getSpec().getTemplate().getSpec().getContainers().get(0).getImage());
+        assertEquals(stored.getSpec().getSelector().getMatchLabels().get("app.kubernetes.io/name"),
+                stored.getSpec().getTemplate().getMetadata().getLabels().get("app.kubernetes.io/name"));
+
+        // the same images do not update the DaemonSet
+        prePuller.refresh(catalog(
+                definition("kafka", "pulsar-io-kafka"),
+                definition("canal", "pulsar-io-canal")));
+        awaitRequests(3);
+        assertEquals("GET " + DAEMON_SET, requests.get(2));
+        assertEquals("1", stored.getMetadata().getResourceVersion());
+
+        prePuller.refresh(catalog(definition("kafka", "pulsar-io-kafka")));
+        awaitRequests(5);
+        assertEquals("PUT " + DAEMON_SET, requests.get(4));
+        assertEquals("2", stored.getMetadata().getResourceVersion());
+        assertEquals(Arrays.asList("docker.io/streamnative/pulsar-io-kafka:2.9.1"), getInitContainerImages());
+
+        prePuller.refresh(ConnectorCatalog.EMPTY);
+        awaitRequests(7);
+        assertEquals("DELETE " + DAEMON_SET, requests.get(6));
+        assertNull(stored);
+    }
+
+    @Test
+    public void testRetryFailedSync() throws Exception {
+        failures.set(2);
+        prePuller.refresh(catalog(definition("kafka", "pulsar-io-kafka")));
+        awaitRequests(4);
+        assertNotNull(stored);
+        assertEquals(Arrays.asList("docker.io/streamnative/pulsar-io-kafka:2.9.1"), getInitContainerImages());
+    }
+
+    @Test
+    public void testBuildDaemonSet() {
+        MeshWorkerServiceCustomConfig customConfig = new MeshWorkerServiceCustomConfig();
+        customConfig.setImagePullPolicy("Always");
+        ConnectorImagePrePuller other = new ConnectorImagePrePuller(new AppsV1Api(new ApiClient()), "default",
+                customConfig, 10);
+        try {
+            V1DaemonSet daemonSet = other.buildDaemonSet(ConnectorImagePrePuller.getConnectorImages(
+                    catalog(definition("kafka", "pulsar-io-kafka"))));
+            V1Container init = daemonSet.getSpec().getTemplate().getSpec().getInitContainers().get(0);
+            assertEquals("Always", init.getImagePullPolicy());
+            assertEquals(Arrays.asList("sh", "-c", "exit 0"), init.getCommand());
+            // the pull policy is part of the pod template
+            V1DaemonSet ifNotPresent = prePuller.buildDaemonSet(ConnectorImagePrePuller.getConnectorImages(
+                    catalog(definition("kafka", "pulsar-io-kafka"))));
+            assertTrue(!daemonSet.getMetadata().getAnnotations().get(
+                    ConnectorImagePrePuller.POD_TEMPLATE_HASH_ANNOTATION).equals(
+                    ifNotPresent.getMetadata().getAnnotations().get(
+                            ConnectorImagePrePuller.POD_TEMPLATE_HASH_ANNOTATION)));
+        } finally {
+            other.close();
+        }
+    }
+
+    private List<String> getInitContainerImages() {
+        return stored.getSpec().getTemplate().getSpec().getInitContainers().stream()
+                .map(V1Container::getImage)
+                .collect(Collectors.toList());
+    }
+
+    private void awaitRequests(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (requests.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        // let a sync finish its last request
+        synchronized (this) {
+            assertEquals(count, requests.size());
+        }
+    }
+
+    private static ConnectorCatalog catalog(FunctionMeshConnectorDefinition... definitions) {
+        TreeMap<String, FunctionMeshConnectorDefinition> connectors = new TreeMap<>();
+        for (FunctionMeshConnectorDefinition definition : definitions) {
+            connectors.put(definition.getName(), definition);
+        }
+        return new ConnectorCatalog(connectors);
+    }
+
+    private static FunctionMeshConnectorDefinition definition(String name, String imageRepository) {
+        FunctionMeshConnectorDefinition definition = new FunctionMeshConnectorDefinition();
+        definition.setName(name);
+        definition.setId(name);
+        definition.setVersion("2.9.1");
+        definition.setImageRepository("streamnative/" + imageRepository);
+        definition.setSinkClass("org.apache.pulsar.io." + name + ".Sink");
+        return definition;
+    }
+}
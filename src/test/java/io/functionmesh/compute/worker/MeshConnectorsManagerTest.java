@@ -0,0 +1,170 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.functionmesh.compute.worker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import io.functionmesh.compute.models.FunctionMeshConnectorDefinition;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MeshConnectorsManagerTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static final String AEROSPIKE = "- id: pulsar-io-aerospike\n"
+            + "  name: aerospike\n"
+            + "  sinkClass: org.apache.pulsar.io.aerospike.AerospikeStringSink\n"
+            + "  imageRepository: streamnative/pulsar-io-aerospike\n"
+            + "  version: 2.7.1\n";
+
+    private static final String CANAL = "- id: pulsar-io-canal\n"
+            + "  name: canal\n"
+            + "  sourceClass: org.apache.pulsar.io.canal.CanalStringSource\n"
+            + "  imageRepository: streamnative/pulsar-io-canal\n"
+            + "  version: 2.7.1\n";
+
+    @Test
+    public void testReloadKeepsCatalogOnInvalidConfig() throws Exception {
+        Path config = write(temporaryFolder.newFile("connectors.yaml"), AEROSPIKE);
+        MeshConnectorsManager manager = new MeshConnectorsManager(config);
+        NavigableMap<String, FunctionMeshConnectorDefinition> loaded = manager.getConnectors();
+        assertEquals(1, loaded.size());
+        assertEquals("streamnative/pulsar-io-aerospike",
+                manager.getConnectorDefinition("aerospike").getImageRepository());
+
+        // unchanged file
+        assertFalse(manager.reloadConnectors());
+
+        write(config.toFile(), AEROSPIKE + "- name: [broken");
+        assertFalse(manager.reloadConnectors());
+        write(config.toFile(), AEROSPIKE + AEROSPIKE);
+        assertFalse(manager.reloadConnectors());
+        write(config.toFile(), AEROSPIKE + "- id: pulsar-io-canal\n  name: canal\n  version: 2.7.1\n");
+        assertFalse(manager.reloadConnectors());
+        write(config.toFile(), "");
+        assertFalse(manager.reloadConnectors());
+        assertSame(loaded, manager.getConnectors());
+
+        write(config.toFile(), AEROSPIKE + CANAL);
+        assertTrue(manager.reloadConnectors());
+        assertEquals(2, manager.getConnectors().size());
+        assertEquals(1, loaded.size());
+        assertEquals(2, manager.getConnectorDefinitions().size());
+    }
+
+    @Test
+    public void testInitialConfigSkipsInvalidConnectors() throws Exception {
+        String canal2 = CANAL.replace("version: 2.7.1", "version: 2.8.0");
+        Path config = write(temporaryFolder.newFile("connectors.yaml"),
+                AEROSPIKE + "- id: pulsar-io-broken\n  name: broken\n  version: 2.7.1\n" + CANAL + canal2);
+        MeshConnectorsManager manager = new MeshConnectorsManager(config);
+        assertEquals(2, manager.getConnectors().size());
+        assertNull(manager.getConnectorDefinition("broken"));
+        assertEquals("2.8.0", manager.getConnectorDefinition("canal").getVersion());
+
+        // reloads are validated strictly
+        write(config.toFile(), AEROSPIKE + "- id: pulsar-io-broken\n  name: broken\n  version: 2.7.1\n");
+        assertFalse(manager.reloadConnectors());
+        assertEquals(2, manager.getConnectors().size());
+    }
+
+    @Test
+    public void testListenersWaitForALoadedCatalog() throws Exception {
+        Path config = temporaryFolder.getRoot().toPath().resolve("connectors.yaml");
+        MeshConnectorsManager manager = new MeshConnectorsManager(config);
+        List<ConnectorCatalog> catalogs = new ArrayList<>();
+        manager.addCatalogListener(catalogs::add);
+        assertTrue(catalogs.isEmpty());
+
+        write(config.toFile(), AEROSPIKE);
+        assertTrue(manager.reloadConnectors());
+        assertEquals(1, catalogs.size());
+        assertEquals(1, catalogs.get(0).getConnectors().size());
+    }
+
+    @Test
+    public void testApplyConnectorsById() throws Exception {
+        MeshConnectorsManager manager =
+                new MeshConnectorsManager(write(temporaryFolder.newFile("connectors.yaml"), AEROSPIKE + CANAL));
+        FunctionMeshConnectorDefinition aerospike = manager.getConnectorDefinition("aerospike");
+        FunctionMeshConnectorDefinition canal = manager.getConnectorDefinition("canal");
+
+        String config = AEROSPIKE + CANAL.replace("version: 2.7.1", "version: 2.8.0");
+        assertTrue(manager.applyConnectors(config.getBytes(StandardCharsets.UTF_8), "test"));
+        assertSame(aerospike, manager.getConnectorDefinition("aerospike"));
+        assertNotSame(canal, manager.getConnectorDefinition("canal"));
+        assertEquals("2.8.0", manager.getConnectorDefinition("canal").getVersion());
+        assertFalse(manager.applyConnectors(config.getBytes(StandardCharsets.UTF_8), "test"));
+
+        assertTrue(manager.applyConnectors(CANAL.getBytes(StandardCharsets.UTF_8), "test"));
+        assertNull(manager.getConnectorDefinition("aerospike"));
+        assertEquals(1, manager.getSourceDefinitions().size());
+        assertTrue(manager.getSinkDefinitions().isEmpty());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testCatalogIsImmutable() throws Exception {
+        MeshConnectorsManager manager =
+                new MeshConnectorsManager(write(temporaryFolder.newFile("connectors.yaml"), AEROSPIKE));
+        manager.getConnectors().remove("aerospike");
+    }
+
+    @Test
+    public void testMissingConfig() {
+        MeshConnectorsManager manager =
+                new MeshConnectorsManager(new File(temporaryFolder.getRoot(), "connectors.yaml").toPath());
+        assertTrue(manager.getConnectors().isEmpty());
+        assertNull(manager.getConnectorDefinition("aerospike"));
+    }
+
+    @Test
+    public void testWatchReloadsCatalog() throws Exception {
+        Path config = write(temporaryFolder.newFile("connectors.yaml"), AEROSPIKE);
+        MeshConnectorsManager manager = new MeshConnectorsManager(config);
+        try {
+            manager.startWatching();
+            write(config.toFile(), AEROSPIKE + CANAL);
+            long deadline = System.currentTimeMillis() + 30000;
+            while (manager.getConnectorDefinition("canal") == null && System.currentTimeMillis() < deadline) {
+                Thread.sleep(100);
+            }
+            assertNotNull(manager.getConnectorDefinition("canal"));
+        } finally {
+            manager.close();
+        }
+    }
+
+    private static Path write(File file, String content) throws Exception {
+        return Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
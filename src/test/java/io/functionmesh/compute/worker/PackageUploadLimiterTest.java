@@ -0,0 +1,79 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.functionmesh.compute.worker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import javax.ws.rs.core.Response;
+import org.apache.commons.io.IOUtils;
+import org.apache.pulsar.common.util.RestException;
+import org.junit.Test;
+
+public class PackageUploadLimiterTest {
+
+    @Test
+    public void testConcurrentUploadsLimit() {
+        PackageUploadLimiter limiter = new PackageUploadLimiter(1, 0, 0, 10);
+        PackageUploadLimiter.Permit permit = limiter.acquire(-1);
+        try {
+            limiter.acquire(-1);
+            fail("the second upload should be rejected");
+        } catch (RestException e) {
+            assertEquals(Response.Status.TOO_MANY_REQUESTS.getStatusCode(), e.getResponse().getStatus());
+        }
+        permit.close();
+        // closing twice must not release the slot twice
+        permit.close();
+        limiter.acquire(-1).close();
+    }
+
+    @Test
+    public void testUploadBytesBudget() throws Exception {
+        PackageUploadLimiter limiter = new PackageUploadLimiter(0, 0, 100, 10);
+        try (PackageUploadLimiter.Permit permit = limiter.acquire(60)) {
+            assertEquals(60, limiter.getUploadBytesInFlight());
+            try {
+                limiter.acquire(60);
+                fail("the upload should exceed the byte budget");
+            } catch (RestException e) {
+                assertEquals(Response.Status.SERVICE_UNAVAILABLE.getStatusCode(), e.getResponse().getStatus());
+            }
+            // the declared size is already reserved, reading it does not charge the budget again
+            InputStream inputStream = permit.wrap(new ByteArrayInputStream(new byte[60]));
+            assertEquals(60, IOUtils.toByteArray(inputStream).length);
+            assertEquals(60, limiter.getUploadBytesInFlight());
+        }
+        assertEquals(0, limiter.getUploadBytesInFlight());
+    }
+
+    @Test
+    public void testUploadBytesBudgetWhileStreaming() throws Exception {
+        PackageUploadLimiter limiter = new PackageUploadLimiter(0, 0, 100, 10);
+        try (PackageUploadLimiter.Permit permit = limiter.acquire(-1)) {
+            InputStream inputStream = permit.wrap(new ByteArrayInputStream(new byte[200]));
+            IOUtils.toByteArray(inputStream);
+            fail("the upload should exceed the byte budget");
+        } catch (RestException e) {
+            assertEquals(Response.Status.SERVICE_UNAVAILABLE.getStatusCode(), e.getResponse().getStatus());
+        }
+        assertEquals(0, limiter.getUploadBytesInFlight());
+    }
+}
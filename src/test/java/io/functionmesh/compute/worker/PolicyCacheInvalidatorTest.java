@@ -0,0 +1,72 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.functionmesh.compute.worker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import org.apache.pulsar.functions.proto.Function.FunctionDetails.ComponentType;
+import org.apache.pulsar.metadata.api.Notification;
+import org.apache.pulsar.metadata.api.NotificationType;
+import org.junit.Before;
+import org.junit.Test;
+import org.powermock.api.mockito.PowerMockito;
+
+public class PolicyCacheInvalidatorTest {
+
+    private TenantInfoCache tenantInfoCache;
+    private AuthorizationDecisionCache decisionCache;
+    private PolicyCacheInvalidator invalidator;
+
+    @Before
+    public void setup() {
+        tenantInfoCache = PowerMockito.mock(TenantInfoCache.class);
+        decisionCache = new AuthorizationDecisionCache(100, 60000, 60000);
+        decisionCache.put("role", "public", "default", ComponentType.SINK, true);
+        decisionCache.put("role", "public", "other", ComponentType.SINK, true);
+        decisionCache.put("role", "tenant", "default", ComponentType.SINK, true);
+        invalidator = new PolicyCacheInvalidator(() -> tenantInfoCache, () -> decisionCache);
+    }
+
+    @Test
+    public void testNamespacePolicyChange() {
+        invalidator.accept(new Notification(NotificationType.Modified, "/admin/policies/public/default"));
+        assertNull(decisionCache.get("role", "public", "default", ComponentType.SINK));
+        assertEquals(Boolean.TRUE, decisionCache.get("role", "public", "other", ComponentType.SINK));
+        verify(tenantInfoCache, never()).invalidate("public");
+    }
+
+    @Test
+    public void testTenantPolicyChange() {
+        invalidator.accept(new Notification(NotificationType.Modified, "/admin/policies/public"));
+        assertNull(decisionCache.get("role", "public", "default", ComponentType.SINK));
+        assertNull(decisionCache.get("role", "public", "other", ComponentType.SINK));
+        assertEquals(Boolean.TRUE, decisionCache.get("role", "tenant", "default", ComponentType.SINK));
+        verify(tenantInfoCache).invalidate("public");
+    }
+
+    @Test
+    public void testUnrelatedPath() {
+        invalidator.accept(new Notification(NotificationType.Modified, "/admin/clusters/public"));
+        invalidator.accept(new Notification(NotificationType.ChildrenChanged, "/admin/policies"));
+        assertEquals(Boolean.TRUE, decisionCache.get("role", "public", "default", ComponentType.SINK));
+        verify(tenantInfoCache, never()).invalidate("public");
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.functionmesh.compute.worker;
+
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import org.apache.pulsar.client.admin.PulsarAdmin;
+import org.apache.pulsar.client.admin.PulsarAdminException;
+import org.apache.pulsar.client.admin.Tenants;
+import org.apache.pulsar.common.policies.data.TenantInfo;
+import org.junit.Before;
+import org.junit.Test;
+import org.powermock.api.mockito.PowerMockito;
+
+public class TenantInfoCacheTest {
+
+    private PulsarAdmin admin;
+    private Tenants tenants;
+
+    @Before
+    public void setup() {
+        admin = PowerMockito.mock(PulsarAdmin.class);
+        tenants = PowerMockito.mock(Tenants.class);
+        PowerMockito.when(admin.tenants()).thenReturn(tenants);
+    }
+
+    @Test
+    public void testCachedTenantInfo() throws Exception {
+        TenantInfo tenantInfo = TenantInfo.builder().build();
+        PowerMockito.when(tenants.getTenantInfoAsync("public"))
+                .thenReturn(CompletableFuture.completedFuture(tenantInfo));
+        TenantInfoCache cache = new TenantInfoCache(admin, 60000);
+
+        assertSame(tenantInfo, cache.getTenantInfoAsync("public").get());
+        assertSame(tenantInfo, cache.getTenantInfoAsync("public").get());
+        verify(tenants, times(1)).getTenantInfoAsync("public");
+
+        cache.invalidate("public");
+        assertSame(tenantInfo, cache.getTenantInfoAsync("public").get());
+        verify(tenants, times(2)).getTenantInfoAsync("public");
+    }
+
+    @Test
+    public void testMissingTenantIsNotCached() throws Exception {
+        CompletableFuture<TenantInfo> notFound = new CompletableFuture<>();
+        notFound.completeExceptionally(new PulsarAdminException.NotFoundException(null, "not found", 404));
+        PowerMockito.when(tenants.getTenantInfoAsync("missing")).thenReturn(notFound);
+        TenantInfoCache cache = new TenantInfoCache(admin, 60000);
+        for (int i = 0; i < 2; i++) {
+            try {
+                cache.getTenantInfoAsync("missing").get();
+                fail("missing tenant should not be found");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof PulsarAdminException.NotFoundException);
+            }
+        }
+        verify(tenants, times(2)).getTenantInfoAsync("missing");
+    }
+
+    @Test
+    public void testInvalidationDuringLookup() throws Exception {
+        TenantInfo staleInfo = TenantInfo.builder().build();
+        TenantInfo tenantInfo = TenantInfo.builder().build();
+        CompletableFuture<TenantInfo> inFlight = new CompletableFuture<>();
+        PowerMockito.when(tenants.getTenantInfoAsync("public"))
+                .thenReturn(inFlight, CompletableFuture.completedFuture(tenantInfo));
+        TenantInfoCache cache = new TenantInfoCache(admin, 60000);
+
+        CompletableFuture<TenantInfo> lookup = cache.getTenantInfoAsync("public");
+        // the admin roles are changed while the broker is answering with the previous ones
+        cache.invalidate("public");
+        inFlight.complete(staleInfo);
+        assertSame(staleInfo, lookup.get());
+
+        assertSame(tenantInfo, cache.getTenantInfoAsync("public").get());
+        verify(tenants, times(2)).getTenantInfoAsync("public");
+    }
+}